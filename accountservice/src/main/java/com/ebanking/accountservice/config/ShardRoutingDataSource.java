@@ -0,0 +1,36 @@
+package com.ebanking.accountservice.config;
+
+import com.ebanking.accountservice.service.ShardRouter;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Hands out connections to the shard the current thread is bound to through
+ * {@link ShardRouter}.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    
+    private final List<DataSource> shards;
+    
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = shards;
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardRouter.currentShard();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        for (DataSource shard : shards) {
+            if (shard instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
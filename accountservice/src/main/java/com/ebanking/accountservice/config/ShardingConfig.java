@@ -0,0 +1,83 @@
+package com.ebanking.accountservice.config;
+
+import com.ebanking.accountservice.service.ShardSchemaInitializer;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data sources for a sharded account store. Shard 0 is the regular
+ * {@code spring.datasource}; {@code account.shards.urls} lists the others in
+ * order and they share its credentials. Everything above the data source,
+ * JPA included, sees one routing data source behind a lazy proxy, so the
+ * physical connection is only picked once a transaction runs its first
+ * statement, by which time the caller has selected the shard.
+ */
+@Configuration
+@ConditionalOnExpression("${account.shards.count:1} > 1")
+public class ShardingConfig {
+    
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties properties,
+                                                         @Value("${account.shards.count}") int count,
+                                                         @Value("${account.shards.urls:}") List<String> urls,
+                                                         @Value("${account.wal.enabled:false}") boolean walEnabled) {
+        if (walEnabled) {
+            // The journal flushes many accounts per transaction, which cannot span shards
+            throw new IllegalStateException("account.wal.enabled cannot be combined with account sharding");
+        }
+        if (urls.size() != count - 1) {
+            throw new IllegalStateException("account.shards.urls must list " + (count - 1)
+                    + " shard urls after the primary datasource");
+        }
+        
+        List<DataSource> shards = new ArrayList<>(count);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < count; shard++) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(shard == 0 ? properties.getUrl() : urls.get(shard - 1).trim())
+                    .build();
+            dataSource.setPoolName("accounts-shard-" + shard);
+            shards.add(dataSource);
+            targets.put(shard, dataSource);
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource(shards);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(shards.get(0));
+        return routing;
+    }
+    
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+    
+    /**
+     * Lets the schema initializer see the mapping Hibernate was bootstrapped
+     * with. Sharded sequences step by more than their allocation size (see
+     * {@link ShardSchemaInitializer}), so Hibernate must not reject that.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardSchemaCapture(ShardSchemaInitializer shardSchemaInitializer) {
+        return properties -> {
+            properties.put("hibernate.integrator_provider",
+                    (IntegratorProvider) () -> List.of(shardSchemaInitializer));
+            properties.put("hibernate.id.sequence.increment_size_mismatch_strategy", "none");
+        };
+    }
+}
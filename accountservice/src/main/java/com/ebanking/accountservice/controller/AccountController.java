@@ -1,14 +1,31 @@
 package com.ebanking.accountservice.controller;
 
+import com.ebanking.accountservice.dto.AccountBalance;
+import com.ebanking.accountservice.dto.AccountLookupResult;
+import com.ebanking.accountservice.dto.BalancePosting;
 import com.ebanking.accountservice.dto.BalanceUpdateRequest;
+import com.ebanking.accountservice.dto.LedgerBalance;
+import com.ebanking.accountservice.dto.PortfolioSummary;
+import com.ebanking.accountservice.dto.PostingResult;
+import com.ebanking.accountservice.dto.TransferRequest;
+import com.ebanking.accountservice.dto.TransferResponse;
+import com.ebanking.accountservice.exception.ConcurrentUpdateException;
 import com.ebanking.accountservice.model.Account;
+import com.ebanking.accountservice.model.InterestAccrualRun;
 import com.ebanking.accountservice.service.AccountService;
+import com.ebanking.accountservice.service.InterestAccrualService;
+import com.ebanking.accountservice.service.LedgerService;
+import com.ebanking.accountservice.service.PortfolioService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/accounts")
@@ -16,12 +33,47 @@ import java.util.List;
 public class AccountController {
     
     private final AccountService accountService;
+    private final LedgerService ledgerService;
+    private final InterestAccrualService interestAccrualService;
+    private final PortfolioService portfolioService;
     
     @GetMapping
     public ResponseEntity<List<Account>> getAllAccounts() {
         return ResponseEntity.ok(accountService.getAllAccounts());
     }
     
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<AccountLookupResult>> getAccountsByIds(@RequestParam List<Long> ids) {
+        return batchGet(ids);
+    }
+    
+    @PostMapping("/batch-get")
+    public ResponseEntity<List<AccountLookupResult>> batchGetAccounts(@RequestBody List<Long> ids) {
+        return batchGet(ids);
+    }
+    
+    @GetMapping("/balances")
+    public ResponseEntity<List<AccountBalance>> getBalances(@RequestParam List<Long> ids) {
+        return batchGetBalances(ids);
+    }
+    
+    @PostMapping("/balances/batch-get")
+    public ResponseEntity<List<AccountBalance>> batchGetBalances(@RequestBody List<Long> ids) {
+        try {
+            return ResponseEntity.ok(accountService.getBalancesByIds(ids));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    private ResponseEntity<List<AccountLookupResult>> batchGet(List<Long> ids) {
+        try {
+            return ResponseEntity.ok(accountService.getAccountsByIds(ids));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<Account> getAccountById(@PathVariable Long id) {
         return accountService.getAccountById(id)
@@ -41,6 +93,20 @@ public class AccountController {
         return ResponseEntity.ok(accountService.getAccountsByUserId(userId));
     }
     
+    /**
+     * Total and per-type balances of the user's open accounts in one
+     * currency, the base currency if none is requested.
+     */
+    @GetMapping("/user/{userId}/summary")
+    public ResponseEntity<PortfolioSummary> getPortfolioSummary(@PathVariable Long userId,
+                                                                @RequestParam(required = false) String currency) {
+        try {
+            return ResponseEntity.ok(portfolioService.getSummary(userId, currency));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @PostMapping
     public ResponseEntity<Account> createAccount(@RequestBody Account account) {
         Account createdAccount = accountService.createAccount(account);
@@ -62,6 +128,10 @@ public class AccountController {
         try {
             Account updatedAccount = accountService.updateBalance(id, request.getAmount(), request.getTransactionType().name());
             return ResponseEntity.ok(updatedAccount);
+        } catch (ConcurrentUpdateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (RuntimeException e) {
             if (e.getMessage().equals("Account not found")) {
                 return ResponseEntity.notFound().build();
@@ -70,6 +140,60 @@ public class AccountController {
         }
     }
     
+    /**
+     * Balance from the ledger, as of now or as of the given instant.
+     */
+    @GetMapping("/{id}/ledger/balance")
+    public ResponseEntity<LedgerBalance> getLedgerBalance(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        LocalDateTime at = asOf != null ? asOf : LocalDateTime.now();
+        return ledgerService.getBalanceAsOf(id, at)
+                .map(balance -> ResponseEntity.ok(new LedgerBalance(id, balance, at)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @PostMapping("/transfers")
+    public ResponseEntity<TransferResponse> transfer(@RequestBody TransferRequest request) {
+        try {
+            TransferResponse response = accountService.transfer(
+                    request.getFromAccountId(), request.getToAccountId(), request.getAmount(), request.getReference());
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            if ("Account not found".equals(e.getMessage())) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @PostMapping("/postings/batch")
+    public ResponseEntity<List<PostingResult>> applyPostings(@RequestBody List<BalancePosting> postings) {
+        return ResponseEntity.ok(accountService.applyPostings(postings));
+    }
+    
+    /**
+     * Starts or resumes the interest accrual for a business date; progress is
+     * polled with the GET below.
+     */
+    @PostMapping("/interest/accruals")
+    public ResponseEntity<InterestAccrualRun> startInterestAccrual(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        try {
+            return ResponseEntity.accepted().body(interestAccrualService.start(date));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+    
+    @GetMapping("/interest/accruals/{date}")
+    public ResponseEntity<InterestAccrualRun> getInterestAccrual(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return interestAccrualService.getRun(date)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteAccount(@PathVariable Long id) {
         accountService.deleteAccount(id);
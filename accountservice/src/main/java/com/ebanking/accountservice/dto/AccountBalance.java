@@ -0,0 +1,20 @@
+package com.ebanking.accountservice.dto;
+
+import com.ebanking.accountservice.model.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Balance-only view of an account, returned in request order by the batch
+ * balance query.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountBalance {
+    private Long id;
+    private boolean found;
+    private Money balance;
+    private String currency;
+}
@@ -0,0 +1,28 @@
+package com.ebanking.accountservice.dto;
+
+import com.ebanking.accountservice.model.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Latest state of an account, keyed by account id on a compacted topic, so
+ * the topic always holds the current state of every account. A deleted
+ * account is followed by a tombstone (null value) for its key. The owner's
+ * id lets every instance drop what it caches per user.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountChangedEvent {
+    private Long accountId;
+    private String status;
+    private String changeType;
+    private Money balance;
+    private Long version;
+    private Long userId;
+    
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+}
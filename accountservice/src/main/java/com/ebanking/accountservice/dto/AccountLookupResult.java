@@ -0,0 +1,19 @@
+package com.ebanking.accountservice.dto;
+
+import com.ebanking.accountservice.model.Account;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One slot of a multi-get response, in request order. {@code account} is
+ * null when no account has the requested id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountLookupResult {
+    private Long id;
+    private boolean found;
+    private Account account;
+}
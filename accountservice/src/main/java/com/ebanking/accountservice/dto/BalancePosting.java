@@ -0,0 +1,16 @@
+package com.ebanking.accountservice.dto;
+
+import com.ebanking.accountservice.model.Money;
+import lombok.Data;
+
+/**
+ * One balance movement in a posting batch. A deposit only has a credit
+ * account, a withdrawal only a debit account, a transfer has both.
+ */
+@Data
+public class BalancePosting {
+    private String reference;
+    private Long debitAccountId;
+    private Long creditAccountId;
+    private Money amount;
+}
@@ -1,11 +1,11 @@
 package com.ebanking.accountservice.dto;
 
+import com.ebanking.accountservice.model.Money;
 import lombok.Data;
-import java.math.BigDecimal;
 
 @Data
 public class BalanceUpdateRequest {
-    private BigDecimal amount;
+    private Money amount;
     private TransactionType transactionType;
     
     public enum TransactionType {
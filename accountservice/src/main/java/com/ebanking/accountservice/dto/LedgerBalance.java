@@ -0,0 +1,17 @@
+package com.ebanking.accountservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerBalance {
+    private Long accountId;
+    private BigDecimal balance;
+    private LocalDateTime asOf;
+}
@@ -0,0 +1,21 @@
+package com.ebanking.accountservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioSummary {
+    private Long userId;
+    private String currency;
+    private BigDecimal total;
+    private Map<String, BigDecimal> totalsByType;
+    private int accountCount;
+    private LocalDateTime ratesAsOf;
+}
@@ -0,0 +1,14 @@
+package com.ebanking.accountservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostingResult {
+    private String reference;
+    private boolean applied;
+    private String error;
+}
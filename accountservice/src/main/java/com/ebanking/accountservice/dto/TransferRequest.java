@@ -0,0 +1,12 @@
+package com.ebanking.accountservice.dto;
+
+import com.ebanking.accountservice.model.Money;
+import lombok.Data;
+
+@Data
+public class TransferRequest {
+    private Long fromAccountId;
+    private Long toAccountId;
+    private Money amount;
+    private String reference;
+}
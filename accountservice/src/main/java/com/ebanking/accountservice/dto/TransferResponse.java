@@ -0,0 +1,14 @@
+package com.ebanking.accountservice.dto;
+
+import com.ebanking.accountservice.model.Account;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferResponse {
+    private Account fromAccount;
+    private Account toAccount;
+}
@@ -0,0 +1,16 @@
+package com.ebanking.accountservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * In-process notification that one of a user's accounts changed and was
+ * committed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserAccountsChangedEvent {
+    private Long userId;
+}
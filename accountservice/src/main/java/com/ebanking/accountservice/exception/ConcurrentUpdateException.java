@@ -0,0 +1,8 @@
+package com.ebanking.accountservice.exception;
+
+public class ConcurrentUpdateException extends RuntimeException {
+    
+    public ConcurrentUpdateException(String message) {
+        super(message);
+    }
+}
@@ -7,11 +7,13 @@ import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "accounts")
+@Table(name = "accounts", indexes = {
+        @Index(name = "idx_accounts_type_id", columnList = "account_type, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -28,7 +30,7 @@ public class Account {
     private AccountType accountType;
     
     @Column(nullable = false)
-    private BigDecimal balance;
+    private Money balance;
     
     @Column
     private String currency;
@@ -40,6 +42,13 @@ public class Account {
     @Column(name = "user_id", nullable = false)
     private Long userId;
     
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+    
+    @Column(name = "interest_accrued_through")
+    private LocalDate interestAccruedThrough;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     @CreationTimestamp
     private LocalDateTime createdAt;
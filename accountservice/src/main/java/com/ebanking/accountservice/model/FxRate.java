@@ -0,0 +1,29 @@
+package com.ebanking.accountservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Value of one unit of {@code currency} in the base currency.
+ */
+@Entity
+@Table(name = "fx_rates")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FxRate {
+    @Id
+    @Column(length = 3)
+    private String currency;
+    
+    @Column(nullable = false, precision = 19, scale = 8)
+    private BigDecimal rate;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
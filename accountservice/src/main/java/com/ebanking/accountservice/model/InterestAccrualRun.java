@@ -0,0 +1,53 @@
+package com.ebanking.accountservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the interest accrual for one business date. {@code shardIndex}
+ * and {@code lastAccountId} are the checkpoint: every SAVINGS account on
+ * earlier shards, and on this shard up to that id, has been processed, so an
+ * interrupted run resumes from there.
+ */
+@Entity
+@Table(name = "interest_accrual_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InterestAccrualRun {
+    @Id
+    @Column(name = "run_date")
+    private LocalDate runDate;
+    
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private RunStatus status;
+    
+    @Column(name = "shard_index", nullable = false, columnDefinition = "integer default 0")
+    private Integer shardIndex;
+    
+    @Column(name = "last_account_id", nullable = false)
+    private Long lastAccountId;
+    
+    @Column(name = "accounts_accrued", nullable = false)
+    private Long accountsAccrued;
+    
+    @Column(name = "total_interest", nullable = false)
+    private BigDecimal totalInterest;
+    
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    public enum RunStatus {
+        RUNNING, COMPLETED
+    }
+}
@@ -0,0 +1,33 @@
+package com.ebanking.accountservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * How far a balance journal has been applied to the database. Updated in the
+ * same transaction as the balances it covers, so a replay after a crash never
+ * applies a record twice.
+ */
+@Entity
+@Table(name = "balance_journal_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalCheckpoint {
+    @Id
+    @Column(name = "journal_name")
+    private String journalName;
+    
+    @Column(nullable = false)
+    private Long epoch;
+    
+    @Column(name = "flushed_offset", nullable = false)
+    private Integer flushedOffset;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,50 @@
+package com.ebanking.accountservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable journal entry for one side of a balance change. Entries are only
+ * ever inserted; the signed amount is the change to the account's balance.
+ * Both legs of a transfer share the same reference.
+ */
+@Entity
+@Table(name = "ledger_entries", indexes = {
+        @Index(name = "idx_ledger_entries_account_created", columnList = "account_id, created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entries_seq")
+    @SequenceGenerator(name = "ledger_entries_seq", sequenceName = "ledger_entries_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "account_id", nullable = false, updatable = false)
+    private Long accountId;
+    
+    @Column(name = "entry_type", nullable = false, updatable = false)
+    @Enumerated(EnumType.STRING)
+    private EntryType entryType;
+    
+    @Column(nullable = false, updatable = false)
+    private BigDecimal amount;
+    
+    @Column(updatable = false)
+    private String reference;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+    
+    public enum EntryType {
+        DEBIT, CREDIT
+    }
+}
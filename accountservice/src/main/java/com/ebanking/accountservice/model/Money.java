@@ -0,0 +1,175 @@
+package com.ebanking.accountservice.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * Immutable monetary amount held as a {@code long} count of minor units
+ * (cents for most currencies). Arithmetic is exact and throws
+ * {@link ArithmeticException} on overflow instead of wrapping; comparisons
+ * do not allocate. The currency is optional: an amount without one uses two
+ * decimal places and can be combined with any currency of the same scale.
+ * Serialized to JSON as a plain number and stored as a {@code numeric} column.
+ */
+@JsonSerialize(using = MoneyJsonSerializer.class)
+@JsonDeserialize(using = MoneyJsonDeserializer.class)
+public final class Money implements Comparable<Money>, Serializable {
+    
+    public static final int DEFAULT_SCALE = 2;
+    public static final Money ZERO = new Money(0, null, DEFAULT_SCALE);
+    
+    private final long minorUnits;
+    private final String currency;
+    private final int scale;
+    
+    private Money(long minorUnits, String currency, int scale) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+        this.scale = scale;
+    }
+    
+    public static Money ofMinor(long minorUnits) {
+        return new Money(minorUnits, null, DEFAULT_SCALE);
+    }
+    
+    public static Money ofMinor(long minorUnits, String currency) {
+        return new Money(minorUnits, currency, scaleOf(currency));
+    }
+    
+    public static Money of(BigDecimal amount) {
+        return of(amount, null);
+    }
+    
+    /**
+     * Converts a decimal amount, failing if it has more decimal places than
+     * the currency allows or does not fit in a {@code long} of minor units.
+     */
+    public static Money of(BigDecimal amount, String currency) {
+        int scale = scaleOf(currency);
+        long minorUnits = amount.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        return new Money(minorUnits, currency, scale);
+    }
+    
+    public static Money parse(String amount) {
+        return of(new BigDecimal(amount));
+    }
+    
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+    
+    public String getCurrency() {
+        return currency;
+    }
+    
+    public int getScale() {
+        return scale;
+    }
+    
+    public Money plus(Money other) {
+        return new Money(Math.addExact(minorUnits, other.minorUnits), combinedCurrency(other), scale);
+    }
+    
+    public Money minus(Money other) {
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), combinedCurrency(other), scale);
+    }
+    
+    public Money negate() {
+        return new Money(Math.negateExact(minorUnits), currency, scale);
+    }
+    
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+    
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+    
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+    
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+    
+    public boolean isLessThan(Money other) {
+        return compareTo(other) < 0;
+    }
+    
+    @Override
+    public int compareTo(Money other) {
+        combinedCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+    
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money other)) {
+            return false;
+        }
+        return minorUnits == other.minorUnits && scale == other.scale
+                && (currency == null ? other.currency == null : currency.equals(other.currency));
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + (currency != null ? currency.hashCode() : 0);
+    }
+    
+    /**
+     * Plain decimal representation without currency, e.g. {@code -12.05}.
+     */
+    @Override
+    public String toString() {
+        // Unsigned formatting also handles Long.MIN_VALUE, whose negation overflows
+        String digits = Long.toUnsignedString(minorUnits < 0 ? -minorUnits : minorUnits);
+        if (scale == 0) {
+            return minorUnits < 0 ? "-" + digits : digits;
+        }
+        StringBuilder text = new StringBuilder(digits.length() + scale + 2);
+        if (minorUnits < 0) {
+            text.append('-');
+        }
+        int integerDigits = digits.length() - scale;
+        if (integerDigits <= 0) {
+            text.append("0.");
+            for (int i = integerDigits; i < 0; i++) {
+                text.append('0');
+            }
+            text.append(digits);
+        } else {
+            text.append(digits, 0, integerDigits).append('.').append(digits, integerDigits, digits.length());
+        }
+        return text.toString();
+    }
+    
+    private String combinedCurrency(Money other) {
+        if (scale != other.scale
+                || (currency != null && other.currency != null && !currency.equals(other.currency))) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+        return currency != null ? currency : other.currency;
+    }
+    
+    public static int scaleOf(String currency) {
+        if (currency == null) {
+            return DEFAULT_SCALE;
+        }
+        int digits = Currency.getInstance(currency).getDefaultFractionDigits();
+        return digits >= 0 ? digits : DEFAULT_SCALE;
+    }
+}
@@ -0,0 +1,38 @@
+package com.ebanking.accountservice.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Reads {@link Money} from a JSON number or numeric string. Amounts with
+ * more decimal places than the scale allows are rejected rather than rounded.
+ */
+public class MoneyJsonDeserializer extends StdDeserializer<Money> {
+    
+    public MoneyJsonDeserializer() {
+        super(Money.class);
+    }
+    
+    @Override
+    public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        try {
+            if (p.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+                return Money.of(BigDecimal.valueOf(p.getLongValue()));
+            }
+            if (p.currentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
+                return Money.of(p.getDecimalValue());
+            }
+            if (p.currentToken() == JsonToken.VALUE_STRING) {
+                return Money.parse(p.getText().trim());
+            }
+        } catch (ArithmeticException | NumberFormatException e) {
+            return (Money) ctxt.handleWeirdStringValue(Money.class, p.getText(), e.getMessage());
+        }
+        return (Money) ctxt.handleUnexpectedToken(Money.class, p);
+    }
+}
@@ -0,0 +1,23 @@
+package com.ebanking.accountservice.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link Money} as a plain JSON number, matching the previous
+ * {@code BigDecimal} wire format.
+ */
+public class MoneyJsonSerializer extends StdSerializer<Money> {
+    
+    public MoneyJsonSerializer() {
+        super(Money.class);
+    }
+    
+    @Override
+    public void serialize(Money value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeNumber(value.toString());
+    }
+}
@@ -0,0 +1,58 @@
+package com.ebanking.accountservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A transfer between accounts on different shards. The source shard stores it
+ * as PENDING in the same transaction as the debit; while PENDING the credit
+ * may or may not have been applied. The destination shard stores it as
+ * COMPLETED in the credit transaction, and the unique reference keeps the
+ * credit from being applied twice.
+ */
+@Entity
+@Table(name = "shard_transfers", indexes = {
+        @Index(name = "idx_shard_transfers_status_created", columnList = "status, created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardTransfer {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, unique = true)
+    private String reference;
+    
+    @Column(name = "from_account_id", nullable = false)
+    private Long fromAccountId;
+    
+    @Column(name = "to_account_id", nullable = false)
+    private Long toAccountId;
+    
+    @Column(nullable = false)
+    private Money amount;
+    
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private TransferStatus status;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+    
+    public enum TransferStatus {
+        PENDING, COMPLETED, COMPENSATED
+    }
+}
@@ -1,9 +1,18 @@
 package com.ebanking.accountservice.repository;
 
 import com.ebanking.accountservice.model.Account;
+import com.ebanking.accountservice.model.Money;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +20,37 @@ import java.util.Optional;
 public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findByAccountNumber(String accountNumber);
     List<Account> findByUserId(Long userId);
+    
+    /**
+     * Id, balance and currency only, read as tuples without loading entities.
+     */
+    @Query("SELECT a.id AS id, a.balance AS balance, a.currency AS currency FROM Account a WHERE a.id IN :ids")
+    List<BalanceView> findBalancesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    interface BalanceView {
+        Long getId();
+        Money getBalance();
+        String getCurrency();
+    }
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id = :id")
+    Optional<Account> findByIdForUpdate(@Param("id") Long id);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Writes the balance only if the row still has the version it was read
+     * with. Returns 0 when another update got there first.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = :balance, a.version = a.version + 1, a.updatedAt = :updatedAt " +
+            "WHERE a.id = :id AND a.version = :version")
+    int updateBalanceIfVersion(@Param("id") Long id,
+                               @Param("version") Long version,
+                               @Param("balance") Money balance,
+                               @Param("updatedAt") LocalDateTime updatedAt);
 }
@@ -0,0 +1,51 @@
+package com.ebanking.accountservice.repository;
+
+import com.ebanking.accountservice.model.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+    
+    Optional<BalanceSnapshot> findFirstByAccountIdAndTakenAtLessThanEqualOrderByTakenAtDesc(Long accountId,
+                                                                                            LocalDateTime takenAt);
+    
+    boolean existsByAccountIdAndTakenAtGreaterThan(Long accountId, LocalDateTime takenAt);
+    
+    /**
+     * Opening snapshots for accounts that predate the ledger, so that their
+     * current column balance becomes the starting point of their history.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO balance_snapshots (id, account_id, balance, taken_at) " +
+            "SELECT nextval('balance_snapshots_seq'), a.id, a.balance, :takenAt FROM accounts a " +
+            "WHERE NOT EXISTS (SELECT 1 FROM balance_snapshots s WHERE s.account_id = a.id) " +
+            "AND NOT EXISTS (SELECT 1 FROM ledger_entries e WHERE e.account_id = a.id)",
+            nativeQuery = true)
+    int insertOpeningSnapshots(@Param("takenAt") LocalDateTime takenAt);
+    
+    /**
+     * Rolls every account with entries since its latest snapshot forward to
+     * {@code cutoff}: one new snapshot per account holding the previous
+     * snapshot balance plus the entries in between.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO balance_snapshots (id, account_id, balance, taken_at) " +
+            "SELECT nextval('balance_snapshots_seq'), e.account_id, COALESCE(s.balance, 0) + SUM(e.amount), :cutoff " +
+            "FROM ledger_entries e " +
+            "LEFT JOIN LATERAL (SELECT bs.balance, bs.taken_at FROM balance_snapshots bs " +
+            "    WHERE bs.account_id = e.account_id ORDER BY bs.taken_at DESC LIMIT 1) s ON true " +
+            "WHERE e.created_at >= COALESCE(s.taken_at, '-infinity'::timestamp) AND e.created_at < :cutoff " +
+            "GROUP BY e.account_id, s.balance",
+            nativeQuery = true)
+    int compactUntil(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,11 @@
+package com.ebanking.accountservice.repository;
+
+import com.ebanking.accountservice.model.InterestAccrualRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface InterestAccrualRunRepository extends JpaRepository<InterestAccrualRun, LocalDate> {
+}
@@ -0,0 +1,20 @@
+package com.ebanking.accountservice.repository;
+
+import com.ebanking.accountservice.model.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+    
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM LedgerEntry e " +
+            "WHERE e.accountId = :accountId AND e.createdAt >= :fromTime AND e.createdAt < :toTime")
+    BigDecimal sumAmountBetween(@Param("accountId") Long accountId,
+                                @Param("fromTime") LocalDateTime fromTime,
+                                @Param("toTime") LocalDateTime toTime);
+}
@@ -0,0 +1,18 @@
+package com.ebanking.accountservice.repository;
+
+import com.ebanking.accountservice.model.ShardTransfer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ShardTransferRepository extends JpaRepository<ShardTransfer, Long> {
+    List<ShardTransfer> findTop100ByStatusAndCreatedAtBeforeOrderByCreatedAt(ShardTransfer.TransferStatus status,
+                                                                             LocalDateTime createdBefore);
+    
+    boolean existsByReference(String reference);
+    
+    boolean existsByStatus(ShardTransfer.TransferStatus status);
+}
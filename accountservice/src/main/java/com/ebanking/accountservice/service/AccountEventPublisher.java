@@ -0,0 +1,87 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.dto.AccountChangedEvent;
+import com.ebanking.accountservice.dto.UserAccountsChangedEvent;
+import com.ebanking.accountservice.model.Account;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Publishes the state of changed accounts to the compacted account-events
+ * topic, so other services can keep a local replica or drop cached state.
+ * When called inside a transaction the event is built and sent after commit,
+ * so it carries the committed balance and version. A local
+ * {@link UserAccountsChangedEvent} for the owner is published at the same time;
+ * other instances learn of the change from the topic.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccountEventPublisher {
+    
+    public static final String TOPIC = "account-events";
+    private final KafkaTemplate<String, AccountChangedEvent> kafkaTemplate;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    
+    public void publish(Account account, AccountChangedEvent.ChangeType changeType) {
+        publish(account.getId(), account.getUserId(), () -> toEvent(account, changeType));
+    }
+    
+    /**
+     * Sends a DELETED event followed by a tombstone, so compaction eventually
+     * removes the account from the topic.
+     */
+    public void publishDeleted(Long accountId, Long userId) {
+        publish(accountId, userId, () -> new AccountChangedEvent(accountId, null,
+                AccountChangedEvent.ChangeType.DELETED.name(), null, null, userId));
+        publish(accountId, null, () -> null);
+    }
+    
+    private void publish(Long accountId, Long userId, Supplier<AccountChangedEvent> event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(accountId, event.get());
+                    notifyLocal(userId);
+                }
+            });
+        } else {
+            send(accountId, event.get());
+            notifyLocal(userId);
+        }
+    }
+    
+    private void notifyLocal(Long userId) {
+        if (userId != null) {
+            applicationEventPublisher.publishEvent(new UserAccountsChangedEvent(userId));
+        }
+    }
+    
+    private AccountChangedEvent toEvent(Account account, AccountChangedEvent.ChangeType changeType) {
+        String status = account.getStatus() != null ? account.getStatus().name() : null;
+        return new AccountChangedEvent(account.getId(), status, changeType.name(), account.getBalance(),
+                account.getVersion(), account.getUserId());
+    }
+    
+    private void send(Long accountId, AccountChangedEvent event) {
+        try {
+            kafkaTemplate.send(TOPIC, String.valueOf(accountId), event)
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            log.error("Failed to send account event: accountId={}, error={}",
+                                    accountId, ex.getMessage());
+                        }
+                    });
+        } catch (Exception e) {
+            log.error("Error sending account event: {}", e.getMessage(), e);
+        }
+    }
+}
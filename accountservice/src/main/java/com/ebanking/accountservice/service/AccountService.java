@@ -1,75 +1,494 @@
 package com.ebanking.accountservice.service;
 
+import com.ebanking.accountservice.dto.AccountBalance;
+import com.ebanking.accountservice.dto.AccountChangedEvent;
+import com.ebanking.accountservice.dto.AccountLookupResult;
+import com.ebanking.accountservice.dto.BalancePosting;
+import com.ebanking.accountservice.dto.PostingResult;
+import com.ebanking.accountservice.dto.TransferResponse;
 import com.ebanking.accountservice.model.Account;
+import com.ebanking.accountservice.model.LedgerEntry;
+import com.ebanking.accountservice.model.Money;
 import com.ebanking.accountservice.repository.AccountRepository;
-import lombok.RequiredArgsConstructor;
+import com.ebanking.accountservice.exception.ConcurrentUpdateException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
 
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class AccountService {
     
     private final AccountRepository accountRepository;
+    private final AccountEventPublisher accountEventPublisher;
+    private final BalanceSequencer balanceSequencer;
+    private final LedgerService ledgerService;
+    private final JournaledBalanceService journaledBalanceService;
+    private final ShardRouter shardRouter;
+    private final CrossShardTransferService crossShardTransferService;
+    private final TransactionTemplate transactionTemplate;
+    
+    private final Counter conflictCounter;
+    private final Counter retryCounter;
+    private final Counter exhaustedCounter;
+    
+    @Value("${account.batch-get.max-ids:1000}")
+    private int maxBatchIds;
+    
+    @Value("${account.balance-update.max-attempts:5}")
+    private int maxAttempts;
+    
+    @Value("${account.balance-update.initial-backoff-ms:5}")
+    private long initialBackoffMs;
+    
+    @Value("${account.balance-update.max-backoff-ms:100}")
+    private long maxBackoffMs;
+    
+    public AccountService(AccountRepository accountRepository,
+                          AccountEventPublisher accountEventPublisher,
+                          BalanceSequencer balanceSequencer,
+                          LedgerService ledgerService,
+                          JournaledBalanceService journaledBalanceService,
+                          ShardRouter shardRouter,
+                          CrossShardTransferService crossShardTransferService,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry) {
+        this.accountRepository = accountRepository;
+        this.accountEventPublisher = accountEventPublisher;
+        this.balanceSequencer = balanceSequencer;
+        this.ledgerService = ledgerService;
+        this.journaledBalanceService = journaledBalanceService;
+        this.shardRouter = shardRouter;
+        this.crossShardTransferService = crossShardTransferService;
+        this.transactionTemplate = transactionTemplate;
+        this.conflictCounter = meterRegistry.counter("account.balance.update.conflicts");
+        this.retryCounter = meterRegistry.counter("account.balance.update.retries");
+        this.exhaustedCounter = meterRegistry.counter("account.balance.update.exhausted");
+    }
     
     public List<Account> getAllAccounts() {
-        return accountRepository.findAll();
+        List<Account> accounts = new ArrayList<>();
+        shardRouter.onEach(shard -> accounts.addAll(accountRepository.findAll()));
+        return accounts;
     }
     
     public Optional<Account> getAccountById(Long id) {
-        return accountRepository.findById(id);
+        return shardRouter.on(shardRouter.shardOf(id), () -> accountRepository.findById(id));
     }
     
+    /**
+     * Looks on the shard the account number was placed on first, then on the
+     * others, where rebalancing may have moved the account.
+     */
     public Optional<Account> getAccountByAccountNumber(String accountNumber) {
-        return accountRepository.findByAccountNumber(accountNumber);
+        int placement = shardRouter.placementShard(accountNumber);
+        Optional<Account> account = shardRouter.on(placement, () -> accountRepository.findByAccountNumber(accountNumber));
+        for (int shard = 0; account.isEmpty() && shard < shardRouter.getCount(); shard++) {
+            if (shard != placement) {
+                account = shardRouter.on(shard, () -> accountRepository.findByAccountNumber(accountNumber));
+            }
+        }
+        return account;
     }
     
     public List<Account> getAccountsByUserId(Long userId) {
-        return accountRepository.findByUserId(userId);
+        List<Account> accounts = new ArrayList<>();
+        shardRouter.onEach(shard -> accounts.addAll(accountRepository.findByUserId(userId)));
+        return accounts;
+    }
+    
+    /**
+     * Loads all requested accounts with one IN-list query per shard and
+     * returns them in request order, with a not-found slot for every id that
+     * does not exist.
+     */
+    public List<AccountLookupResult> getAccountsByIds(List<Long> ids) {
+        checkBatchSize(ids);
+        Map<Long, Account> accounts = new HashMap<>();
+        shardRouter.groupByShard(new HashSet<>(ids), id -> id).forEach((shard, shardIds) ->
+                shardRouter.run(shard, () -> accountRepository.findAllById(shardIds)
+                        .forEach(account -> accounts.put(account.getId(), account))));
+        List<AccountLookupResult> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Account account = accounts.get(id);
+            results.add(new AccountLookupResult(id, account != null, account));
+        }
+        return results;
+    }
+    
+    public List<AccountBalance> getBalancesByIds(List<Long> ids) {
+        checkBatchSize(ids);
+        Map<Long, AccountRepository.BalanceView> balances = new HashMap<>();
+        shardRouter.groupByShard(new HashSet<>(ids), id -> id).forEach((shard, shardIds) ->
+                shardRouter.run(shard, () -> accountRepository.findBalancesByIdIn(shardIds)
+                        .forEach(view -> balances.put(view.getId(), view))));
+        List<AccountBalance> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            AccountRepository.BalanceView view = balances.get(id);
+            results.add(view != null
+                    ? new AccountBalance(id, true, view.getBalance(), view.getCurrency())
+                    : new AccountBalance(id, false, null, null));
+        }
+        return results;
+    }
+    
+    private void checkBatchSize(List<Long> ids) {
+        if (ids.size() > maxBatchIds) {
+            throw new RuntimeException("At most " + maxBatchIds + " ids per request");
+        }
+        // contains(null) throws on immutable lists such as List.of
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new RuntimeException("Account ids must not be null");
+        }
     }
     
     public Account createAccount(Account account) {
-        return accountRepository.save(account);
+        int shard = shardRouter.placementShard(account.getAccountNumber());
+        return shardRouter.on(shard, () -> transactionTemplate.execute(status -> {
+            Account createdAccount = accountRepository.save(account);
+            ledgerService.record(createdAccount.getId(), createdAccount.getBalance(), "OPENING");
+            accountEventPublisher.publish(createdAccount, AccountChangedEvent.ChangeType.CREATED);
+            return createdAccount;
+        }));
     }
     
     public Account updateAccount(Long id, Account account) {
+        Account updatedAccount = shardRouter.on(shardRouter.shardOf(id), () ->
+                transactionTemplate.execute(status -> doUpdateAccount(id, account)));
+        if (journaledBalanceService.isEnabled()) {
+            // Journaled after the commit so no connection is held while the journal syncs
+            journaledBalanceService.refresh(updatedAccount);
+            journaledBalanceService.adjust(id, account.getBalance(), "ADJUSTMENT");
+        }
+        return updatedAccount;
+    }
+    
+    private Account doUpdateAccount(Long id, Account account) {
         Account existingAccount = accountRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Account not found"));
+        Money previousBalance = existingAccount.getBalance();
         
         existingAccount.setAccountNumber(account.getAccountNumber());
         existingAccount.setAccountType(account.getAccountType());
-        existingAccount.setBalance(account.getBalance());
         existingAccount.setUserId(account.getUserId());
+        if (journaledBalanceService.isEnabled()) {
+            // The journal owns balance writes; the caller journals the adjustment
+            Account updatedAccount = accountRepository.save(existingAccount);
+            accountEventPublisher.publish(updatedAccount, AccountChangedEvent.ChangeType.UPDATED);
+            return updatedAccount;
+        }
+        existingAccount.setBalance(account.getBalance());
         
-        return accountRepository.save(existingAccount);
+        Account updatedAccount = accountRepository.save(existingAccount);
+        ledgerService.record(id, updatedAccount.getBalance().minus(previousBalance), "ADJUSTMENT");
+        accountEventPublisher.publish(updatedAccount, AccountChangedEvent.ChangeType.UPDATED);
+        return updatedAccount;
     }
     
-    public Account updateBalance(Long id, BigDecimal amount, String transactionType) {
-        Account existingAccount = accountRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Account not found"));
-        
-        BigDecimal currentBalance = existingAccount.getBalance();
-        BigDecimal newBalance;
-        
+    /**
+     * Optimistic balance update: read the account, compute the new balance and
+     * write it with a version-guarded UPDATE. When another writer changed the
+     * row in between, the update matches no row and the whole read-compute-write
+     * is retried with exponential backoff, so the balance check always runs
+     * against the balance that is actually written over. Hot accounts handled
+     * by the {@link BalanceSequencer} are queued to their lane instead, and
+     * with the balance journal enabled every update goes through it.
+     */
+    public Account updateBalance(Long id, Money amount, String transactionType) {
+        if (journaledBalanceService.isEnabled()) {
+            return journaledBalanceService.updateBalance(id, amount, transactionType);
+        }
+        if (balanceSequencer.handles(id)) {
+            return updateBalanceSequenced(id, amount, transactionType);
+        }
+        return shardRouter.on(shardRouter.shardOf(id), () -> updateBalanceOptimistic(id, amount, transactionType));
+    }
+    
+    private Account updateBalanceOptimistic(Long id, Money amount, String transactionType) {
+        for (int attempt = 1; ; attempt++) {
+            Account existingAccount = accountRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Account not found"));
+            
+            Money newBalance = computeBalance(existingAccount.getBalance(), amount, transactionType);
+            LocalDateTime now = LocalDateTime.now();
+            Boolean applied = transactionTemplate.execute(status -> {
+                if (accountRepository.updateBalanceIfVersion(id, existingAccount.getVersion(), newBalance, now) != 1) {
+                    return false;
+                }
+                ledgerService.record(id, newBalance.minus(existingAccount.getBalance()), null);
+                return true;
+            });
+            if (Boolean.TRUE.equals(applied)) {
+                existingAccount.setBalance(newBalance);
+                existingAccount.setVersion(existingAccount.getVersion() + 1);
+                existingAccount.setUpdatedAt(now);
+                accountEventPublisher.publish(existingAccount, AccountChangedEvent.ChangeType.UPDATED);
+                return existingAccount;
+            }
+            
+            conflictCounter.increment();
+            if (attempt >= maxAttempts) {
+                exhaustedCounter.increment();
+                log.warn("Giving up balance update on account {} after {} conflicting attempts", id, attempt);
+                throw new ConcurrentUpdateException("Account was updated concurrently, please retry");
+            }
+            retryCounter.increment();
+            backoff(attempt);
+        }
+    }
+    
+    private Account updateBalanceSequenced(Long id, Money amount, String transactionType) {
+        Money delta;
         if ("DEPOSIT".equalsIgnoreCase(transactionType)) {
-            newBalance = currentBalance.add(amount);
+            delta = amount;
         } else if ("WITHDRAWAL".equalsIgnoreCase(transactionType)) {
-            newBalance = currentBalance.subtract(amount);
-            if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
-                throw new RuntimeException("Insufficient balance");
-            }
+            delta = amount.negate();
         } else {
             throw new RuntimeException("Invalid transaction type");
         }
+        try {
+            return balanceSequencer.submit(id, delta).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+    
+    private Money computeBalance(Money currentBalance, Money amount, String transactionType) {
+        if ("DEPOSIT".equalsIgnoreCase(transactionType)) {
+            return currentBalance.plus(amount);
+        } else if ("WITHDRAWAL".equalsIgnoreCase(transactionType)) {
+            Money newBalance = currentBalance.minus(amount);
+            if (newBalance.isNegative()) {
+                throw new RuntimeException("Insufficient balance");
+            }
+            return newBalance;
+        }
+        throw new RuntimeException("Invalid transaction type");
+    }
+    
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        // Full jitter keeps retrying writers from colliding again in lockstep
+        long sleepMs = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentUpdateException("Interrupted while retrying balance update");
+        }
+    }
+    
+    /**
+     * Debit one account and credit another in a single local transaction.
+     * Both rows are locked in ascending id order so that concurrent transfers
+     * between the same pair of accounts cannot deadlock. Accounts on different
+     * shards go through {@link CrossShardTransferService} instead.
+     */
+    public TransferResponse transfer(Long fromAccountId, Long toAccountId, Money amount, String reference) {
+        if (fromAccountId == null || toAccountId == null) {
+            throw new RuntimeException("Both accounts are required for a transfer");
+        }
+        if (fromAccountId.equals(toAccountId)) {
+            throw new RuntimeException("Cannot transfer to the same account");
+        }
+        if (amount == null || !amount.isPositive()) {
+            throw new RuntimeException("Transfer amount must be positive");
+        }
+        if (journaledBalanceService.isEnabled()) {
+            return journaledBalanceService.transfer(fromAccountId, toAccountId, amount, reference);
+        }
+        int shard = shardRouter.shardOf(fromAccountId);
+        if (shard != shardRouter.shardOf(toAccountId)) {
+            return crossShardTransferService.transfer(fromAccountId, toAccountId, amount, reference);
+        }
+        return shardRouter.on(shard, () -> transactionTemplate.execute(status ->
+                transferLocal(fromAccountId, toAccountId, amount, reference)));
+    }
+    
+    private TransferResponse transferLocal(Long fromAccountId, Long toAccountId, Money amount, String reference) {
+        Long firstId = Math.min(fromAccountId, toAccountId);
+        Long secondId = Math.max(fromAccountId, toAccountId);
+        Account first = accountRepository.findByIdForUpdate(firstId)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        Account second = accountRepository.findByIdForUpdate(secondId)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        
+        Account fromAccount = first.getId().equals(fromAccountId) ? first : second;
+        Account toAccount = first.getId().equals(toAccountId) ? first : second;
+        
+        Money newFromBalance = fromAccount.getBalance().minus(amount);
+        if (newFromBalance.isNegative()) {
+            throw new RuntimeException("Insufficient balance");
+        }
+        
+        fromAccount.setBalance(newFromBalance);
+        toAccount.setBalance(toAccount.getBalance().plus(amount));
+        ledgerService.recordAll(List.of(
+                ledgerService.toEntry(fromAccountId, amount.negate(), reference),
+                ledgerService.toEntry(toAccountId, amount, reference)));
+        
+        TransferResponse response = new TransferResponse(accountRepository.save(fromAccount), accountRepository.save(toAccount));
+        accountEventPublisher.publish(response.getFromAccount(), AccountChangedEvent.ChangeType.UPDATED);
+        accountEventPublisher.publish(response.getToAccount(), AccountChangedEvent.ChangeType.UPDATED);
+        return response;
+    }
+    
+    /**
+     * Apply a batch of postings in one local transaction. Every account touched
+     * by the batch is locked once, in ascending id order, the postings are
+     * applied in request order against the in-memory balances, and each account
+     * row is written once at the end regardless of how many postings hit it.
+     * A posting that would overdraw or references a missing account is rejected
+     * on its own without affecting the rest of the batch. With sharding, the
+     * postings within each shard are applied this way, one transaction per
+     * shard, and postings between shards are applied one by one as cross-shard
+     * transfers.
+     */
+    public List<PostingResult> applyPostings(List<BalancePosting> postings) {
+        if (journaledBalanceService.isEnabled()) {
+            return journaledBalanceService.applyPostings(postings);
+        }
+        if (!shardRouter.isSharded()) {
+            return transactionTemplate.execute(status -> applyPostingsLocal(postings));
+        }
+        
+        PostingResult[] results = new PostingResult[postings.size()];
+        Map<Integer, List<Integer>> localByShard = new LinkedHashMap<>();
+        for (int i = 0; i < postings.size(); i++) {
+            BalancePosting posting = postings.get(i);
+            Long debitId = posting.getDebitAccountId();
+            Long creditId = posting.getCreditAccountId();
+            if (debitId != null && creditId != null && shardRouter.shardOf(debitId) != shardRouter.shardOf(creditId)) {
+                results[i] = applyCrossShardPosting(posting);
+            } else {
+                int shard = debitId != null ? shardRouter.shardOf(debitId) : creditId != null ? shardRouter.shardOf(creditId) : 0;
+                localByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(i);
+            }
+        }
+        localByShard.forEach((shard, indexes) -> {
+            List<BalancePosting> shardPostings = indexes.stream().map(postings::get).toList();
+            List<PostingResult> shardResults = shardRouter.on(shard, () ->
+                    transactionTemplate.execute(status -> applyPostingsLocal(shardPostings)));
+            for (int i = 0; i < indexes.size(); i++) {
+                results[indexes.get(i)] = shardResults.get(i);
+            }
+        });
+        return List.of(results);
+    }
+    
+    private PostingResult applyCrossShardPosting(BalancePosting posting) {
+        if (posting.getAmount() == null || !posting.getAmount().isPositive()) {
+            return new PostingResult(posting.getReference(), false, "Amount must be positive");
+        }
+        try {
+            crossShardTransferService.transfer(posting.getDebitAccountId(), posting.getCreditAccountId(),
+                    posting.getAmount(), posting.getReference());
+            return new PostingResult(posting.getReference(), true, null);
+        } catch (RuntimeException e) {
+            return new PostingResult(posting.getReference(), false, e.getMessage());
+        }
+    }
+    
+    private List<PostingResult> applyPostingsLocal(List<BalancePosting> postings) {
+        TreeSet<Long> accountIds = new TreeSet<>();
+        for (BalancePosting posting : postings) {
+            if (posting.getDebitAccountId() != null) {
+                accountIds.add(posting.getDebitAccountId());
+            }
+            if (posting.getCreditAccountId() != null) {
+                accountIds.add(posting.getCreditAccountId());
+            }
+        }
+        
+        Map<Long, Account> accounts = new LinkedHashMap<>();
+        for (Account account : accountRepository.findAllByIdForUpdate(accountIds)) {
+            accounts.put(account.getId(), account);
+        }
         
-        existingAccount.setBalance(newBalance);
-        return accountRepository.save(existingAccount);
+        List<PostingResult> results = new ArrayList<>(postings.size());
+        Map<Long, Account> touched = new LinkedHashMap<>();
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (BalancePosting posting : postings) {
+            String error = applyPosting(posting, accounts);
+            if (error == null) {
+                if (posting.getDebitAccountId() != null) {
+                    touched.put(posting.getDebitAccountId(), accounts.get(posting.getDebitAccountId()));
+                    entries.add(ledgerService.toEntry(posting.getDebitAccountId(), posting.getAmount().negate(),
+                            posting.getReference()));
+                }
+                if (posting.getCreditAccountId() != null) {
+                    touched.put(posting.getCreditAccountId(), accounts.get(posting.getCreditAccountId()));
+                    entries.add(ledgerService.toEntry(posting.getCreditAccountId(), posting.getAmount(),
+                            posting.getReference()));
+                }
+            }
+            results.add(new PostingResult(posting.getReference(), error == null, error));
+        }
+        
+        accountRepository.saveAll(touched.values());
+        ledgerService.recordAll(entries);
+        touched.values().forEach(account -> accountEventPublisher.publish(account, AccountChangedEvent.ChangeType.UPDATED));
+        return results;
+    }
+    
+    private String applyPosting(BalancePosting posting, Map<Long, Account> accounts) {
+        Money amount = posting.getAmount();
+        if (amount == null || !amount.isPositive()) {
+            return "Amount must be positive";
+        }
+        if (posting.getDebitAccountId() == null && posting.getCreditAccountId() == null) {
+            return "Posting has no account";
+        }
+        if (posting.getDebitAccountId() != null && posting.getDebitAccountId().equals(posting.getCreditAccountId())) {
+            return "Cannot transfer to the same account";
+        }
+        
+        Account debit = posting.getDebitAccountId() != null ? accounts.get(posting.getDebitAccountId()) : null;
+        Account credit = posting.getCreditAccountId() != null ? accounts.get(posting.getCreditAccountId()) : null;
+        if ((posting.getDebitAccountId() != null && debit == null)
+                || (posting.getCreditAccountId() != null && credit == null)) {
+            return "Account not found";
+        }
+        
+        if (debit != null) {
+            Money newBalance = debit.getBalance().minus(amount);
+            if (newBalance.isNegative()) {
+                return "Insufficient balance";
+            }
+            debit.setBalance(newBalance);
+        }
+        if (credit != null) {
+            credit.setBalance(credit.getBalance().plus(amount));
+        }
+        return null;
     }
     
     public void deleteAccount(Long id) {
-        accountRepository.deleteById(id);
+        Optional<Account> account = shardRouter.on(shardRouter.shardOf(id), () -> {
+            Optional<Account> existing = accountRepository.findById(id);
+            existing.ifPresent(accountRepository::delete);
+            return existing;
+        });
+        journaledBalanceService.evict(id);
+        accountEventPublisher.publishDeleted(id, account.map(Account::getUserId).orElse(null));
     }
 }
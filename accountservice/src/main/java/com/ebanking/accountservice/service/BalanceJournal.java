@@ -0,0 +1,235 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.dto.BalancePosting;
+import com.ebanking.accountservice.model.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-size memory-mapped ring of balance postings. The file starts with a
+ * header holding the lap the journal was created in; records follow, each
+ * framed as {@code length, crc32, body}. Positions are logical and only ever
+ * grow: {@code lap * dataSize + offset}. The body carries the lap it was
+ * written in, so records left over from an earlier pass over the same bytes
+ * are never read back. A record that does not fit before the end of the file
+ * is preceded by a wrap marker and written at the start of the next lap.
+ * Space is reclaimed as soon as the records in it have been flushed, so the
+ * journal only fills up when the flusher falls a whole file behind.
+ * Not thread-safe: callers serialize appends.
+ */
+class BalanceJournal {
+    
+    static final int HEADER_SIZE = 16;
+    
+    private static final int MAX_REFERENCE_BYTES = 255;
+    private static final int WRAP = -1;
+    
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int dataSize;
+    private final long startLap;
+    private long writePosition;
+    
+    BalanceJournal(Path path, int sizeBytes) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes);
+        this.dataSize = sizeBytes - HEADER_SIZE;
+        long lap = buffer.getLong(0);
+        if (lap == 0) {
+            lap = 1;
+            buffer.putLong(0, lap);
+            buffer.force(0, HEADER_SIZE);
+        }
+        this.startLap = lap;
+        this.writePosition = startPosition();
+    }
+    
+    /** Position of the first record ever written to this file. */
+    long startPosition() {
+        return startLap * dataSize;
+    }
+    
+    long getWritePosition() {
+        return writePosition;
+    }
+    
+    long lapOf(long position) {
+        return position / dataSize;
+    }
+    
+    /** File offset of a position, as stored in the checkpoint. */
+    int fileOffsetOf(long position) {
+        return HEADER_SIZE + (int) (position % dataSize);
+    }
+    
+    long toPosition(long lap, int fileOffset) {
+        return lap * dataSize + (fileOffset - HEADER_SIZE);
+    }
+    
+    /**
+     * Reads the valid records from {@code from} onwards and leaves the write
+     * position after the last one. Used once on startup.
+     */
+    List<JournalRecord> recover(long from) {
+        writePosition = from;
+        List<JournalRecord> records = read(from, Long.MAX_VALUE, Integer.MAX_VALUE);
+        if (!records.isEmpty()) {
+            writePosition = records.get(records.size() - 1).getEnd();
+        }
+        return records;
+    }
+    
+    List<JournalRecord> read(long from, long to, int maxRecords) {
+        List<JournalRecord> records = new ArrayList<>();
+        ByteBuffer view = buffer.duplicate();
+        long position = from;
+        while (position < to && records.size() < maxRecords) {
+            long lap = lapOf(position);
+            int offset = fileOffsetOf(position);
+            if (offset + 8 > buffer.capacity()
+                    || (view.getInt(offset) == WRAP && view.getInt(offset + 4) == (int) lap)) {
+                position = (lap + 1) * dataSize;
+                continue;
+            }
+            int length = view.getInt(offset);
+            if (length <= 0 || offset + 8 + length > buffer.capacity()) {
+                break;
+            }
+            byte[] body = new byte[length];
+            view.get(offset + 8, body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != view.getInt(offset + 4)) {
+                break;
+            }
+            ByteBuffer in = ByteBuffer.wrap(body);
+            if (in.getLong() != lap) {
+                break;
+            }
+            position += 8 + length;
+            records.add(decode(in, position));
+        }
+        return records;
+    }
+    
+    /**
+     * Appends a record and returns its end position. Space up to
+     * {@code flushedPosition} may be overwritten. The record is in the page
+     * cache, which survives a process crash; call {@link #force} to make it
+     * survive a machine crash as well.
+     */
+    long append(BalancePosting posting, boolean adjustment, long flushedPosition) {
+        int length = bodyLength(posting);
+        long position = writePosition;
+        int offset = fileOffsetOf(position);
+        boolean wrap = offset + 8 + length > buffer.capacity();
+        if (wrap) {
+            position = (lapOf(position) + 1) * dataSize;
+        }
+        if (position + 8 + length > flushedPosition + dataSize) {
+            throw new RejectedExecutionException("Balance journal is full, waiting for flush");
+        }
+        if (wrap && offset + 8 <= buffer.capacity()) {
+            buffer.putInt(offset + 4, (int) lapOf(writePosition));
+            buffer.putInt(offset, WRAP);
+        }
+    
+        byte[] body = encode(posting, adjustment, lapOf(position));
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        offset = fileOffsetOf(position);
+        buffer.put(offset + 8, body);
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        // Length goes last so a reader never sees a record before its body
+        buffer.putInt(offset, body.length);
+        writePosition = position + 8 + body.length;
+        return writePosition;
+    }
+    
+    /** Forces the bytes between two positions, which may span the end of the file. */
+    void force(long from, long to) {
+        if (to <= from) {
+            return;
+        }
+        if (to - from >= dataSize) {
+            buffer.force();
+            return;
+        }
+        int fromOffset = fileOffsetOf(from);
+        int lastOffset = fileOffsetOf(to - 1);
+        if (lastOffset >= fromOffset) {
+            buffer.force(fromOffset, lastOffset + 1 - fromOffset);
+        } else {
+            buffer.force(fromOffset, buffer.capacity() - fromOffset);
+            buffer.force(HEADER_SIZE, lastOffset + 1 - HEADER_SIZE);
+        }
+    }
+    
+    void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+    
+    private int bodyLength(BalancePosting posting) {
+        int referenceLength = posting.getReference() != null
+                ? Math.min(posting.getReference().getBytes(StandardCharsets.UTF_8).length, MAX_REFERENCE_BYTES)
+                : 0;
+        return 8 + 1 + 8 + 8 + 8 + 2 + referenceLength;
+    }
+    
+    private byte[] encode(BalancePosting posting, boolean adjustment, long lap) {
+        byte[] reference = posting.getReference() != null
+                ? posting.getReference().getBytes(StandardCharsets.UTF_8)
+                : new byte[0];
+        int referenceLength = Math.min(reference.length, MAX_REFERENCE_BYTES);
+        ByteBuffer out = ByteBuffer.allocate(8 + 1 + 8 + 8 + 8 + 2 + referenceLength);
+        out.putLong(lap);
+        out.put((byte) (adjustment ? 1 : 0));
+        out.putLong(posting.getDebitAccountId() != null ? posting.getDebitAccountId() : 0L);
+        out.putLong(posting.getCreditAccountId() != null ? posting.getCreditAccountId() : 0L);
+        out.putLong(posting.getAmount().getMinorUnits());
+        out.putShort((short) referenceLength);
+        out.put(reference, 0, referenceLength);
+        return out.array();
+    }
+    
+    private JournalRecord decode(ByteBuffer in, long end) {
+        boolean adjustment = in.get() == 1;
+        long debitAccountId = in.getLong();
+        long creditAccountId = in.getLong();
+        long minorUnits = in.getLong();
+        byte[] reference = new byte[in.getShort()];
+        in.get(reference);
+    
+        BalancePosting posting = new BalancePosting();
+        posting.setDebitAccountId(debitAccountId != 0 ? debitAccountId : null);
+        posting.setCreditAccountId(creditAccountId != 0 ? creditAccountId : null);
+        posting.setAmount(Money.ofMinor(minorUnits));
+        posting.setReference(reference.length > 0 ? new String(reference, StandardCharsets.UTF_8) : null);
+        return new JournalRecord(posting, adjustment, end);
+    }
+    
+    @Data
+    @AllArgsConstructor
+    static class JournalRecord {
+        private BalancePosting posting;
+        private boolean adjustment;
+        private long end;
+    }
+}
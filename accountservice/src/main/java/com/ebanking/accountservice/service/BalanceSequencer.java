@@ -0,0 +1,199 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.dto.AccountChangedEvent;
+import com.ebanking.accountservice.model.Account;
+import com.ebanking.accountservice.model.LedgerEntry;
+import com.ebanking.accountservice.model.Money;
+import com.ebanking.accountservice.repository.AccountRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Single-writer lanes for balance updates on hot accounts. Every account id
+ * maps to one lane, and each lane has one writer thread, so updates to the
+ * same account are applied in submission order without competing for the row
+ * lock. The writer drains whatever has queued up, applies the deltas in
+ * memory, and writes each account once per batch in a single transaction
+ * (group commit). Callers' futures complete only after that commit.
+ */
+@Slf4j
+@Component
+public class BalanceSequencer {
+    
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerService ledgerService;
+    private final AccountEventPublisher accountEventPublisher;
+    private final ShardRouter shardRouter;
+    private final DistributionSummary batchSizeSummary;
+    
+    private final boolean enabled;
+    private final Set<Long> accountIds;
+    private final int maxBatch;
+    private final List<BlockingQueue<BalanceCommand>> lanes = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    
+    public BalanceSequencer(AccountRepository accountRepository,
+                            TransactionTemplate transactionTemplate,
+                            LedgerService ledgerService,
+                            AccountEventPublisher accountEventPublisher,
+                            ShardRouter shardRouter,
+                            MeterRegistry meterRegistry,
+                            @Value("${account.sequencer.enabled:false}") boolean enabled,
+                            @Value("${account.sequencer.account-ids:}") Set<Long> accountIds,
+                            @Value("${account.sequencer.lanes:8}") int laneCount,
+                            @Value("${account.sequencer.max-batch:256}") int maxBatch,
+                            @Value("${account.sequencer.queue-capacity:10000}") int queueCapacity) {
+        this.accountRepository = accountRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.ledgerService = ledgerService;
+        this.accountEventPublisher = accountEventPublisher;
+        this.shardRouter = shardRouter;
+        this.batchSizeSummary = meterRegistry.summary("account.sequencer.batch.size");
+        this.enabled = enabled;
+        this.accountIds = new HashSet<>(accountIds);
+        this.maxBatch = maxBatch;
+        
+        if (enabled) {
+            for (int i = 0; i < laneCount; i++) {
+                BlockingQueue<BalanceCommand> queue = new LinkedBlockingQueue<>(queueCapacity);
+                lanes.add(queue);
+                Thread writer = new Thread(() -> runLane(queue), "balance-sequencer-" + i);
+                writer.setDaemon(true);
+                writers.add(writer);
+                writer.start();
+            }
+            log.info("Balance sequencer started with {} lanes for {}", laneCount,
+                    this.accountIds.isEmpty() ? "all accounts" : this.accountIds);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        writers.forEach(Thread::interrupt);
+    }
+    
+    /**
+     * Whether updates to this account go through the sequencer. With no
+     * configured account ids every account does.
+     */
+    public boolean handles(Long accountId) {
+        return enabled && (accountIds.isEmpty() || accountIds.contains(accountId));
+    }
+    
+    /**
+     * Queues a signed balance delta. The future yields the account as written
+     * by the batch that included the delta, or fails with "Account not found"
+     * or "Insufficient balance" for this delta alone.
+     */
+    public CompletableFuture<Account> submit(Long accountId, Money delta) {
+        BalanceCommand command = new BalanceCommand(accountId, delta, new CompletableFuture<>());
+        BlockingQueue<BalanceCommand> lane = lanes.get(Math.floorMod(Long.hashCode(accountId), lanes.size()));
+        if (!lane.offer(command)) {
+            throw new RejectedExecutionException("Balance sequencer lane is full");
+        }
+        return command.getResult();
+    }
+    
+    private void runLane(BlockingQueue<BalanceCommand> queue) {
+        List<BalanceCommand> batch = new ArrayList<>(maxBatch);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            batchSizeSummary.record(batch.size());
+            try {
+                writeBatch(batch);
+            } catch (Exception e) {
+                log.error("Balance sequencer batch of {} failed: {}", batch.size(), e.getMessage(), e);
+                batch.forEach(command -> command.getResult().completeExceptionally(e));
+            }
+            batch.clear();
+        }
+        
+        List<BalanceCommand> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(command -> command.getResult().completeExceptionally(
+                new RejectedExecutionException("Balance sequencer is shutting down")));
+    }
+    
+    /** One transaction per shard; a failing shard only fails its own commands. */
+    private void writeBatch(List<BalanceCommand> batch) {
+        shardRouter.groupByShard(batch, BalanceCommand::getAccountId).forEach((shard, commands) -> {
+            try {
+                shardRouter.run(shard, () -> writeShardBatch(commands));
+            } catch (Exception e) {
+                log.error("Balance sequencer batch of {} on shard {} failed: {}", commands.size(), shard, e.getMessage(), e);
+                commands.forEach(command -> command.getResult().completeExceptionally(e));
+            }
+        });
+    }
+    
+    private void writeShardBatch(List<BalanceCommand> batch) {
+        Map<Long, Account> written = transactionTemplate.execute(status -> {
+            TreeSet<Long> ids = new TreeSet<>();
+            batch.forEach(command -> ids.add(command.getAccountId()));
+            Map<Long, Account> accounts = new HashMap<>();
+            for (Account account : accountRepository.findAllByIdForUpdate(ids)) {
+                accounts.put(account.getId(), account);
+            }
+            
+            Map<Long, Account> touched = new HashMap<>();
+            List<LedgerEntry> entries = new ArrayList<>();
+            for (BalanceCommand command : batch) {
+                Account account = accounts.get(command.getAccountId());
+                if (account == null) {
+                    command.getResult().completeExceptionally(new RuntimeException("Account not found"));
+                    continue;
+                }
+                Money newBalance = account.getBalance().plus(command.getDelta());
+                if (newBalance.isNegative()) {
+                    command.getResult().completeExceptionally(new RuntimeException("Insufficient balance"));
+                    continue;
+                }
+                account.setBalance(newBalance);
+                touched.put(account.getId(), account);
+                entries.add(ledgerService.toEntry(account.getId(), command.getDelta(), null));
+            }
+            accountRepository.saveAllAndFlush(touched.values());
+            ledgerService.recordAll(entries);
+            touched.values().forEach(account -> accountEventPublisher.publish(account, AccountChangedEvent.ChangeType.UPDATED));
+            return accounts;
+        });
+        
+        for (BalanceCommand command : batch) {
+            command.getResult().complete(written.get(command.getAccountId()));
+        }
+    }
+    
+    @Data
+    @AllArgsConstructor
+    private static class BalanceCommand {
+        private Long accountId;
+        private Money delta;
+        private CompletableFuture<Account> result;
+    }
+}
@@ -0,0 +1,183 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.dto.AccountChangedEvent;
+import com.ebanking.accountservice.dto.TransferResponse;
+import com.ebanking.accountservice.model.Account;
+import com.ebanking.accountservice.model.Money;
+import com.ebanking.accountservice.model.ShardTransfer;
+import com.ebanking.accountservice.repository.AccountRepository;
+import com.ebanking.accountservice.repository.ShardTransferRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Transfers between accounts on different shards, which cannot share a
+ * transaction. The debit and the transfer record commit together on the
+ * source shard; from then on the transfer is committed and only moves
+ * forward. The credit and its own transfer record then commit on the
+ * destination shard, and the source record is marked COMPLETED. A transfer
+ * left PENDING by a crash or an unreachable shard is finished by the
+ * recovery job; if the destination account no longer exists the debit is
+ * reversed instead.
+ */
+@Slf4j
+@Service
+public class CrossShardTransferService {
+    
+    private final ShardRouter shardRouter;
+    private final AccountRepository accountRepository;
+    private final ShardTransferRepository shardTransferRepository;
+    private final LedgerService ledgerService;
+    private final AccountEventPublisher accountEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Value("${account.shards.transfer-recovery-age-seconds:30}")
+    private long recoveryAgeSeconds;
+    
+    public CrossShardTransferService(ShardRouter shardRouter,
+                                     AccountRepository accountRepository,
+                                     ShardTransferRepository shardTransferRepository,
+                                     LedgerService ledgerService,
+                                     AccountEventPublisher accountEventPublisher,
+                                     TransactionTemplate transactionTemplate) {
+        this.shardRouter = shardRouter;
+        this.accountRepository = accountRepository;
+        this.shardTransferRepository = shardTransferRepository;
+        this.ledgerService = ledgerService;
+        this.accountEventPublisher = accountEventPublisher;
+        this.transactionTemplate = transactionTemplate;
+    }
+    
+    /**
+     * Debits, then credits. When the credit cannot be applied right away the
+     * transfer still completes later, and the response carries no destination
+     * account.
+     */
+    public TransferResponse transfer(Long fromAccountId, Long toAccountId, Money amount, String reference) {
+        int fromShard = shardRouter.shardOf(fromAccountId);
+        int toShard = shardRouter.shardOf(toAccountId);
+        if (!shardRouter.on(toShard, () -> accountRepository.existsById(toAccountId))) {
+            throw new RuntimeException("Account not found");
+        }
+    
+        ShardTransfer transfer = new ShardTransfer(null, reference != null ? reference : UUID.randomUUID().toString(),
+                fromAccountId, toAccountId, amount, ShardTransfer.TransferStatus.PENDING, null, null);
+        Account fromAccount = shardRouter.on(fromShard, () -> transactionTemplate.execute(status -> debit(transfer)));
+    
+        try {
+            Account toAccount = shardRouter.on(toShard, () -> transactionTemplate.execute(status -> credit(transfer)));
+            markCompleted(transfer);
+            return new TransferResponse(fromAccount, toAccount);
+        } catch (RuntimeException e) {
+            if ("Account not found".equals(e.getMessage())) {
+                compensate(transfer);
+                throw e;
+            }
+            log.warn("Credit of cross-shard transfer {} deferred to recovery: {}", transfer.getReference(), e.getMessage());
+            return new TransferResponse(fromAccount, null);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${account.shards.transfer-recovery-interval-ms:30000}")
+    public void recoverPending() {
+        if (!shardRouter.isSharded()) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(recoveryAgeSeconds);
+        shardRouter.onEach(shard -> {
+            for (ShardTransfer transfer : shardTransferRepository.findTop100ByStatusAndCreatedAtBeforeOrderByCreatedAt(
+                    ShardTransfer.TransferStatus.PENDING, cutoff)) {
+                try {
+                    resume(transfer);
+                } catch (Exception e) {
+                    log.error("Recovery of cross-shard transfer {} failed, will retry: {}",
+                            transfer.getReference(), e.getMessage());
+                }
+            }
+            return null;
+        });
+    }
+    
+    private void resume(ShardTransfer transfer) {
+        try {
+            shardRouter.run(shardRouter.shardOf(transfer.getToAccountId()),
+                    () -> transactionTemplate.executeWithoutResult(status -> credit(transfer)));
+        } catch (RuntimeException e) {
+            if ("Account not found".equals(e.getMessage())) {
+                compensate(transfer);
+                return;
+            }
+            throw e;
+        }
+        markCompleted(transfer);
+        log.info("Recovered cross-shard transfer {}", transfer.getReference());
+    }
+    
+    private Account debit(ShardTransfer transfer) {
+        Account account = accountRepository.findByIdForUpdate(transfer.getFromAccountId())
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        Money newBalance = account.getBalance().minus(transfer.getAmount());
+        if (newBalance.isNegative()) {
+            throw new RuntimeException("Insufficient balance");
+        }
+        account.setBalance(newBalance);
+        Account saved = accountRepository.save(account);
+        ledgerService.record(saved.getId(), transfer.getAmount().negate(), transfer.getReference());
+        shardTransferRepository.save(transfer);
+        accountEventPublisher.publish(saved, AccountChangedEvent.ChangeType.UPDATED);
+        return saved;
+    }
+    
+    /** Applies the credit unless this shard already recorded the transfer. */
+    private Account credit(ShardTransfer transfer) {
+        Account account = accountRepository.findByIdForUpdate(transfer.getToAccountId())
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        if (shardTransferRepository.existsByReference(transfer.getReference())) {
+            return account;
+        }
+        account.setBalance(account.getBalance().plus(transfer.getAmount()));
+        Account saved = accountRepository.save(account);
+        ledgerService.record(saved.getId(), transfer.getAmount(), transfer.getReference());
+        shardTransferRepository.save(new ShardTransfer(null, transfer.getReference(), transfer.getFromAccountId(),
+                transfer.getToAccountId(), transfer.getAmount(), ShardTransfer.TransferStatus.COMPLETED, null, null));
+        accountEventPublisher.publish(saved, AccountChangedEvent.ChangeType.UPDATED);
+        return saved;
+    }
+    
+    private void markCompleted(ShardTransfer transfer) {
+        shardRouter.run(shardRouter.shardOf(transfer.getFromAccountId()), () -> {
+            transfer.setStatus(ShardTransfer.TransferStatus.COMPLETED);
+            shardTransferRepository.save(transfer);
+        });
+    }
+    
+    /** Credits the amount back to the source account and closes the transfer. */
+    private void compensate(ShardTransfer transfer) {
+        shardRouter.run(shardRouter.shardOf(transfer.getFromAccountId()),
+                () -> transactionTemplate.executeWithoutResult(status -> {
+                    Account account = accountRepository.findByIdForUpdate(transfer.getFromAccountId())
+                            .orElseThrow(() -> new RuntimeException("Account not found"));
+                    // Checked under the account lock so a transfer is never reversed twice
+                    boolean pending = shardTransferRepository.findById(transfer.getId())
+                            .map(current -> current.getStatus() == ShardTransfer.TransferStatus.PENDING)
+                            .orElse(false);
+                    if (!pending) {
+                        return;
+                    }
+                    account.setBalance(account.getBalance().plus(transfer.getAmount()));
+                    Account saved = accountRepository.save(account);
+                    ledgerService.record(saved.getId(), transfer.getAmount(), "REVERSAL-" + transfer.getReference());
+                    transfer.setStatus(ShardTransfer.TransferStatus.COMPENSATED);
+                    shardTransferRepository.save(transfer);
+                    accountEventPublisher.publish(saved, AccountChangedEvent.ChangeType.UPDATED);
+                }));
+        log.warn("Reversed cross-shard transfer {}: destination account {} not found",
+                transfer.getReference(), transfer.getToAccountId());
+    }
+}
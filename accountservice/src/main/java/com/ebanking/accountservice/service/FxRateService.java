@@ -0,0 +1,117 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.model.FxRate;
+import com.ebanking.accountservice.repository.FxRateRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory FX rate table. Readers take the current table without locking;
+ * a refresh builds a complete new table and swaps it in atomically, so a
+ * reader never sees a mix of old and new rates. Rates come from the
+ * {@code fx_rates} table, or from a properties file of {@code CUR=rate}
+ * lines when {@code account.fx.rates-file} is set.
+ */
+@Slf4j
+@Service
+public class FxRateService {
+    
+    private final FxRateRepository fxRateRepository;
+    private final String baseCurrency;
+    private final String ratesFile;
+    private final AtomicReference<FxTable> table;
+    
+    public FxRateService(FxRateRepository fxRateRepository,
+                         @Value("${account.fx.base-currency:USD}") String baseCurrency,
+                         @Value("${account.fx.rates-file:}") String ratesFile) {
+        this.fxRateRepository = fxRateRepository;
+        this.baseCurrency = baseCurrency;
+        this.ratesFile = ratesFile;
+        this.table = new AtomicReference<>(new FxTable(baseCurrency, Map.of(baseCurrency, BigDecimal.ONE), null));
+    }
+    
+    public FxTable current() {
+        return table.get();
+    }
+    
+    public String getBaseCurrency() {
+        return baseCurrency;
+    }
+    
+    @Scheduled(fixedDelayString = "${account.fx.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            Map<String, BigDecimal> rates = ratesFile.isBlank() ? loadFromTable() : loadFromFile();
+            rates.put(baseCurrency, BigDecimal.ONE);
+            table.set(new FxTable(baseCurrency, Map.copyOf(rates), LocalDateTime.now()));
+            log.debug("Loaded {} FX rates", rates.size());
+        } catch (Exception e) {
+            log.error("FX rate refresh failed, keeping previous rates: {}", e.getMessage());
+        }
+    }
+    
+    private Map<String, BigDecimal> loadFromTable() {
+        Map<String, BigDecimal> rates = new HashMap<>();
+        for (FxRate rate : fxRateRepository.findAll()) {
+            rates.put(rate.getCurrency().toUpperCase(), rate.getRate());
+        }
+        return rates;
+    }
+    
+    private Map<String, BigDecimal> loadFromFile() throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(Path.of(ratesFile))) {
+            properties.load(reader);
+        }
+        Map<String, BigDecimal> rates = new HashMap<>();
+        for (String currency : properties.stringPropertyNames()) {
+            rates.put(currency.trim().toUpperCase(), new BigDecimal(properties.getProperty(currency).trim()));
+        }
+        return rates;
+    }
+    
+    /**
+     * Immutable snapshot of the rates. Each rate is the value of one unit of
+     * the currency in the base currency.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class FxTable {
+        private final String baseCurrency;
+        private final Map<String, BigDecimal> rates;
+        private final LocalDateTime loadedAt;
+        
+        /** Converts via the base currency; an amount without a currency is taken to be in it. */
+        public BigDecimal convert(BigDecimal amount, String from, String to) {
+            String source = from != null ? from.toUpperCase() : baseCurrency;
+            if (source.equals(to)) {
+                return amount;
+            }
+            return amount.multiply(rateOf(source)).divide(rateOf(to), MathContext.DECIMAL64);
+        }
+        
+        private BigDecimal rateOf(String currency) {
+            BigDecimal rate = rates.get(currency);
+            if (rate == null) {
+                throw new RuntimeException("No FX rate for " + currency);
+            }
+            return rate;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.dto.AccountChangedEvent;
+import com.ebanking.accountservice.model.InterestAccrualRun;
+import com.ebanking.accountservice.model.LedgerEntry;
+import com.ebanking.accountservice.model.Money;
+import com.ebanking.accountservice.repository.AccountRepository;
+import com.ebanking.accountservice.repository.InterestAccrualRunRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-of-day interest accrual for SAVINGS accounts. A coordinator thread scans
+ * the accounts in id order, one chunk at a time, and hands each chunk to a
+ * bounded worker pool. A worker computes the chunk's interest and writes it in
+ * one transaction: a JDBC batch of relative balance updates plus the matching
+ * ledger entries. The run's checkpoint only advances past chunks that, with
+ * every chunk before them, have committed, so an interrupted run resumes
+ * without gaps. Each account also records the date it is accrued through and
+ * the update is guarded on it, so re-processing a chunk never pays twice.
+ * Every savings account is stamped each run, including those that earn
+ * nothing that day because they are inactive or empty, so a later run only
+ * catches up on days that were genuinely missed.
+ */
+@Slf4j
+@Service
+public class InterestAccrualService {
+    
+    private static final String SCAN_SQL =
+            "SELECT id, balance, status, interest_accrued_through FROM accounts " +
+            "WHERE account_type = 'SAVINGS' AND id > ? " +
+            "AND (interest_accrued_through IS NULL OR interest_accrued_through < ?) " +
+            "ORDER BY id LIMIT ?";
+    
+    private static final String ACCRUE_SQL =
+            "UPDATE accounts SET balance = balance + ?, version = version + 1, " +
+            "interest_accrued_through = ?, updated_at = ? " +
+            "WHERE id = ? AND (interest_accrued_through IS NULL OR interest_accrued_through < ?)";
+    
+    private static final String STAMP_SQL =
+            "UPDATE accounts SET version = version + 1, interest_accrued_through = ?, updated_at = ? " +
+            "WHERE id = ? AND (interest_accrued_through IS NULL OR interest_accrued_through < ?)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountRepository accountRepository;
+    private final InterestAccrualRunRepository runRepository;
+    private final LedgerService ledgerService;
+    private final AccountEventPublisher accountEventPublisher;
+    private final JournaledBalanceService journaledBalanceService;
+    private final ShardRouter shardRouter;
+    
+    private final ExecutorService coordinator;
+    private final ThreadPoolExecutor workers;
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    private final Counter accountsCounter;
+    private final Counter chunksCounter;
+    private final Timer chunkTimer;
+    private final AtomicLong throughput = new AtomicLong();
+    
+    private final BigDecimal dailyRate;
+    private final int chunkSize;
+    
+    public InterestAccrualService(JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  AccountRepository accountRepository,
+                                  InterestAccrualRunRepository runRepository,
+                                  LedgerService ledgerService,
+                                  AccountEventPublisher accountEventPublisher,
+                                  JournaledBalanceService journaledBalanceService,
+                                  ShardRouter shardRouter,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${interest.accrual.annual-rate:0.015}") BigDecimal annualRate,
+                                  @Value("${interest.accrual.days-per-year:365}") int daysPerYear,
+                                  @Value("${interest.accrual.chunk-size:1000}") int chunkSize,
+                                  @Value("${interest.accrual.threads:4}") int threads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.accountRepository = accountRepository;
+        this.runRepository = runRepository;
+        this.ledgerService = ledgerService;
+        this.accountEventPublisher = accountEventPublisher;
+        this.journaledBalanceService = journaledBalanceService;
+        this.shardRouter = shardRouter;
+        this.dailyRate = annualRate.divide(BigDecimal.valueOf(daysPerYear), MathContext.DECIMAL64);
+        this.chunkSize = chunkSize;
+    
+        this.coordinator = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "interest-accrual"));
+        // At most one queued chunk per worker; beyond that the coordinator runs
+        // chunks itself, which also stops it from scanning ahead
+        AtomicInteger workerIndex = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads),
+                runnable -> new Thread(runnable, "interest-accrual-worker-" + workerIndex.getAndIncrement()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    
+        this.accountsCounter = meterRegistry.counter("interest.accrual.accounts");
+        this.chunksCounter = meterRegistry.counter("interest.accrual.chunks");
+        this.chunkTimer = meterRegistry.timer("interest.accrual.chunk");
+        meterRegistry.gauge("interest.accrual.throughput", throughput);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+    
+    /**
+     * Starts the previous business day's run on the coordinator thread, so the
+     * shared scheduler thread is not held for the whole run. Disabled while
+     * {@code interest.accrual.cron} is {@code -}, the default.
+     */
+    @Scheduled(cron = "${interest.accrual.cron:-}")
+    public void accrueYesterday() {
+        try {
+            start(LocalDate.now().minusDays(1));
+        } catch (Exception e) {
+            log.error("Scheduled interest accrual failed: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Starts (or resumes) the run for {@code runDate} in the background and
+     * returns its current state.
+     */
+    public InterestAccrualRun start(LocalDate runDate) {
+        InterestAccrualRun run = claim(runDate);
+        if (run.getStatus() == InterestAccrualRun.RunStatus.RUNNING) {
+            coordinator.execute(() -> {
+                try {
+                    execute(runDate);
+                } catch (Exception e) {
+                    log.error("Interest accrual for {} failed: {}", runDate, e.getMessage());
+                }
+            });
+        }
+        return run;
+    }
+    
+    public Optional<InterestAccrualRun> getRun(LocalDate runDate) {
+        return runRepository.findById(runDate);
+    }
+    
+    /** Runs the accrual for {@code runDate} on the calling thread. */
+    public InterestAccrualRun accrue(LocalDate runDate) {
+        InterestAccrualRun run = claim(runDate);
+        return run.getStatus() == InterestAccrualRun.RunStatus.RUNNING ? execute(runDate) : run;
+    }
+    
+    private InterestAccrualRun claim(LocalDate runDate) {
+        if (journaledBalanceService.isEnabled()) {
+            // Balances live in the journal's memory until flushed; writing the
+            // table directly would be overwritten by the next flush
+            throw new IllegalStateException("Interest accrual is not available while the balance journal is enabled");
+        }
+        if (running.get()) {
+            throw new IllegalStateException("An interest accrual run is already in progress");
+        }
+        return runRepository.findById(runDate).orElseGet(() -> runRepository.save(new InterestAccrualRun(
+                runDate, InterestAccrualRun.RunStatus.RUNNING, 0, 0L, 0L, BigDecimal.ZERO, LocalDateTime.now(), null)));
+    }
+    
+    private InterestAccrualRun execute(LocalDate runDate) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An interest accrual run is already in progress");
+        }
+        try {
+            // Reloaded so a queued start picks up where the previous one left off
+            InterestAccrualRun run = runRepository.findById(runDate)
+                    .orElseThrow(() -> new IllegalStateException("Interest accrual run not found"));
+            if (run.getStatus() == InterestAccrualRun.RunStatus.COMPLETED) {
+                return run;
+            }
+            long startNanos = System.nanoTime();
+            long startAccrued = run.getAccountsAccrued();
+            log.info("Interest accrual for {} starting on shard {} after account {}",
+                    run.getRunDate(), run.getShardIndex(), run.getLastAccountId());
+    
+            // Shards are scanned one after another; the checkpoint is the
+            // shard and the last account id within it
+            for (int shard = run.getShardIndex(); shard < shardRouter.getCount(); shard++) {
+                int current = shard;
+                Deque<PendingChunk> pending = new ArrayDeque<>();
+                long cursor = run.getLastAccountId();
+                while (true) {
+                    long afterId = cursor;
+                    List<AccrualRow> rows = shardRouter.on(current, () -> scan(afterId, runDate));
+                    if (rows.isEmpty()) {
+                        break;
+                    }
+                    cursor = rows.get(rows.size() - 1).getId();
+                    pending.add(new PendingChunk(cursor, CompletableFuture.supplyAsync(
+                            () -> shardRouter.on(current, () -> accrueChunk(rows, runDate)), workers)));
+                    checkpoint(run, pending, false, startNanos, startAccrued);
+                }
+                checkpoint(run, pending, true, startNanos, startAccrued);
+                if (shard + 1 < shardRouter.getCount()) {
+                    run.setShardIndex(shard + 1);
+                    run.setLastAccountId(0L);
+                    runRepository.save(run);
+                }
+            }
+    
+            run.setStatus(InterestAccrualRun.RunStatus.COMPLETED);
+            run.setFinishedAt(LocalDateTime.now());
+            runRepository.save(run);
+            log.info("Interest accrual for {} completed: {} accounts, {} total interest in {}s",
+                    run.getRunDate(), run.getAccountsAccrued(), run.getTotalInterest(),
+                    Duration.ofNanos(System.nanoTime() - startNanos).toSeconds());
+            return run;
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    private List<AccrualRow> scan(long afterId, LocalDate runDate) {
+        return jdbcTemplate.query(SCAN_SQL, (rs, rowNum) -> {
+            Date accruedThrough = rs.getDate("interest_accrued_through");
+            return new AccrualRow(rs.getLong("id"), rs.getBigDecimal("balance"),
+                    "ACTIVE".equals(rs.getString("status")),
+                    accruedThrough != null ? accruedThrough.toLocalDate() : null);
+        }, afterId, Date.valueOf(runDate), chunkSize);
+    }
+    
+    /**
+     * Folds completed chunks at the head of the queue into the run and saves
+     * the checkpoint. A failed chunk stops the run with the checkpoint before
+     * it; chunks after it may have committed, which the accrual guard absorbs
+     * on resume.
+     */
+    private void checkpoint(InterestAccrualRun run, Deque<PendingChunk> pending, boolean drain,
+                            long startNanos, long startAccrued) {
+        boolean advanced = false;
+        while (!pending.isEmpty() && (drain || pending.peek().getResult().isDone())) {
+            PendingChunk chunk = pending.poll();
+            ChunkResult result = chunk.getResult().join();
+            run.setLastAccountId(chunk.getLastId());
+            run.setAccountsAccrued(run.getAccountsAccrued() + result.getAccrued());
+            run.setTotalInterest(run.getTotalInterest().add(result.getInterest()));
+            advanced = true;
+        }
+        if (advanced) {
+            runRepository.save(run);
+            long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            throughput.set((run.getAccountsAccrued() - startAccrued) * 1000 / elapsedMillis);
+        }
+    }
+    
+    private ChunkResult accrueChunk(List<AccrualRow> rows, LocalDate runDate) {
+        return chunkTimer.record(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            String reference = "INTEREST-" + runDate;
+            List<AccrualRow> accruing = new ArrayList<>(rows.size());
+            List<Object[]> batch = new ArrayList<>(rows.size());
+            List<Object[]> stamps = new ArrayList<>();
+            for (AccrualRow row : rows) {
+                // Catches up on days missed since the last run; excluded days were stamped without interest
+                long days = row.getAccruedThrough() != null
+                        ? ChronoUnit.DAYS.between(row.getAccruedThrough(), runDate)
+                        : 1;
+                row.setInterest(row.isActive() && row.getBalance().signum() > 0
+                        ? Money.of(row.getBalance().multiply(dailyRate).multiply(BigDecimal.valueOf(days))
+                                .setScale(Money.DEFAULT_SCALE, RoundingMode.HALF_EVEN))
+                        : Money.ZERO);
+                if (row.getInterest().isPositive()) {
+                    accruing.add(row);
+                    batch.add(new Object[]{row.getInterest().toBigDecimal(), Date.valueOf(runDate),
+                            Timestamp.valueOf(now), row.getId(), Date.valueOf(runDate)});
+                } else {
+                    stamps.add(new Object[]{Date.valueOf(runDate), Timestamp.valueOf(now), row.getId(),
+                            Date.valueOf(runDate)});
+                }
+            }
+    
+            List<Long> accruedIds = new ArrayList<>(accruing.size());
+            Money total = transactionTemplate.execute(status -> {
+                if (!stamps.isEmpty()) {
+                    jdbcTemplate.batchUpdate(STAMP_SQL, stamps);
+                }
+                if (accruing.isEmpty()) {
+                    return Money.ZERO;
+                }
+                int[] counts = jdbcTemplate.batchUpdate(ACCRUE_SQL, batch);
+                List<LedgerEntry> entries = new ArrayList<>(accruing.size());
+                Money sum = Money.ZERO;
+                for (int i = 0; i < counts.length; i++) {
+                    // Zero means another run got there first
+                    if (counts[i] != 0) {
+                        AccrualRow row = accruing.get(i);
+                        accruedIds.add(row.getId());
+                        entries.add(ledgerService.toEntry(row.getId(), row.getInterest(), reference));
+                        sum = sum.plus(row.getInterest());
+                    }
+                }
+                ledgerService.recordAll(entries);
+                return sum;
+            });
+    
+            if (!accruedIds.isEmpty()) {
+                accountRepository.findAllById(accruedIds)
+                        .forEach(account -> accountEventPublisher.publish(account, AccountChangedEvent.ChangeType.UPDATED));
+            }
+            accountsCounter.increment(accruedIds.size());
+            chunksCounter.increment();
+            return new ChunkResult(accruedIds.size(), total.toBigDecimal());
+        });
+    }
+    
+    @Data
+    @AllArgsConstructor
+    private static class AccrualRow {
+        private final Long id;
+        private final BigDecimal balance;
+        private final boolean active;
+        private final LocalDate accruedThrough;
+        private Money interest;
+    
+        AccrualRow(Long id, BigDecimal balance, boolean active, LocalDate accruedThrough) {
+            this(id, balance, active, accruedThrough, null);
+        }
+    }
+    
+    @Data
+    @AllArgsConstructor
+    private static class ChunkResult {
+        private final long accrued;
+        private final BigDecimal interest;
+    }
+    
+    @Data
+    @AllArgsConstructor
+    private static class PendingChunk {
+        private final long lastId;
+        private final CompletableFuture<ChunkResult> result;
+    }
+}
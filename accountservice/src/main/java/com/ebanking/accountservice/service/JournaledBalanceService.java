@@ -0,0 +1,529 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.dto.AccountChangedEvent;
+import com.ebanking.accountservice.dto.BalancePosting;
+import com.ebanking.accountservice.dto.PostingResult;
+import com.ebanking.accountservice.dto.TransferResponse;
+import com.ebanking.accountservice.model.Account;
+import com.ebanking.accountservice.model.JournalCheckpoint;
+import com.ebanking.accountservice.model.LedgerEntry;
+import com.ebanking.accountservice.model.Money;
+import com.ebanking.accountservice.repository.AccountRepository;
+import com.ebanking.accountservice.repository.JournalCheckpointRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Optional low-latency balance path. Mutations are checked against in-memory
+ * balances, appended to a memory-mapped {@link BalanceJournal} and
+ * acknowledged once the configured fsync policy is met:
+ * <ul>
+ *   <li>{@code ALWAYS}: every append is forced to disk before returning;</li>
+ *   <li>{@code GROUP}: a sync thread forces the journal every
+ *   {@code account.wal.group-commit-micros} and callers wait for it;</li>
+ *   <li>{@code NONE}: acknowledged once in the page cache, which survives a
+ *   process crash but not a machine crash.</li>
+ * </ul>
+ * A background flusher applies journaled records to Postgres, which remains
+ * the system of record, together with their ledger entries and the journal
+ * checkpoint. On startup everything past the checkpoint is replayed before
+ * the service takes traffic. Database reads of balances lag by up to one
+ * flush interval while this mode is on.
+ * <p>
+ * Postings are serialized per account through a fixed set of lock stripes,
+ * so unrelated accounts proceed in parallel and only the journal append
+ * itself is global. Overdraft checks run against the balances cached here,
+ * which is only sound while a single instance writes balances: the journal
+ * takes a Postgres advisory lock on startup and the service refuses to start
+ * when another instance already holds it.
+ */
+@Slf4j
+@Service
+public class JournaledBalanceService {
+    
+    public enum FsyncPolicy {
+        ALWAYS, GROUP, NONE
+    }
+    
+    private final AccountRepository accountRepository;
+    private final JournalCheckpointRepository checkpointRepository;
+    private final LedgerService ledgerService;
+    private final AccountEventPublisher accountEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${account.wal.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${account.wal.path:data/account-balance.wal}")
+    private String path;
+    
+    @Value("${account.wal.size-bytes:67108864}")
+    private int sizeBytes;
+    
+    @Value("${account.wal.fsync:GROUP}")
+    private FsyncPolicy fsyncPolicy;
+    
+    @Value("${account.wal.group-commit-micros:500}")
+    private long groupCommitMicros;
+    
+    @Value("${account.wal.flush-interval-ms:50}")
+    private long flushIntervalMs;
+    
+    @Value("${account.wal.flush-batch:10000}")
+    private int flushBatch;
+    
+    private static final int LOCK_STRIPES = 1024;
+    private static final String INSTANCE_LOCK_SQL = "SELECT pg_try_advisory_lock(hashtext('accountservice-balance-journal'))";
+    
+    private final DataSource dataSource;
+    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+    private final Object[] accountLocks = new Object[LOCK_STRIPES];
+    private final Object journalLock = new Object();
+    private final Object syncMonitor = new Object();
+    private BalanceJournal journal;
+    private String journalName;
+    private Connection instanceLock;
+    private volatile long flushedPosition;
+    private long appendedSequence;
+    private long syncedSequence;
+    private long syncedPosition;
+    private ScheduledExecutorService background;
+    private Timer appendTimer;
+    
+    public JournaledBalanceService(AccountRepository accountRepository,
+                                   JournalCheckpointRepository checkpointRepository,
+                                   LedgerService ledgerService,
+                                   AccountEventPublisher accountEventPublisher,
+                                   TransactionTemplate transactionTemplate,
+                                   DataSource dataSource,
+                                   MeterRegistry meterRegistry) {
+        this.accountRepository = accountRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.ledgerService = ledgerService;
+        this.accountEventPublisher = accountEventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            accountLocks[i] = new Object();
+        }
+    }
+    
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        acquireInstanceLock();
+        Path journalPath = Path.of(path).toAbsolutePath();
+        journalName = journalPath.toString();
+        journal = new BalanceJournal(journalPath, sizeBytes);
+        
+        long from = checkpointRepository.findById(journalName)
+                .map(checkpoint -> journal.toPosition(checkpoint.getEpoch(), checkpoint.getFlushedOffset()))
+                .filter(position -> position >= journal.startPosition())
+                .orElse(journal.startPosition());
+        flushedPosition = from;
+        List<BalanceJournal.JournalRecord> pending = journal.recover(from);
+        syncedPosition = journal.getWritePosition();
+        journal.force(from, syncedPosition);
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} balance journal records past position {}", pending.size(), from);
+            while (flushedPosition < journal.getWritePosition()) {
+                flush();
+            }
+        }
+        
+        appendTimer = meterRegistry.timer("account.wal.append");
+        Gauge.builder("account.wal.unflushed.bytes", this, service -> service.unflushedBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        
+        background = Executors.newScheduledThreadPool(2);
+        background.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (fsyncPolicy == FsyncPolicy.GROUP) {
+            background.scheduleWithFixedDelay(this::sync, groupCommitMicros, groupCommitMicros, TimeUnit.MICROSECONDS);
+        }
+        log.info("Balance journal {} enabled with fsync policy {}", journalName, fsyncPolicy);
+    }
+    
+    @PreDestroy
+    public void stop() throws IOException {
+        if (background == null) {
+            return;
+        }
+        background.shutdown();
+        try {
+            background.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+        journal.close();
+        try {
+            instanceLock.close();
+        } catch (SQLException e) {
+            log.warn("Could not release the balance journal instance lock: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Holds a session-level advisory lock on a dedicated connection for as
+     * long as the journal is open, so a second instance with the journal
+     * enabled fails fast instead of checking overdrafts against stale balances.
+     */
+    private void acquireInstanceLock() {
+        try {
+            instanceLock = dataSource.getConnection();
+            try (Statement statement = instanceLock.createStatement();
+                 ResultSet result = statement.executeQuery(INSTANCE_LOCK_SQL)) {
+                if (!result.next() || !result.getBoolean(1)) {
+                    instanceLock.close();
+                    throw new IllegalStateException(
+                            "Another accountservice instance has the balance journal enabled; it supports one instance only");
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not take the balance journal instance lock", e);
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public Account updateBalance(Long id, Money amount, String transactionType) {
+        BalancePosting posting = new BalancePosting();
+        posting.setAmount(amount);
+        if ("DEPOSIT".equalsIgnoreCase(transactionType)) {
+            posting.setCreditAccountId(id);
+        } else if ("WITHDRAWAL".equalsIgnoreCase(transactionType)) {
+            posting.setDebitAccountId(id);
+        } else {
+            throw new RuntimeException("Invalid transaction type");
+        }
+        return applyOne(posting).get(id);
+    }
+    
+    public TransferResponse transfer(Long fromAccountId, Long toAccountId, Money amount, String reference) {
+        BalancePosting posting = new BalancePosting();
+        posting.setReference(reference);
+        posting.setDebitAccountId(fromAccountId);
+        posting.setCreditAccountId(toAccountId);
+        posting.setAmount(amount);
+        Map<Long, Account> result = applyOne(posting);
+        return new TransferResponse(result.get(fromAccountId), result.get(toAccountId));
+    }
+    
+    /**
+     * Sets an account's balance outright, journaled as a signed adjustment
+     * that bypasses the overdraft check.
+     */
+    public void adjust(Long id, Money newBalance, String reference) {
+        Account account = load(id);
+        long sequence = withAccounts(id, null, () -> {
+            BalancePosting posting = new BalancePosting();
+            posting.setReference(reference);
+            posting.setCreditAccountId(id);
+            posting.setAmount(newBalance.minus(account.getBalance()));
+            if (posting.getAmount().isZero()) {
+                return -1L;
+            }
+            long appended = append(posting, true);
+            applyInMemory(posting);
+            return appended;
+        });
+        awaitSequence(sequence);
+    }
+    
+    public List<PostingResult> applyPostings(List<BalancePosting> postings) {
+        for (BalancePosting posting : postings) {
+            loadIfPresent(posting.getDebitAccountId());
+            loadIfPresent(posting.getCreditAccountId());
+        }
+        List<PostingResult> results = new ArrayList<>(postings.size());
+        long sequence = -1;
+        for (BalancePosting posting : postings) {
+            long appended = withAccounts(posting.getDebitAccountId(), posting.getCreditAccountId(), () -> {
+                String error = validate(posting);
+                if (error != null) {
+                    results.add(new PostingResult(posting.getReference(), false, error));
+                    return -1L;
+                }
+                long journaled = append(posting, false);
+                applyInMemory(posting);
+                results.add(new PostingResult(posting.getReference(), true, null));
+                return journaled;
+            });
+            sequence = Math.max(sequence, appended);
+        }
+        awaitSequence(sequence);
+        return results;
+    }
+    
+    /**
+     * Refreshes the cached non-balance fields after an account edit.
+     */
+    public void refresh(Account saved) {
+        withAccounts(saved.getId(), null, () -> {
+            Account cached = accounts.get(saved.getId());
+            if (cached != null) {
+                Money balance = cached.getBalance();
+                BeanUtils.copyProperties(saved, cached);
+                cached.setBalance(balance);
+            }
+            return null;
+        });
+    }
+    
+    public void evict(Long id) {
+        accounts.remove(id);
+    }
+    
+    private Map<Long, Account> applyOne(BalancePosting posting) {
+        loadIfPresent(posting.getDebitAccountId());
+        loadIfPresent(posting.getCreditAccountId());
+        long started = System.nanoTime();
+        Map<Long, Account> snapshot = new HashMap<>();
+        long sequence = withAccounts(posting.getDebitAccountId(), posting.getCreditAccountId(), () -> {
+            String error = validate(posting);
+            if (error != null) {
+                throw new RuntimeException(error);
+            }
+            long appended = append(posting, false);
+            applyInMemory(posting);
+            for (Long id : new Long[]{posting.getDebitAccountId(), posting.getCreditAccountId()}) {
+                if (id != null) {
+                    snapshot.put(id, copyOf(accounts.get(id)));
+                }
+            }
+            return appended;
+        });
+        awaitSequence(sequence);
+        appendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return snapshot;
+    }
+    
+    private String validate(BalancePosting posting) {
+        if (posting.getAmount() == null || !posting.getAmount().isPositive()) {
+            return "Amount must be positive";
+        }
+        if (posting.getDebitAccountId() == null && posting.getCreditAccountId() == null) {
+            return "Posting has no account";
+        }
+        if (posting.getDebitAccountId() != null && posting.getDebitAccountId().equals(posting.getCreditAccountId())) {
+            return "Cannot transfer to the same account";
+        }
+        Account debit = posting.getDebitAccountId() != null ? accounts.get(posting.getDebitAccountId()) : null;
+        if ((posting.getDebitAccountId() != null && debit == null)
+                || (posting.getCreditAccountId() != null && !accounts.containsKey(posting.getCreditAccountId()))) {
+            return "Account not found";
+        }
+        if (debit != null && debit.getBalance().isLessThan(posting.getAmount())) {
+            return "Insufficient balance";
+        }
+        return null;
+    }
+    
+    private void applyInMemory(BalancePosting posting) {
+        if (posting.getDebitAccountId() != null) {
+            Account debit = accounts.get(posting.getDebitAccountId());
+            debit.setBalance(debit.getBalance().minus(posting.getAmount()));
+        }
+        if (posting.getCreditAccountId() != null) {
+            Account credit = accounts.get(posting.getCreditAccountId());
+            credit.setBalance(credit.getBalance().plus(posting.getAmount()));
+        }
+    }
+    
+    /**
+     * Runs {@code work} holding the lock stripes of the given accounts, taken
+     * in stripe order so two postings over the same pair cannot deadlock.
+     */
+    private <T> T withAccounts(Long firstId, Long secondId, Supplier<T> work) {
+        int first = firstId != null ? Math.floorMod(firstId.hashCode(), LOCK_STRIPES) : -1;
+        int second = secondId != null ? Math.floorMod(secondId.hashCode(), LOCK_STRIPES) : -1;
+        int low = first < 0 ? second : second < 0 ? first : Math.min(first, second);
+        int high = Math.max(first, second);
+        if (low < 0) {
+            return work.get();
+        }
+        synchronized (accountLocks[low]) {
+            if (high == low) {
+                return work.get();
+            }
+            synchronized (accountLocks[high]) {
+                return work.get();
+            }
+        }
+    }
+    
+    /** Journals a posting and returns its sequence number. Callers hold the accounts' stripes. */
+    private long append(BalancePosting posting, boolean adjustment) {
+        long start;
+        long end;
+        long sequence;
+        synchronized (journalLock) {
+            start = journal.getWritePosition();
+            end = journal.append(posting, adjustment, flushedPosition);
+            sequence = ++appendedSequence;
+        }
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            journal.force(start, end);
+        }
+        return sequence;
+    }
+    
+    private long unflushedBytes() {
+        synchronized (journalLock) {
+            return journal.getWritePosition() - flushedPosition;
+        }
+    }
+    
+    private void awaitSequence(long sequence) {
+        if (sequence < 0 || fsyncPolicy != FsyncPolicy.GROUP) {
+            return;
+        }
+        synchronized (syncMonitor) {
+            while (syncedSequence < sequence) {
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for journal sync");
+                }
+            }
+        }
+    }
+    
+    private void sync() {
+        long end;
+        long sequence;
+        synchronized (journalLock) {
+            end = journal.getWritePosition();
+            sequence = appendedSequence;
+        }
+        synchronized (syncMonitor) {
+            if (sequence == syncedSequence) {
+                return;
+            }
+        }
+        journal.force(syncedPosition, end);
+        syncedPosition = end;
+        synchronized (syncMonitor) {
+            syncedSequence = sequence;
+            syncMonitor.notifyAll();
+        }
+    }
+    
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Balance journal flush failed, will retry: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Applies up to {@code flush-batch} journaled records to the database in
+     * one transaction, together with their ledger entries and the new
+     * checkpoint. The space they took in the journal can be reused as soon
+     * as the checkpoint commits.
+     */
+    private void flush() {
+        long from = flushedPosition;
+        long to;
+        synchronized (journalLock) {
+            to = journal.getWritePosition();
+        }
+        if (to == from) {
+            return;
+        }
+        List<BalanceJournal.JournalRecord> records = journal.read(from, to, flushBatch);
+        if (records.isEmpty()) {
+            throw new IllegalStateException("Balance journal has no readable record at position " + from);
+        }
+        long newPosition = records.get(records.size() - 1).getEnd();
+        
+        Map<Long, Money> deltas = new HashMap<>();
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (BalanceJournal.JournalRecord record : records) {
+            BalancePosting posting = record.getPosting();
+            if (posting.getDebitAccountId() != null) {
+                deltas.merge(posting.getDebitAccountId(), posting.getAmount().negate(), Money::plus);
+                entries.add(ledgerService.toEntry(posting.getDebitAccountId(), posting.getAmount().negate(),
+                        posting.getReference()));
+            }
+            if (posting.getCreditAccountId() != null) {
+                deltas.merge(posting.getCreditAccountId(), posting.getAmount(), Money::plus);
+                entries.add(ledgerService.toEntry(posting.getCreditAccountId(), posting.getAmount(),
+                        posting.getReference()));
+            }
+        }
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Account> locked = accountRepository.findAllByIdForUpdate(new TreeSet<>(deltas.keySet()));
+            for (Account account : locked) {
+                account.setBalance(account.getBalance().plus(deltas.get(account.getId())));
+            }
+            if (locked.size() < deltas.size()) {
+                log.warn("Balance journal references {} deleted accounts", deltas.size() - locked.size());
+            }
+            accountRepository.saveAll(locked);
+            ledgerService.recordAll(entries);
+            locked.forEach(account -> accountEventPublisher.publish(account, AccountChangedEvent.ChangeType.UPDATED));
+            checkpointRepository.save(new JournalCheckpoint(journalName, journal.lapOf(newPosition),
+                    journal.fileOffsetOf(newPosition), LocalDateTime.now()));
+        });
+        flushedPosition = newPosition;
+    }
+    
+    private void loadIfPresent(Long id) {
+        if (id != null) {
+            accounts.computeIfAbsent(id, key -> accountRepository.findById(key).orElse(null));
+        }
+    }
+    
+    private Account load(Long id) {
+        loadIfPresent(id);
+        Account account = accounts.get(id);
+        if (account == null) {
+            throw new RuntimeException("Account not found");
+        }
+        return account;
+    }
+    
+    private static Account copyOf(Account account) {
+        Account copy = new Account();
+        BeanUtils.copyProperties(account, copy);
+        return copy;
+    }
+}
@@ -0,0 +1,112 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.model.BalanceSnapshot;
+import com.ebanking.accountservice.model.LedgerEntry;
+import com.ebanking.accountservice.model.Money;
+import com.ebanking.accountservice.repository.BalanceSnapshotRepository;
+import com.ebanking.accountservice.repository.LedgerEntryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Append-only balance history. Every balance change is journaled as a ledger
+ * entry in the same transaction as the change itself; entries are never
+ * updated, so writers do not contend on them. A scheduled compaction rolls
+ * entries up into per-account snapshots, so any balance, current or as of a
+ * past instant, is the nearest earlier snapshot plus the few entries after it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LedgerService {
+    
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+    
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final ShardRouter shardRouter;
+    
+    /** Entries younger than this are left out of compaction so in-flight transactions cannot be missed. */
+    @Value("${ledger.compaction.safety-lag-seconds:60}")
+    private long safetyLagSeconds;
+    
+    public void record(Long accountId, Money delta, String reference) {
+        if (delta.isZero()) {
+            return;
+        }
+        ledgerEntryRepository.save(toEntry(accountId, delta, reference));
+    }
+    
+    public void recordAll(List<LedgerEntry> entries) {
+        ledgerEntryRepository.saveAll(entries);
+    }
+    
+    public LedgerEntry toEntry(Long accountId, Money delta, String reference) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setAccountId(accountId);
+        entry.setEntryType(delta.isNegative() ? LedgerEntry.EntryType.DEBIT : LedgerEntry.EntryType.CREDIT);
+        entry.setAmount(delta.toBigDecimal());
+        entry.setReference(reference);
+        return entry;
+    }
+    
+    public BigDecimal getBalance(Long accountId) {
+        return getBalanceAsOf(accountId, LocalDateTime.now())
+                .orElseThrow(() -> new RuntimeException("No ledger history for account"));
+    }
+    
+    /**
+     * Balance at {@code asOf}. Empty when the account's history only starts
+     * after that instant, i.e. the account predates the ledger and its opening
+     * snapshot is later.
+     */
+    public Optional<BigDecimal> getBalanceAsOf(Long accountId, LocalDateTime asOf) {
+        return shardRouter.on(shardRouter.shardOf(accountId), () -> balanceAsOf(accountId, asOf));
+    }
+    
+    private Optional<BigDecimal> balanceAsOf(Long accountId, LocalDateTime asOf) {
+        Optional<BalanceSnapshot> snapshot = balanceSnapshotRepository
+                .findFirstByAccountIdAndTakenAtLessThanEqualOrderByTakenAtDesc(accountId, asOf);
+        if (snapshot.isEmpty() && balanceSnapshotRepository.existsByAccountIdAndTakenAtGreaterThan(accountId, asOf)) {
+            return Optional.empty();
+        }
+        
+        BigDecimal base = snapshot.map(BalanceSnapshot::getBalance).orElse(BigDecimal.ZERO);
+        LocalDateTime from = snapshot.map(BalanceSnapshot::getTakenAt).orElse(BEGINNING);
+        // Entries stamped exactly at asOf are included
+        BigDecimal since = ledgerEntryRepository.sumAmountBetween(accountId, from, asOf.plusNanos(1000));
+        return Optional.of(base.add(since));
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void openSnapshots() {
+        LocalDateTime now = LocalDateTime.now();
+        int opened = shardRouter.onEach(shard -> balanceSnapshotRepository.insertOpeningSnapshots(now))
+                .stream().mapToInt(Integer::intValue).sum();
+        if (opened > 0) {
+            log.info("Opened ledger history for {} existing accounts", opened);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${ledger.compaction.interval-ms:300000}")
+    public void compact() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusSeconds(safetyLagSeconds);
+            int compacted = shardRouter.onEach(shard -> balanceSnapshotRepository.compactUntil(cutoff))
+                    .stream().mapToInt(Integer::intValue).sum();
+            log.debug("Compacted ledger entries into {} balance snapshots", compacted);
+        } catch (Exception e) {
+            log.error("Ledger compaction failed, will retry: {}", e.getMessage());
+        }
+    }
+}
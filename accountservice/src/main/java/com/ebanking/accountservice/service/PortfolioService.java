@@ -0,0 +1,113 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.dto.AccountChangedEvent;
+import com.ebanking.accountservice.dto.PortfolioSummary;
+import com.ebanking.accountservice.dto.UserAccountsChangedEvent;
+import com.ebanking.accountservice.model.Account;
+import com.ebanking.accountservice.model.Money;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-user balance totals for the dashboard. What is cached per user is the
+ * raw sum of balances by account type and currency, which only changes with
+ * the user's accounts; conversion into the requested currency happens on
+ * every read against the current FX table, so rate refreshes never need to
+ * touch the cache. Entries are dropped when one of the user's accounts
+ * changes: straight away on the instance that made the change, and on every
+ * other instance once the change reaches it through the account-events topic.
+ * They also expire after a TTL as a safety net.
+ */
+@Service
+public class PortfolioService {
+    
+    private final AccountService accountService;
+    private final FxRateService fxRateService;
+    private final Cache<Long, Holdings> cache;
+    
+    public PortfolioService(AccountService accountService,
+                            FxRateService fxRateService,
+                            MeterRegistry meterRegistry,
+                            @Value("${account.portfolio.cache.max-size:100000}") long maxSize,
+                            @Value("${account.portfolio.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.accountService = accountService;
+        this.fxRateService = fxRateService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "portfolio-holdings");
+    }
+    
+    public PortfolioSummary getSummary(Long userId, String currency) {
+        FxRateService.FxTable rates = fxRateService.current();
+        String target = currency != null ? currency.toUpperCase() : rates.getBaseCurrency();
+        int scale = Money.scaleOf(target);
+        Holdings holdings = cache.get(userId, this::load);
+        
+        BigDecimal total = BigDecimal.ZERO;
+        Map<String, BigDecimal> totalsByType = new LinkedHashMap<>();
+        for (Map.Entry<Account.AccountType, Map<String, BigDecimal>> byType : holdings.getBalances().entrySet()) {
+            BigDecimal typeTotal = BigDecimal.ZERO;
+            for (Map.Entry<String, BigDecimal> byCurrency : byType.getValue().entrySet()) {
+                typeTotal = typeTotal.add(rates.convert(byCurrency.getValue(), byCurrency.getKey(), target));
+            }
+            total = total.add(typeTotal);
+            totalsByType.put(byType.getKey().name(), typeTotal.setScale(scale, RoundingMode.HALF_EVEN));
+        }
+        return new PortfolioSummary(userId, target, total.setScale(scale, RoundingMode.HALF_EVEN),
+                totalsByType, holdings.getAccountCount(), rates.getLoadedAt());
+    }
+    
+    @EventListener
+    public void onAccountsChanged(UserAccountsChangedEvent event) {
+        cache.invalidate(event.getUserId());
+    }
+    
+    @KafkaListener(topics = AccountEventPublisher.TOPIC, containerFactory = "portfolioEventListenerContainerFactory")
+    public void onAccountEvent(ConsumerRecord<String, AccountChangedEvent> record) {
+        // Tombstones carry no owner; the DELETED event before them did
+        if (record.value() != null && record.value().getUserId() != null) {
+            cache.invalidate(record.value().getUserId());
+        }
+    }
+    
+    private Holdings load(Long userId) {
+        Map<Account.AccountType, Map<String, BigDecimal>> balances = new HashMap<>();
+        int count = 0;
+        for (Account account : accountService.getAccountsByUserId(userId)) {
+            if (account.getStatus() == Account.AccountStatus.CLOSED) {
+                continue;
+            }
+            // Accounts without a currency are kept under null and read as the base currency
+            balances.computeIfAbsent(account.getAccountType(), type -> new HashMap<>())
+                    .merge(account.getCurrency(), account.getBalance().toBigDecimal(), BigDecimal::add);
+            count++;
+        }
+        return new Holdings(balances, count);
+    }
+    
+    @Data
+    @AllArgsConstructor
+    private static class Holdings {
+        private final Map<Account.AccountType, Map<String, BigDecimal>> balances;
+        private final int accountCount;
+    }
+}
@@ -0,0 +1,143 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.model.ShardTransfer;
+import com.ebanking.accountservice.repository.ShardTransferRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Offline tool that moves every account to the shard its id routes to under
+ * the configured shard count, e.g. after adding shards or when first
+ * enabling sharding on an existing database. Start the service with
+ * {@code account.shards.rebalance=true}, no other instance running, and the
+ * new {@code account.shards.*} settings; it exits when done.
+ * <p>
+ * An account is copied to its new shard with its ledger entries and balance
+ * snapshots in one transaction, then deleted from the old shard in another.
+ * A copy already present on the new shard is taken as complete, so a run that
+ * was interrupted can simply be started again.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.shards.rebalance", havingValue = "true")
+public class ShardRebalancer implements ApplicationRunner {
+    
+    private final ShardRouter shardRouter;
+    private final ShardSchemaInitializer shardSchemaInitializer;
+    private final ShardTransferRepository shardTransferRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ConfigurableApplicationContext context;
+    
+    @Value("${account.shards.rebalance-batch:500}")
+    private int batchSize;
+    
+    public ShardRebalancer(ShardRouter shardRouter,
+                           ShardSchemaInitializer shardSchemaInitializer,
+                           ShardTransferRepository shardTransferRepository,
+                           JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           ConfigurableApplicationContext context) {
+        this.shardRouter = shardRouter;
+        this.shardSchemaInitializer = shardSchemaInitializer;
+        this.shardTransferRepository = shardTransferRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.context = context;
+    }
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        boolean pendingTransfers = shardRouter.onEach(shard ->
+                shardTransferRepository.existsByStatus(ShardTransfer.TransferStatus.PENDING)).contains(true);
+        if (pendingTransfers) {
+            throw new IllegalStateException("Cross-shard transfers are still pending; let recovery finish first");
+        }
+    
+        int count = shardRouter.getCount();
+        long moved = 0;
+        for (int shard = 0; shard < count; shard++) {
+            int source = shard;
+            long cursor = 0;
+            while (true) {
+                long afterId = cursor;
+                List<Long> misplaced = shardRouter.on(source, () -> jdbcTemplate.queryForList(
+                        "SELECT id FROM accounts WHERE id > ? AND MOD(id, ?) <> ? ORDER BY id LIMIT ?",
+                        Long.class, afterId, count, source, batchSize));
+                if (misplaced.isEmpty()) {
+                    break;
+                }
+                for (Long id : misplaced) {
+                    move(id, source, shardRouter.shardOf(id));
+                }
+                moved += misplaced.size();
+                cursor = misplaced.get(misplaced.size() - 1);
+                log.info("Moved {} accounts so far", moved);
+            }
+        }
+        shardSchemaInitializer.alignIdSequences();
+        log.info("Rebalancing across {} shards done, {} accounts moved", count, moved);
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+    
+    private void move(Long id, int source, int target) {
+        Map<String, Object> account = shardRouter.on(source, () ->
+                jdbcTemplate.queryForMap("SELECT * FROM accounts WHERE id = ?", id));
+        List<Map<String, Object>> entries = shardRouter.on(source, () -> jdbcTemplate.queryForList(
+                "SELECT account_id, entry_type, amount, reference, created_at FROM ledger_entries WHERE account_id = ?", id));
+        List<Map<String, Object>> snapshots = shardRouter.on(source, () -> jdbcTemplate.queryForList(
+                "SELECT account_id, balance, taken_at FROM balance_snapshots WHERE account_id = ?", id));
+    
+        shardRouter.run(target, () -> transactionTemplate.executeWithoutResult(status -> {
+            Integer present = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM accounts WHERE id = ?", Integer.class, id);
+            if (present != null && present > 0) {
+                return;
+            }
+            insert("accounts", account);
+            jdbcTemplate.batchUpdate("INSERT INTO ledger_entries (id, account_id, entry_type, amount, reference, created_at) " +
+                            "VALUES (nextval('ledger_entries_seq'), ?, ?, ?, ?, ?)",
+                    rows(entries, "account_id", "entry_type", "amount", "reference", "created_at"));
+            jdbcTemplate.batchUpdate("INSERT INTO balance_snapshots (id, account_id, balance, taken_at) " +
+                            "VALUES (nextval('balance_snapshots_seq'), ?, ?, ?)",
+                    rows(snapshots, "account_id", "balance", "taken_at"));
+        }));
+    
+        shardRouter.run(source, () -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM ledger_entries WHERE account_id = ?", id);
+            jdbcTemplate.update("DELETE FROM balance_snapshots WHERE account_id = ?", id);
+            jdbcTemplate.update("DELETE FROM accounts WHERE id = ?", id);
+        }));
+    }
+    
+    private void insert(String table, Map<String, Object> row) {
+        String columns = String.join(", ", row.keySet());
+        String placeholders = row.keySet().stream().map(column -> "?").collect(Collectors.joining(", "));
+        jdbcTemplate.update("INSERT INTO " + table + " (" + columns + ") VALUES (" + placeholders + ")",
+                row.values().toArray());
+    }
+    
+    private List<Object[]> rows(List<Map<String, Object>> rows, String... columns) {
+        List<Object[]> values = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            Object[] value = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                value[i] = row.get(columns[i]);
+            }
+            values.add(value);
+        }
+        return values;
+    }
+}
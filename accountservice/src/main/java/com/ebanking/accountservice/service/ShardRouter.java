@@ -0,0 +1,102 @@
+package com.ebanking.accountservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Maps accounts to shards and selects the shard the current thread talks to.
+ * An account lives on shard {@code id mod count}: every shard hands out ids
+ * from its own identity sequence with a stride of {@code count}, offset by the
+ * shard index, so ids are unique across shards and route without a lookup.
+ * New accounts are placed by a hash of the account number.
+ * <p>
+ * Work for a shard runs inside {@link #on}; the routing data source resolves
+ * the shard when a transaction first touches the database, so a transaction
+ * must stay on the shard it started on. With one shard everything runs on
+ * shard 0 and routing is a no-op.
+ */
+@Component
+public class ShardRouter {
+    
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+    
+    private final int count;
+    
+    public ShardRouter(@Value("${account.shards.count:1}") int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("account.shards.count must be at least 1");
+        }
+        this.count = count;
+    }
+    
+    /** Shard the current thread is bound to; shard 0 when unbound. */
+    public static int currentShard() {
+        Integer shard = CURRENT.get();
+        return shard != null ? shard : 0;
+    }
+    
+    public int getCount() {
+        return count;
+    }
+    
+    public boolean isSharded() {
+        return count > 1;
+    }
+    
+    public int shardOf(Long accountId) {
+        return (int) Math.floorMod(accountId, (long) count);
+    }
+    
+    public int placementShard(String accountNumber) {
+        return accountNumber != null ? Math.floorMod(accountNumber.hashCode(), count) : 0;
+    }
+    
+    public <T> T on(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+    
+    public void run(int shard, Runnable work) {
+        on(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+    
+    /** Runs {@code work} on every shard in turn and collects the results. */
+    public <T> List<T> onEach(IntFunction<T> work) {
+        List<T> results = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int current = shard;
+            results.add(on(shard, () -> work.apply(current)));
+        }
+        return results;
+    }
+    
+    /** Groups items by the shard of their account, keeping their relative order. */
+    public <T> Map<Integer, List<T>> groupByShard(Collection<T> items, Function<T, Long> accountId) {
+        Map<Integer, List<T>> groups = new LinkedHashMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(shardOf(accountId.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+}
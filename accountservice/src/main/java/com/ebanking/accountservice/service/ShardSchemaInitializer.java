@@ -0,0 +1,147 @@
+package com.ebanking.accountservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.DelayedDropRegistryNotAvailableImpl;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+
+/**
+ * Prepares every shard at startup. Hibernate only updates the schema of the
+ * shard it bootstraps against, so the same update is replayed on the other
+ * shards with the captured mapping. Each shard's id sequences are then
+ * aligned so no two shards hand out the same id.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${account.shards.count:1} > 1")
+public class ShardSchemaInitializer implements Integrator, SmartInitializingSingleton {
+    
+    /** Allocation size of the pooled id sequences, see {@code LedgerEntry} and {@code BalanceSnapshot}. */
+    static final int POOL_SIZE = 50;
+    
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Metadata metadata;
+    private volatile ServiceRegistry serviceRegistry;
+    
+    public ShardSchemaInitializer(ShardRouter shardRouter, JdbcTemplate jdbcTemplate) {
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                          SessionFactoryImplementor sessionFactory) {
+        this.metadata = metadata;
+        this.serviceRegistry = sessionFactory.getServiceRegistry();
+    }
+    
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (metadata != null) {
+            for (int shard = 1; shard < shardRouter.getCount(); shard++) {
+                // Applies the configured hibernate.hbm2ddl.auto action, e.g. update
+                shardRouter.run(shard, () -> SchemaManagementToolCoordinator.process(metadata, serviceRegistry,
+                        new HashMap<>(serviceRegistry.requireService(ConfigurationService.class).getSettings()),
+                        DelayedDropRegistryNotAvailableImpl.INSTANCE));
+            }
+        }
+        alignIdSequences();
+    }
+    
+    /**
+     * Makes every shard hand out ids no other shard can. The account identity
+     * steps by the shard count from an offset equal to the shard index, which
+     * is what {@link ShardRouter} routes by. The pooled ledger and snapshot
+     * sequences hand out whole blocks of {@value #POOL_SIZE} ids; Hibernate
+     * keeps one block for all shards, so each shard's sequence yields a
+     * disjoint set of blocks. All of them restart above the highest id found
+     * on any shard, so ids that already exist elsewhere, e.g. when sharding is
+     * first enabled on an existing database, are never handed out again.
+     */
+    public void alignIdSequences() {
+        int count = shardRouter.getCount();
+        long maxAccountId = maxAcrossShards("accounts");
+        long maxEntryId = maxAcrossShards("ledger_entries");
+        long maxSnapshotId = maxAcrossShards("balance_snapshots");
+        for (int shard = 0; shard < count; shard++) {
+            int current = shard;
+            shardRouter.run(shard, () -> {
+                alignAccountIdentity(current, count, maxAccountId);
+                alignPooledSequence("ledger_entries_seq", current, count, maxEntryId);
+                alignPooledSequence("balance_snapshots_seq", current, count, maxSnapshotId);
+            });
+        }
+    }
+    
+    private long maxAcrossShards(String table) {
+        return shardRouter.onEach(shard -> jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class)).stream()
+                .mapToLong(Long::longValue)
+                .max()
+                .orElse(0);
+    }
+    
+    private void alignAccountIdentity(int shard, int count, long maxId) {
+        String sequence = jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence('accounts', 'id')", String.class);
+        if (aligned(sequence, count, shard, maxId + 1)) {
+            return;
+        }
+        long next = Math.max(maxId, lastHandedOut(sequence)) + 1;
+        next += Math.floorMod(shard - next, (long) count);
+        jdbcTemplate.execute("ALTER TABLE accounts ALTER COLUMN id SET INCREMENT BY " + count + " RESTART WITH " + next);
+        log.info("Account ids on shard {} now start at {} with stride {}", shard, next, count);
+    }
+    
+    /** Values are the top of a block, so the block below each value must lie above {@code maxId}. */
+    private void alignPooledSequence(String sequence, int shard, int count, long maxId) {
+        long stride = (long) POOL_SIZE * count;
+        long offset = (long) POOL_SIZE * (shard + 1);
+        if (aligned(sequence, stride, offset % stride, maxId + POOL_SIZE)) {
+            return;
+        }
+        long next = Math.max(maxId, lastHandedOut(sequence)) + POOL_SIZE;
+        next += Math.floorMod(offset - next, stride);
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + stride + " RESTART WITH " + next);
+        log.info("Sequence {} on shard {} now starts at {} with stride {}", sequence, shard, next, stride);
+    }
+    
+    /**
+     * Whether the sequence already steps by {@code increment}, stays in the
+     * residue class {@code residue} and will next hand out at least {@code minNext}.
+     */
+    private boolean aligned(String sequence, long increment, long residue, long minNext) {
+        Long currentIncrement = jdbcTemplate.queryForObject(
+                "SELECT increment_by FROM pg_sequences WHERE (schemaname || '.' || sequencename)::regclass = ?::regclass",
+                Long.class, sequence);
+        if (currentIncrement == null || currentIncrement != increment) {
+            return false;
+        }
+        long next = jdbcTemplate.queryForObject(
+                "SELECT CASE WHEN is_called THEN last_value + ? ELSE last_value END FROM " + sequence,
+                Long.class, increment);
+        return Math.floorMod(next, increment) == residue && next >= minNext;
+    }
+    
+    /** The last value the sequence returned, or just below its restart value if it has not been called since. */
+    private long lastHandedOut(String sequence) {
+        return jdbcTemplate.queryForObject(
+                "SELECT CASE WHEN is_called THEN last_value ELSE last_value - 1 END FROM " + sequence, Long.class);
+    }
+}
@@ -0,0 +1,89 @@
+package com.ebanking.accountservice.benchmark;
+
+import com.ebanking.accountservice.model.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the balance arithmetic of {@code AccountService.updateBalance}
+ * (a withdrawal with an overdraft check, then a deposit) on {@code BigDecimal}
+ * against {@link Money}. JMH benchmarks are slow, so this only runs when
+ * asked for:
+ *
+ * <pre>
+ * mvn test -Dtest=MoneyBenchmark -Dbenchmark.jmh=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark.jmh", matches = "true")
+public class MoneyBenchmark {
+
+    @Test
+    void run() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MoneyBenchmark.class.getName() + ".*")
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+    @State(Scope.Thread)
+    public static class Balances {
+        BigDecimal decimalBalance;
+        BigDecimal decimalAmount;
+        Money moneyBalance;
+        Money moneyAmount;
+
+        @Setup
+        public void setUp() {
+            decimalBalance = new BigDecimal("125034.75");
+            decimalAmount = new BigDecimal("19.99");
+            moneyBalance = Money.of(decimalBalance);
+            moneyAmount = Money.of(decimalAmount);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public BigDecimal bigDecimal(Balances balances) {
+        BigDecimal afterWithdrawal = balances.decimalBalance.subtract(balances.decimalAmount);
+        if (afterWithdrawal.compareTo(BigDecimal.ZERO) < 0) {
+            throw new IllegalStateException("Insufficient balance");
+        }
+        return afterWithdrawal.add(balances.decimalAmount);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public Money money(Balances balances) {
+        Money afterWithdrawal = balances.moneyBalance.minus(balances.moneyAmount);
+        if (afterWithdrawal.isNegative()) {
+            throw new IllegalStateException("Insufficient balance");
+        }
+        return afterWithdrawal.plus(balances.moneyAmount);
+    }
+}
@@ -0,0 +1,96 @@
+package com.ebanking.accountservice.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoneyTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MoneyConverter converter = new MoneyConverter();
+    
+    @Test
+    void arithmeticIsExact() {
+        Money balance = Money.parse("100.10");
+        
+        assertEquals(Money.parse("100.30"), balance.plus(Money.parse("0.20")));
+        assertEquals(Money.parse("-0.90"), balance.minus(Money.parse("101.00")));
+        assertEquals(Money.parse("-100.10"), balance.negate());
+        assertTrue(balance.minus(Money.parse("101.00")).isNegative());
+        assertTrue(Money.ZERO.isLessThan(balance));
+        assertEquals(0, Money.parse("5").compareTo(Money.parse("5.00")));
+    }
+    
+    @Test
+    void overflowThrowsInsteadOfWrapping() {
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+        Money min = Money.ofMinor(Long.MIN_VALUE);
+        
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> min.minus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, min::negate);
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e30")));
+    }
+    
+    @Test
+    void scaleFollowsCurrencyAndRejectsExtraDecimals() {
+        assertEquals(2, Money.parse("1").getScale());
+        assertEquals(100, Money.parse("1").getMinorUnits());
+        assertEquals(0, Money.of(new BigDecimal("150"), "JPY").getScale());
+        assertEquals(3, Money.of(new BigDecimal("1.234"), "KWD").getScale());
+        assertEquals(1234, Money.of(new BigDecimal("1.234"), "KWD").getMinorUnits());
+        
+        assertThrows(ArithmeticException.class, () -> Money.parse("0.001"));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1.5"), "JPY"));
+        assertThrows(IllegalArgumentException.class,
+                () -> Money.ofMinor(100, "EUR").plus(Money.ofMinor(100, "USD")));
+        assertThrows(IllegalArgumentException.class,
+                () -> Money.ofMinor(100, "EUR").plus(Money.ofMinor(100, "JPY")));
+        assertEquals("USD", Money.ofMinor(100).plus(Money.ofMinor(5, "USD")).getCurrency());
+    }
+    
+    @Test
+    void toStringIsPlainDecimal() {
+        assertEquals("0.00", Money.ZERO.toString());
+        assertEquals("0.05", Money.ofMinor(5).toString());
+        assertEquals("-12.05", Money.ofMinor(-1205).toString());
+        assertEquals("150", Money.ofMinor(150, "JPY").toString());
+        assertEquals("-150", Money.ofMinor(-150, "JPY").toString());
+        assertEquals("0.001", Money.ofMinor(1, "KWD").toString());
+        assertEquals("-92233720368547758.08", Money.ofMinor(Long.MIN_VALUE).toString());
+        assertEquals(new BigDecimal("-12.05"), Money.ofMinor(-1205).toBigDecimal());
+    }
+    
+    @Test
+    void jsonRoundTripKeepsPlainNumbers() throws Exception {
+        Money amount = Money.parse("-1234.50");
+        
+        String json = objectMapper.writeValueAsString(amount);
+        
+        assertEquals("-1234.50", json);
+        assertEquals(amount, objectMapper.readValue(json, Money.class));
+        assertEquals(Money.parse("7.00"), objectMapper.readValue("7", Money.class));
+        assertEquals(Money.parse("7.25"), objectMapper.readValue("\"7.25\"", Money.class));
+        assertThrows(InvalidFormatException.class, () -> objectMapper.readValue("1.001", Money.class));
+    }
+    
+    @Test
+    void jpaRoundTripUsesNumericColumn() {
+        Money amount = Money.parse("99.99");
+        
+        BigDecimal column = converter.convertToDatabaseColumn(amount);
+        
+        assertEquals(new BigDecimal("99.99"), column);
+        assertEquals(amount, converter.convertToEntityAttribute(column));
+        assertEquals(amount, converter.convertToEntityAttribute(new BigDecimal("99.990000")));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+}
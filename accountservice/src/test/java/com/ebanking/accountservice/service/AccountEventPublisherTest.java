@@ -0,0 +1,84 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.dto.AccountChangedEvent;
+import com.ebanking.accountservice.dto.UserAccountsChangedEvent;
+import com.ebanking.accountservice.model.Account;
+import com.ebanking.accountservice.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AccountEventPublisherTest {
+    
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, AccountChangedEvent> kafkaTemplate = mock(KafkaTemplate.class);
+    private final ApplicationEventPublisher applicationEventPublisher = mock(ApplicationEventPublisher.class);
+    private final AccountEventPublisher publisher = new AccountEventPublisher(kafkaTemplate, applicationEventPublisher);
+    
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+    
+    @Test
+    void eventInsideATransactionIsSentAfterCommitWithTheCommittedState() {
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(new CompletableFuture<>());
+        Account account = account(1L, 7L, "10.00", 3L);
+        TransactionSynchronizationManager.initSynchronization();
+    
+        publisher.publish(account, AccountChangedEvent.ChangeType.UPDATED);
+        verifyNoInteractions(kafkaTemplate, applicationEventPublisher);
+        account.setVersion(4L);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    
+        ArgumentCaptor<AccountChangedEvent> event = ArgumentCaptor.forClass(AccountChangedEvent.class);
+        verify(kafkaTemplate).send(eq(AccountEventPublisher.TOPIC), eq("1"), event.capture());
+        assertEquals(4L, event.getValue().getVersion());
+        assertEquals("ACTIVE", event.getValue().getStatus());
+        assertEquals(Money.parse("10.00"), event.getValue().getBalance());
+        verify(applicationEventPublisher).publishEvent(any(UserAccountsChangedEvent.class));
+    }
+    
+    @Test
+    void deletionSendsADeletedEventThenATombstone() {
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(new CompletableFuture<>());
+        when(kafkaTemplate.send(anyString(), anyString(), isNull())).thenReturn(new CompletableFuture<>());
+    
+        publisher.publishDeleted(1L, 7L);
+    
+        ArgumentCaptor<AccountChangedEvent> sent = ArgumentCaptor.forClass(AccountChangedEvent.class);
+        verify(kafkaTemplate, times(2)).send(eq(AccountEventPublisher.TOPIC), eq("1"), sent.capture());
+        assertEquals(AccountChangedEvent.ChangeType.DELETED.name(), sent.getAllValues().get(0).getChangeType());
+        assertNull(sent.getAllValues().get(1));
+    }
+    
+    private static Account account(Long id, Long userId, String balance, Long version) {
+        Account account = new Account();
+        account.setId(id);
+        account.setUserId(userId);
+        account.setBalance(Money.parse(balance));
+        account.setVersion(version);
+        account.setStatus(Account.AccountStatus.ACTIVE);
+        return account;
+    }
+}
@@ -0,0 +1,187 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.dto.AccountBalance;
+import com.ebanking.accountservice.dto.AccountChangedEvent;
+import com.ebanking.accountservice.dto.AccountLookupResult;
+import com.ebanking.accountservice.dto.TransferResponse;
+import com.ebanking.accountservice.exception.ConcurrentUpdateException;
+import com.ebanking.accountservice.model.Account;
+import com.ebanking.accountservice.model.LedgerEntry;
+import com.ebanking.accountservice.model.Money;
+import com.ebanking.accountservice.repository.AccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AccountServiceTest {
+    
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final AccountEventPublisher accountEventPublisher = mock(AccountEventPublisher.class);
+    private final BalanceSequencer balanceSequencer = mock(BalanceSequencer.class);
+    private final LedgerService ledgerService = mock(LedgerService.class);
+    private final JournaledBalanceService journaledBalanceService = mock(JournaledBalanceService.class);
+    private final CrossShardTransferService crossShardTransferService = mock(CrossShardTransferService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AccountService accountService;
+    
+    @BeforeEach
+    void setUp() {
+        accountService = accountService(new ShardRouter(1));
+    }
+    
+    @Test
+    void versionConflictIsRetriedAgainstTheFreshBalance() {
+        when(accountRepository.findById(1L))
+                .thenReturn(Optional.of(account(1L, 1L, "100.00")))
+                .thenReturn(Optional.of(account(1L, 2L, "80.00")));
+        when(accountRepository.updateBalanceIfVersion(eq(1L), eq(1L), any(), any())).thenReturn(0);
+        when(accountRepository.updateBalanceIfVersion(eq(1L), eq(2L), any(), any())).thenReturn(1);
+    
+        Account updated = accountService.updateBalance(1L, Money.parse("50.00"), "WITHDRAWAL");
+    
+        assertEquals(Money.parse("30.00"), updated.getBalance());
+        assertEquals(3L, updated.getVersion());
+        verify(accountRepository).updateBalanceIfVersion(eq(1L), eq(2L), eq(Money.parse("30.00")), any());
+        verify(ledgerService, times(1)).record(1L, Money.parse("-50.00"), null);
+        verify(accountEventPublisher, times(1)).publish(updated, AccountChangedEvent.ChangeType.UPDATED);
+        assertEquals(1.0, meterRegistry.counter("account.balance.update.conflicts").count());
+    }
+    
+    @Test
+    void overdraftFoundOnRetryIsRejected() {
+        when(accountRepository.findById(1L))
+                .thenReturn(Optional.of(account(1L, 1L, "100.00")))
+                .thenReturn(Optional.of(account(1L, 2L, "20.00")));
+        when(accountRepository.updateBalanceIfVersion(eq(1L), eq(1L), any(), any())).thenReturn(0);
+    
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> accountService.updateBalance(1L, Money.parse("50.00"), "WITHDRAWAL"));
+    
+        assertEquals("Insufficient balance", e.getMessage());
+        verify(accountRepository, never()).updateBalanceIfVersion(eq(1L), eq(2L), any(), any());
+    }
+    
+    @Test
+    void givesUpAfterMaxAttempts() {
+        when(accountRepository.findById(1L)).thenReturn(Optional.of(account(1L, 1L, "100.00")));
+        when(accountRepository.updateBalanceIfVersion(eq(1L), anyLong(), any(), any())).thenReturn(0);
+    
+        assertThrows(ConcurrentUpdateException.class,
+                () -> accountService.updateBalance(1L, Money.parse("10.00"), "DEPOSIT"));
+    
+        verify(accountRepository, times(3)).updateBalanceIfVersion(eq(1L), anyLong(), any(), any());
+        assertEquals(1.0, meterRegistry.counter("account.balance.update.exhausted").count());
+        verify(accountEventPublisher, never()).publish(any(), any());
+    }
+    
+    @Test
+    void transferJournalsBalancedLegsUnderOneReference() {
+        when(accountRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(account(1L, 1L, "100.00")));
+        when(accountRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(account(2L, 1L, "5.00")));
+        when(accountRepository.save(any(Account.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(ledgerService.toEntry(any(), any(), any())).thenCallRealMethod();
+    
+        TransferResponse response = accountService.transfer(2L, 1L, Money.parse("5.00"), "TX-1");
+    
+        assertEquals(Money.parse("0.00"), response.getFromAccount().getBalance());
+        assertEquals(Money.parse("105.00"), response.getToAccount().getBalance());
+        ArgumentCaptor<List<LedgerEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(ledgerService).recordAll(entries.capture());
+        assertEquals(2, entries.getValue().size());
+        assertEquals(0, entries.getValue().stream().map(LedgerEntry::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add).signum());
+        entries.getValue().forEach(entry -> assertEquals("TX-1", entry.getReference()));
+    }
+    
+    @Test
+    void multiGetAnswersInRequestOrderWithNotFoundSlots() {
+        AccountService sharded = accountService(new ShardRouter(2));
+        ReflectionTestUtils.setField(sharded, "maxBatchIds", 10);
+        when(accountRepository.findAllById(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().filter(id -> id != 9L).map(id -> account(id, 1L, "1.00")).toList();
+        });
+    
+        List<AccountLookupResult> results = sharded.getAccountsByIds(List.of(3L, 9L, 2L, 3L));
+    
+        assertEquals(List.of(3L, 9L, 2L, 3L), results.stream().map(AccountLookupResult::getId).toList());
+        assertEquals(List.of(true, false, true, true), results.stream().map(AccountLookupResult::isFound).toList());
+        assertNull(results.get(1).getAccount());
+        // One IN-list query per shard, however many ids
+        ArgumentCaptor<Collection<Long>> queried = ArgumentCaptor.forClass(Collection.class);
+        verify(accountRepository, times(2)).findAllById(queried.capture());
+        assertEquals(Set.of(Set.of(2L), Set.of(3L, 9L)),
+                Set.of(Set.copyOf(queried.getAllValues().get(0)), Set.copyOf(queried.getAllValues().get(1))));
+    }
+    
+    @Test
+    void balanceMultiGetReturnsBalancesInRequestOrder() {
+        ReflectionTestUtils.setField(accountService, "maxBatchIds", 10);
+        AccountRepository.BalanceView view = mock(AccountRepository.BalanceView.class);
+        when(view.getId()).thenReturn(2L);
+        when(view.getBalance()).thenReturn(Money.parse("42.00"));
+        when(view.getCurrency()).thenReturn("EUR");
+        when(accountRepository.findBalancesByIdIn(anyCollection())).thenReturn(List.of(view));
+    
+        List<AccountBalance> balances = accountService.getBalancesByIds(List.of(5L, 2L));
+    
+        assertFalse(balances.get(0).isFound());
+        assertTrue(balances.get(1).isFound());
+        assertEquals(Money.parse("42.00"), balances.get(1).getBalance());
+    }
+    
+    @Test
+    void multiGetRejectsOversizedAndNullIds() {
+        ReflectionTestUtils.setField(accountService, "maxBatchIds", 2);
+    
+        assertThrows(RuntimeException.class, () -> accountService.getAccountsByIds(List.of(1L, 2L, 3L)));
+        assertThrows(RuntimeException.class, () -> accountService.getAccountsByIds(Arrays.asList(1L, null)));
+        verify(accountRepository, never()).findAllById(anyCollection());
+    }
+    
+    private AccountService accountService(ShardRouter shardRouter) {
+        AccountService service = new AccountService(accountRepository, accountEventPublisher, balanceSequencer,
+                ledgerService, journaledBalanceService, shardRouter, crossShardTransferService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "initialBackoffMs", 0L);
+        ReflectionTestUtils.setField(service, "maxBackoffMs", 0L);
+        return service;
+    }
+    
+    private static Account account(Long id, Long version, String balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setVersion(version);
+        account.setBalance(Money.parse(balance));
+        account.setUserId(7L);
+        account.setStatus(Account.AccountStatus.ACTIVE);
+        return account;
+    }
+}
@@ -0,0 +1,136 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.dto.BalancePosting;
+import com.ebanking.accountservice.model.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BalanceJournalTest {
+    
+    // Room for four records of posting("TX-n") per lap
+    private static final int SIZE = BalanceJournal.HEADER_SIZE + 200;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void recordsAreReadBackAfterReopening() throws Exception {
+        Path file = directory.resolve("balance.wal");
+        BalanceJournal journal = new BalanceJournal(file, SIZE);
+        long start = journal.startPosition();
+        journal.append(posting(1L, 2L, "12.50", "TX-1"), false, start);
+        long end = journal.append(posting(null, 3L, "0.01", null), true, start);
+        journal.close();
+    
+        BalanceJournal reopened = new BalanceJournal(file, SIZE);
+        List<BalanceJournal.JournalRecord> records = reopened.recover(reopened.startPosition());
+    
+        assertEquals(2, records.size());
+        BalancePosting transfer = records.get(0).getPosting();
+        assertEquals(1L, transfer.getDebitAccountId());
+        assertEquals(2L, transfer.getCreditAccountId());
+        assertEquals(1250L, transfer.getAmount().getMinorUnits());
+        assertEquals("TX-1", transfer.getReference());
+        assertFalse(records.get(0).isAdjustment());
+        assertNull(records.get(1).getPosting().getDebitAccountId());
+        assertNull(records.get(1).getPosting().getReference());
+        assertTrue(records.get(1).isAdjustment());
+        assertEquals(end, reopened.getWritePosition());
+        reopened.close();
+    }
+    
+    @Test
+    void recoveryStartsAtTheCheckpoint() throws Exception {
+        Path file = directory.resolve("balance.wal");
+        BalanceJournal journal = new BalanceJournal(file, SIZE);
+        long start = journal.startPosition();
+        long flushed = journal.append(posting(1L, null, "1.00", "TX-1"), false, start);
+        journal.append(posting(1L, null, "2.00", "TX-2"), false, start);
+        journal.close();
+    
+        BalanceJournal reopened = new BalanceJournal(file, SIZE);
+        long checkpoint = reopened.toPosition(reopened.lapOf(flushed), reopened.fileOffsetOf(flushed));
+        List<BalanceJournal.JournalRecord> records = reopened.recover(checkpoint);
+    
+        assertEquals(List.of("TX-2"), records.stream().map(record -> record.getPosting().getReference()).toList());
+        reopened.close();
+    }
+    
+    @Test
+    void recoveryStopsAtATornRecord() throws Exception {
+        Path file = directory.resolve("balance.wal");
+        BalanceJournal journal = new BalanceJournal(file, SIZE);
+        long start = journal.startPosition();
+        long firstEnd = journal.append(posting(1L, null, "1.00", "TX-1"), false, start);
+        journal.append(posting(1L, null, "2.00", "TX-2"), false, start);
+        int secondBody = journal.fileOffsetOf(firstEnd) + 8;
+        journal.close();
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(secondBody + 20);
+            raw.write(0x7f);
+        }
+    
+        BalanceJournal reopened = new BalanceJournal(file, SIZE);
+        List<BalanceJournal.JournalRecord> records = reopened.recover(reopened.startPosition());
+    
+        assertEquals(1, records.size());
+        assertEquals(firstEnd, reopened.getWritePosition());
+        reopened.close();
+    }
+    
+    @Test
+    void wrappedJournalReplaysInOrderAndIgnoresRecordsFromTheEarlierLap() throws Exception {
+        Path file = directory.resolve("balance.wal");
+        BalanceJournal journal = new BalanceJournal(file, SIZE);
+        long start = journal.startPosition();
+        long flushed = journal.append(posting(1L, null, "1.00", "TX-1"), false, start);
+        flushed = journal.append(posting(1L, null, "1.00", "TX-2"), false, flushed);
+        journal.append(posting(1L, null, "1.00", "TX-3"), false, flushed);
+        journal.append(posting(1L, null, "1.00", "TX-4"), false, flushed);
+        // Does not fit before the end of the file, so it overwrites TX-1 in the next lap
+        long wrapped = journal.append(posting(1L, null, "1.00", "TX-5"), false, flushed);
+        journal.close();
+    
+        BalanceJournal reopened = new BalanceJournal(file, SIZE);
+        List<BalanceJournal.JournalRecord> records = reopened.recover(flushed);
+    
+        assertEquals(List.of("TX-3", "TX-4", "TX-5"),
+                records.stream().map(record -> record.getPosting().getReference()).toList());
+        assertEquals(reopened.lapOf(start) + 1, reopened.lapOf(wrapped));
+        assertEquals(wrapped, reopened.getWritePosition());
+        reopened.close();
+    }
+    
+    @Test
+    void unflushedSpaceIsNeverOverwritten() throws Exception {
+        BalanceJournal journal = new BalanceJournal(directory.resolve("balance.wal"), SIZE);
+        long start = journal.startPosition();
+        for (int i = 1; i <= 4; i++) {
+            journal.append(posting(1L, null, "1.00", "TX-" + i), false, start);
+        }
+    
+        assertThrows(RejectedExecutionException.class,
+                () -> journal.append(posting(1L, null, "1.00", "TX-5"), false, start));
+        journal.close();
+    }
+    
+    private static BalancePosting posting(Long debitAccountId, Long creditAccountId, String amount, String reference) {
+        BalancePosting posting = new BalancePosting();
+        posting.setDebitAccountId(debitAccountId);
+        posting.setCreditAccountId(creditAccountId);
+        posting.setAmount(Money.parse(amount));
+        posting.setReference(reference);
+        return posting;
+    }
+}
@@ -0,0 +1,119 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.model.Account;
+import com.ebanking.accountservice.model.Money;
+import com.ebanking.accountservice.repository.AccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BalanceSequencerTest {
+    
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final LedgerService ledgerService = mock(LedgerService.class);
+    private final Account account = account(1L, "10.00");
+    private BalanceSequencer sequencer;
+    
+    @AfterEach
+    void tearDown() {
+        if (sequencer != null) {
+            sequencer.shutdown();
+        }
+    }
+    
+    @Test
+    void handlesOnlyConfiguredAccountsWhenEnabled() {
+        // Disabled, so no writer threads are started
+        assertFalse(sequencer(false, Set.of()).handles(1L));
+        BalanceSequencer configured = sequencer(true, Set.of(1L));
+    
+        assertTrue(configured.handles(1L));
+        assertFalse(configured.handles(2L));
+    }
+    
+    @Test
+    void deltasForOneAccountApplyInSubmissionOrder() {
+        when(accountRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(account));
+        sequencer(true, Set.of());
+    
+        CompletableFuture<Account> deposit = sequencer.submit(1L, Money.parse("30.00"));
+        CompletableFuture<Account> withdrawal = sequencer.submit(1L, Money.parse("-35.00"));
+    
+        deposit.join();
+        assertEquals(Money.parse("5.00"), withdrawal.join().getBalance());
+    }
+    
+    @Test
+    void overdraftFailsOnlyItsOwnDelta() {
+        when(accountRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(account));
+        sequencer(true, Set.of());
+    
+        CompletableFuture<Account> withdrawal = sequencer.submit(1L, Money.parse("-35.00"));
+        CompletableFuture<Account> deposit = sequencer.submit(1L, Money.parse("30.00"));
+    
+        CompletionException e = assertThrows(CompletionException.class, withdrawal::join);
+        assertEquals("Insufficient balance", e.getCause().getMessage());
+        assertEquals(Money.parse("40.00"), deposit.join().getBalance());
+    }
+    
+    @Test
+    void queuedDeltasAreWrittenTogetherInOneBatch() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        when(accountRepository.findAllByIdForUpdate(anyCollection()))
+                .thenAnswer(invocation -> {
+                    firstBatchStarted.countDown();
+                    assertTrue(releaseFirstBatch.await(5, TimeUnit.SECONDS));
+                    return List.of(account);
+                })
+                .thenReturn(List.of(account));
+        sequencer(true, Set.of());
+    
+        CompletableFuture<Account> first = sequencer.submit(1L, Money.parse("1.00"));
+        assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+        List<CompletableFuture<Account>> queued = List.of(
+                sequencer.submit(1L, Money.parse("1.00")),
+                sequencer.submit(1L, Money.parse("1.00")),
+                sequencer.submit(1L, Money.parse("1.00")));
+        releaseFirstBatch.countDown();
+    
+        first.join();
+        queued.forEach(CompletableFuture::join);
+        assertEquals(Money.parse("14.00"), account.getBalance());
+        verify(accountRepository, times(2)).findAllByIdForUpdate(anyCollection());
+        verify(accountRepository, times(2)).saveAllAndFlush(anyCollection());
+    }
+    
+    private BalanceSequencer sequencer(boolean enabled, Set<Long> accountIds) {
+        sequencer = new BalanceSequencer(accountRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                ledgerService, mock(AccountEventPublisher.class), new ShardRouter(1), new SimpleMeterRegistry(),
+                enabled, accountIds, 1, 256, 100);
+        return sequencer;
+    }
+    
+    private static Account account(Long id, String balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setBalance(Money.parse(balance));
+        return account;
+    }
+}
@@ -0,0 +1,161 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.dto.TransferResponse;
+import com.ebanking.accountservice.model.Account;
+import com.ebanking.accountservice.model.Money;
+import com.ebanking.accountservice.model.ShardTransfer;
+import com.ebanking.accountservice.repository.AccountRepository;
+import com.ebanking.accountservice.repository.ShardTransferRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CrossShardTransferServiceTest {
+    
+    private static final Long SOURCE = 2L;
+    private static final Long DESTINATION = 3L;
+    
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final ShardTransferRepository shardTransferRepository = mock(ShardTransferRepository.class);
+    private final List<Map<Long, Account>> accounts = List.of(new HashMap<>(), new HashMap<>());
+    private final List<List<ShardTransfer>> transfers = List.of(new ArrayList<>(), new ArrayList<>());
+    private final AtomicLong nextTransferId = new AtomicLong();
+    private boolean destinationShardDown;
+    private CrossShardTransferService transferService;
+    
+    /** Each repository call sees only the shard the router has bound the thread to. */
+    @BeforeEach
+    void setUp() {
+        transferService = new CrossShardTransferService(new ShardRouter(2), accountRepository,
+                shardTransferRepository, mock(LedgerService.class), mock(AccountEventPublisher.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(transferService, "recoveryAgeSeconds", 30L);
+        accounts.get(0).put(SOURCE, account(SOURCE, "100.00"));
+        accounts.get(1).put(DESTINATION, account(DESTINATION, "10.00"));
+    
+        when(accountRepository.existsById(anyLong()))
+                .thenAnswer(invocation -> shardAccounts().containsKey(invocation.<Long>getArgument(0)));
+        when(accountRepository.findByIdForUpdate(anyLong())).thenAnswer(invocation -> {
+            if (destinationShardDown && ShardRouter.currentShard() == 1) {
+                throw new RuntimeException("Connection refused");
+            }
+            return Optional.ofNullable(shardAccounts().get(invocation.<Long>getArgument(0)));
+        });
+        when(accountRepository.save(any(Account.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(shardTransferRepository.save(any(ShardTransfer.class))).thenAnswer(invocation -> {
+            ShardTransfer transfer = invocation.getArgument(0);
+            if (transfer.getId() == null) {
+                transfer.setId(nextTransferId.incrementAndGet());
+                shardTransfers().add(transfer);
+            }
+            return transfer;
+        });
+        when(shardTransferRepository.existsByReference(anyString())).thenAnswer(invocation -> shardTransfers()
+                .stream().anyMatch(transfer -> transfer.getReference().equals(invocation.getArgument(0))));
+        when(shardTransferRepository.findById(anyLong())).thenAnswer(invocation -> shardTransfers()
+                .stream().filter(transfer -> transfer.getId().equals(invocation.getArgument(0))).findFirst());
+        when(shardTransferRepository.findTop100ByStatusAndCreatedAtBeforeOrderByCreatedAt(any(), any()))
+                .thenAnswer(invocation -> shardTransfers().stream()
+                        .filter(transfer -> transfer.getStatus() == invocation.getArgument(0)).toList());
+    }
+    
+    @Test
+    void transferDebitsOnTheSourceShardAndCreditsOnTheDestinationShard() {
+        TransferResponse response = transferService.transfer(SOURCE, DESTINATION, Money.parse("25.00"), "ref-1");
+    
+        assertEquals(Money.parse("75.00"), response.getFromAccount().getBalance());
+        assertEquals(Money.parse("35.00"), response.getToAccount().getBalance());
+        assertEquals(ShardTransfer.TransferStatus.COMPLETED, transfers.get(0).get(0).getStatus());
+        assertEquals("ref-1", transfers.get(1).get(0).getReference());
+        assertEquals(ShardTransfer.TransferStatus.COMPLETED, transfers.get(1).get(0).getStatus());
+    }
+    
+    @Test
+    void unknownDestinationIsRejectedBeforeAnyDebit() {
+        assertThrows(RuntimeException.class,
+                () -> transferService.transfer(SOURCE, 5L, Money.parse("25.00"), "ref-1"));
+    
+        assertEquals(Money.parse("100.00"), accounts.get(0).get(SOURCE).getBalance());
+        assertEquals(List.of(), transfers.get(0));
+    }
+    
+    @Test
+    void unreachableDestinationIsCreditedByRecovery() {
+        destinationShardDown = true;
+    
+        TransferResponse response = transferService.transfer(SOURCE, DESTINATION, Money.parse("25.00"), "ref-1");
+    
+        assertNull(response.getToAccount());
+        assertEquals(Money.parse("75.00"), accounts.get(0).get(SOURCE).getBalance());
+        assertEquals(ShardTransfer.TransferStatus.PENDING, transfers.get(0).get(0).getStatus());
+    
+        destinationShardDown = false;
+        transferService.recoverPending();
+        transferService.recoverPending();
+    
+        assertEquals(Money.parse("35.00"), accounts.get(1).get(DESTINATION).getBalance());
+        assertEquals(ShardTransfer.TransferStatus.COMPLETED, transfers.get(0).get(0).getStatus());
+    }
+    
+    @Test
+    void recoveryDoesNotCreditTwiceWhenOnlyTheCompletionWasLost() {
+        transferService.transfer(SOURCE, DESTINATION, Money.parse("25.00"), "ref-1");
+        // Crash after the credit committed, before the source record was completed
+        transfers.get(0).get(0).setStatus(ShardTransfer.TransferStatus.PENDING);
+    
+        transferService.recoverPending();
+    
+        assertEquals(Money.parse("35.00"), accounts.get(1).get(DESTINATION).getBalance());
+        assertEquals(ShardTransfer.TransferStatus.COMPLETED, transfers.get(0).get(0).getStatus());
+        assertEquals(1, transfers.get(1).size());
+    }
+    
+    @Test
+    void vanishedDestinationIsReversedOnce() {
+        destinationShardDown = true;
+        transferService.transfer(SOURCE, DESTINATION, Money.parse("25.00"), "ref-1");
+        destinationShardDown = false;
+        accounts.get(1).remove(DESTINATION);
+    
+        transferService.recoverPending();
+        transferService.recoverPending();
+    
+        assertEquals(Money.parse("100.00"), accounts.get(0).get(SOURCE).getBalance());
+        assertEquals(ShardTransfer.TransferStatus.COMPENSATED, transfers.get(0).get(0).getStatus());
+    }
+    
+    private Map<Long, Account> shardAccounts() {
+        return accounts.get(ShardRouter.currentShard());
+    }
+    
+    private List<ShardTransfer> shardTransfers() {
+        return transfers.get(ShardRouter.currentShard());
+    }
+    
+    private static Account account(Long id, String balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setBalance(Money.parse(balance));
+        account.setUserId(7L);
+        account.setStatus(Account.AccountStatus.ACTIVE);
+        return account;
+    }
+}
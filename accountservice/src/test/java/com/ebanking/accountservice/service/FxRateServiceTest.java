@@ -0,0 +1,77 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.model.FxRate;
+import com.ebanking.accountservice.repository.FxRateRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FxRateServiceTest {
+    
+    private final FxRateRepository fxRateRepository = mock(FxRateRepository.class);
+    
+    @Test
+    void startsWithOnlyTheBaseCurrency() {
+        FxRateService.FxTable table = new FxRateService(fxRateRepository, "USD", "").current();
+    
+        assertEquals(new BigDecimal("12.50"), table.convert(new BigDecimal("12.50"), null, "USD"));
+        assertThrows(RuntimeException.class, () -> table.convert(BigDecimal.ONE, "EUR", "USD"));
+    }
+    
+    @Test
+    void refreshSwapsInANewTableFromTheDatabase() {
+        FxRateService fxRateService = new FxRateService(fxRateRepository, "USD", "");
+        FxRateService.FxTable before = fxRateService.current();
+        when(fxRateRepository.findAll()).thenReturn(List.of(
+                new FxRate("eur", new BigDecimal("1.10"), LocalDateTime.now()),
+                new FxRate("GBP", new BigDecimal("1.25"), LocalDateTime.now())));
+    
+        fxRateService.refresh();
+        FxRateService.FxTable after = fxRateService.current();
+    
+        assertFalse(before.getRates().containsKey("EUR"));
+        assertEquals(0, new BigDecimal("1.10").compareTo(after.convert(BigDecimal.ONE, "EUR", "USD")));
+        assertEquals(0, new BigDecimal("96.8").compareTo(after.convert(new BigDecimal("110"), "EUR", "GBP")));
+        assertNotNull(after.getLoadedAt());
+    }
+    
+    @Test
+    void ratesCanComeFromAFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("rates.properties");
+        Files.writeString(file, "eur = 1.10\nJPY=0.0067\n");
+        FxRateService fxRateService = new FxRateService(fxRateRepository, "USD", file.toString());
+    
+        fxRateService.refresh();
+    
+        assertEquals(0, new BigDecimal("6.70").compareTo(
+                fxRateService.current().convert(new BigDecimal("1000"), "JPY", "USD")));
+        assertEquals(0, BigDecimal.ONE.compareTo(fxRateService.current().getRates().get("USD")));
+    }
+    
+    @Test
+    void failedRefreshKeepsThePreviousRates() {
+        FxRateService fxRateService = new FxRateService(fxRateRepository, "USD", "");
+        when(fxRateRepository.findAll()).thenReturn(List.of(
+                new FxRate("EUR", new BigDecimal("1.10"), LocalDateTime.now())));
+        fxRateService.refresh();
+        FxRateService.FxTable loaded = fxRateService.current();
+        when(fxRateRepository.findAll()).thenThrow(new RuntimeException("database unavailable"));
+    
+        fxRateService.refresh();
+    
+        assertSame(loaded, fxRateService.current());
+    }
+}
@@ -0,0 +1,184 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.model.InterestAccrualRun;
+import com.ebanking.accountservice.repository.AccountRepository;
+import com.ebanking.accountservice.repository.InterestAccrualRunRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InterestAccrualServiceTest {
+    
+    private static final LocalDate RUN_DATE = LocalDate.of(2024, 6, 30);
+    
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final InterestAccrualRunRepository runRepository = mock(InterestAccrualRunRepository.class);
+    private final Map<Long, SavingsRow> accounts = new TreeMap<>();
+    private final List<Long> scannedAfter = new ArrayList<>();
+    private InterestAccrualRun storedRun;
+    private InterestAccrualService accrualService;
+    
+    @BeforeEach
+    void setUp() {
+        // A daily rate of 0.001 makes the interest on 1000.00 exactly 1.00 per day
+        accrualService = new InterestAccrualService(jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(AccountRepository.class),
+                runRepository, mock(LedgerService.class), mock(AccountEventPublisher.class),
+                mock(JournaledBalanceService.class), new ShardRouter(1), new SimpleMeterRegistry(),
+                new BigDecimal("0.365"), 365, 2, 2);
+        when(runRepository.findById(RUN_DATE)).thenAnswer(invocation -> Optional.ofNullable(storedRun));
+        when(runRepository.save(any(InterestAccrualRun.class))).thenAnswer(invocation -> {
+            storedRun = invocation.getArgument(0);
+            return storedRun;
+        });
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class)))
+                .thenAnswer(invocation -> scan(invocation.getArgument(1),
+                        Arrays.copyOfRange(invocation.getArguments(), 2, invocation.getArguments().length)));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenAnswer(invocation -> update(invocation.getArgument(0), invocation.getArgument(1)));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        accrualService.shutdown();
+    }
+    
+    @Test
+    void accruesActiveFundedAccountsAndStampsEveryAccount() {
+        accounts.put(1L, new SavingsRow(new BigDecimal("1000.00"), "ACTIVE", null));
+        accounts.put(2L, new SavingsRow(new BigDecimal("1000.00"), "SUSPENDED", null));
+        accounts.put(3L, new SavingsRow(new BigDecimal("0.00"), "ACTIVE", null));
+        accounts.put(4L, new SavingsRow(new BigDecimal("2000.00"), "ACTIVE", null));
+        accounts.put(5L, new SavingsRow(new BigDecimal("1000.00"), "ACTIVE", null));
+    
+        InterestAccrualRun run = accrualService.accrue(RUN_DATE);
+    
+        assertEquals(InterestAccrualRun.RunStatus.COMPLETED, run.getStatus());
+        assertEquals(3L, run.getAccountsAccrued());
+        assertEquals(0, new BigDecimal("4.00").compareTo(run.getTotalInterest()));
+        assertEquals(new BigDecimal("1001.00"), accounts.get(1L).getBalance());
+        assertEquals(new BigDecimal("1000.00"), accounts.get(2L).getBalance());
+        assertEquals(new BigDecimal("2002.00"), accounts.get(4L).getBalance());
+        accounts.values().forEach(row -> assertEquals(RUN_DATE, row.getAccruedThrough()));
+    }
+    
+    @Test
+    void interruptedRunResumesAfterItsCheckpointWithoutPayingTwice() {
+        accounts.put(1L, new SavingsRow(new BigDecimal("1001.00"), "ACTIVE", RUN_DATE));
+        accounts.put(2L, new SavingsRow(new BigDecimal("1001.00"), "ACTIVE", RUN_DATE));
+        // Committed after the last checkpoint was saved
+        accounts.put(3L, new SavingsRow(new BigDecimal("1001.00"), "ACTIVE", RUN_DATE));
+        accounts.put(4L, new SavingsRow(new BigDecimal("1000.00"), "ACTIVE", RUN_DATE.minusDays(1)));
+        storedRun = new InterestAccrualRun(RUN_DATE, InterestAccrualRun.RunStatus.RUNNING, 0, 2L, 2L,
+                new BigDecimal("2.00"), LocalDateTime.now(), null);
+    
+        InterestAccrualRun run = accrualService.accrue(RUN_DATE);
+    
+        assertEquals(2L, scannedAfter.get(0));
+        assertEquals(InterestAccrualRun.RunStatus.COMPLETED, run.getStatus());
+        assertEquals(3L, run.getAccountsAccrued());
+        assertEquals(new BigDecimal("1001.00"), accounts.get(3L).getBalance());
+        assertEquals(new BigDecimal("1001.00"), accounts.get(4L).getBalance());
+    }
+    
+    @Test
+    void missedDaysAreCaughtUp() {
+        accounts.put(1L, new SavingsRow(new BigDecimal("1000.00"), "ACTIVE", RUN_DATE.minusDays(3)));
+    
+        accrualService.accrue(RUN_DATE);
+    
+        assertEquals(new BigDecimal("1003.00"), accounts.get(1L).getBalance());
+    }
+    
+    @Test
+    void completedRunIsNotRepeated() {
+        accounts.put(1L, new SavingsRow(new BigDecimal("1000.00"), "ACTIVE", null));
+        accrualService.accrue(RUN_DATE);
+        accounts.get(1L).setAccruedThrough(null);
+    
+        accrualService.accrue(RUN_DATE);
+    
+        assertEquals(new BigDecimal("1001.00"), accounts.get(1L).getBalance());
+    }
+    
+    /** SCAN_SQL against the in-memory accounts. */
+    private List<Object> scan(RowMapper<?> mapper, Object[] args) throws Exception {
+        long afterId = (Long) args[0];
+        LocalDate runDate = ((Date) args[1]).toLocalDate();
+        int limit = (Integer) args[2];
+        scannedAfter.add(afterId);
+        List<Object> rows = new ArrayList<>();
+        for (Map.Entry<Long, SavingsRow> entry : accounts.entrySet()) {
+            SavingsRow row = entry.getValue();
+            if (entry.getKey() <= afterId || (row.getAccruedThrough() != null && !row.getAccruedThrough().isBefore(runDate))) {
+                continue;
+            }
+            if (rows.size() == limit) {
+                break;
+            }
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("id")).thenReturn(entry.getKey());
+            when(rs.getBigDecimal("balance")).thenReturn(row.getBalance());
+            when(rs.getString("status")).thenReturn(row.getStatus());
+            when(rs.getDate("interest_accrued_through"))
+                    .thenReturn(row.getAccruedThrough() != null ? Date.valueOf(row.getAccruedThrough()) : null);
+            rows.add(mapper.mapRow(rs, rows.size()));
+        }
+        return rows;
+    }
+    
+    /** ACCRUE_SQL and STAMP_SQL, including their accrued-through guard. */
+    private int[] update(String sql, List<Object[]> batch) {
+        boolean accrue = sql.contains("balance = balance + ?");
+        int[] counts = new int[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            Object[] args = batch.get(i);
+            int offset = accrue ? 1 : 0;
+            LocalDate runDate = ((Date) args[offset]).toLocalDate();
+            SavingsRow row = accounts.get((Long) args[offset + 2]);
+            if (row.getAccruedThrough() != null && !row.getAccruedThrough().isBefore(runDate)) {
+                continue;
+            }
+            if (accrue) {
+                row.setBalance(row.getBalance().add((BigDecimal) args[0]));
+            }
+            row.setAccruedThrough(runDate);
+            counts[i] = 1;
+        }
+        return counts;
+    }
+    
+    @Data
+    @AllArgsConstructor
+    private static class SavingsRow {
+        private BigDecimal balance;
+        private String status;
+        private LocalDate accruedThrough;
+    }
+}
@@ -0,0 +1,135 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.model.Account;
+import com.ebanking.accountservice.model.JournalCheckpoint;
+import com.ebanking.accountservice.model.Money;
+import com.ebanking.accountservice.repository.AccountRepository;
+import com.ebanking.accountservice.repository.JournalCheckpointRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JournaledBalanceServiceTest {
+    
+    @TempDir
+    Path directory;
+    
+    private final LedgerService ledgerService = mock(LedgerService.class);
+    
+    @Test
+    void acknowledgedPostingsAreReplayedAfterACrash() throws Exception {
+        AccountRepository firstRepository = mock(AccountRepository.class);
+        JournalCheckpointRepository firstCheckpoints = mock(JournalCheckpointRepository.class);
+        when(firstRepository.findById(1L)).thenReturn(Optional.of(account(1L, "10.00")));
+        when(firstCheckpoints.findById(anyString())).thenReturn(Optional.empty());
+        JournaledBalanceService first = start(firstRepository, firstCheckpoints);
+    
+        first.updateBalance(1L, Money.parse("5.00"), "DEPOSIT");
+        Account afterWithdrawal = first.updateBalance(1L, Money.parse("2.00"), "WITHDRAWAL");
+        crash(first);
+    
+        assertEquals(Money.parse("13.00"), afterWithdrawal.getBalance());
+        verify(firstCheckpoints, never()).save(any());
+    
+        AccountRepository secondRepository = mock(AccountRepository.class);
+        JournalCheckpointRepository secondCheckpoints = mock(JournalCheckpointRepository.class);
+        Account stored = account(1L, "10.00");
+        when(secondRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(stored));
+        when(secondCheckpoints.findById(anyString())).thenReturn(Optional.empty());
+        JournaledBalanceService second = start(secondRepository, secondCheckpoints);
+    
+        assertEquals(Money.parse("13.00"), stored.getBalance());
+        ArgumentCaptor<JournalCheckpoint> checkpoint = ArgumentCaptor.forClass(JournalCheckpoint.class);
+        verify(secondCheckpoints).save(checkpoint.capture());
+        second.stop();
+    
+        AccountRepository thirdRepository = mock(AccountRepository.class);
+        JournalCheckpointRepository thirdCheckpoints = mock(JournalCheckpointRepository.class);
+        when(thirdCheckpoints.findById(anyString())).thenReturn(Optional.of(checkpoint.getValue()));
+        JournaledBalanceService third = start(thirdRepository, thirdCheckpoints);
+    
+        verify(thirdRepository, never()).findAllByIdForUpdate(anyCollection());
+        third.stop();
+    }
+    
+    @Test
+    void overdraftIsRejectedBeforeAnythingIsJournaled() throws Exception {
+        AccountRepository accountRepository = mock(AccountRepository.class);
+        JournalCheckpointRepository checkpoints = mock(JournalCheckpointRepository.class);
+        when(accountRepository.findById(1L)).thenReturn(Optional.of(account(1L, "10.00")));
+        when(checkpoints.findById(anyString())).thenReturn(Optional.empty());
+        JournaledBalanceService service = start(accountRepository, checkpoints);
+    
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> service.updateBalance(1L, Money.parse("10.01"), "WITHDRAWAL"));
+    
+        assertEquals("Insufficient balance", e.getMessage());
+        service.stop();
+        verify(accountRepository, never()).findAllByIdForUpdate(anyCollection());
+    }
+    
+    private JournaledBalanceService start(AccountRepository accountRepository,
+                                          JournalCheckpointRepository checkpointRepository) throws Exception {
+        JournaledBalanceService service = new JournaledBalanceService(accountRepository, checkpointRepository,
+                ledgerService, mock(AccountEventPublisher.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), lockingDataSource(),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "path", directory.resolve("balance.wal").toString());
+        ReflectionTestUtils.setField(service, "sizeBytes", 4096);
+        ReflectionTestUtils.setField(service, "fsyncPolicy", JournaledBalanceService.FsyncPolicy.NONE);
+        // Only an explicit stop flushes, so a crash can be simulated
+        ReflectionTestUtils.setField(service, "flushIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(service, "flushBatch", 100);
+        service.start();
+        return service;
+    }
+    
+    /** Stops the background threads without flushing, as a killed process would. */
+    private static void crash(JournaledBalanceService service) {
+        ((ScheduledExecutorService) ReflectionTestUtils.getField(service, "background")).shutdownNow();
+    }
+    
+    private static DataSource lockingDataSource() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet result = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(result);
+        when(result.next()).thenReturn(true);
+        when(result.getBoolean(1)).thenReturn(true);
+        return dataSource;
+    }
+    
+    private static Account account(Long id, String balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setBalance(Money.parse(balance));
+        return account;
+    }
+}
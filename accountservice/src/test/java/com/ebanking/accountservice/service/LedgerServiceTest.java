@@ -0,0 +1,81 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.model.BalanceSnapshot;
+import com.ebanking.accountservice.model.LedgerEntry;
+import com.ebanking.accountservice.model.Money;
+import com.ebanking.accountservice.repository.BalanceSnapshotRepository;
+import com.ebanking.accountservice.repository.LedgerEntryRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LedgerServiceTest {
+    
+    private final LedgerEntryRepository ledgerEntryRepository = mock(LedgerEntryRepository.class);
+    private final BalanceSnapshotRepository balanceSnapshotRepository = mock(BalanceSnapshotRepository.class);
+    private final LedgerService ledgerService =
+            new LedgerService(ledgerEntryRepository, balanceSnapshotRepository, new ShardRouter(1));
+    
+    @Test
+    void entriesCarryTheSignedChange() {
+        LedgerEntry debit = ledgerService.toEntry(1L, Money.parse("-12.50"), "TX-1");
+        LedgerEntry credit = ledgerService.toEntry(2L, Money.parse("12.50"), "TX-1");
+    
+        assertEquals(LedgerEntry.EntryType.DEBIT, debit.getEntryType());
+        assertEquals(new BigDecimal("-12.50"), debit.getAmount());
+        assertEquals(LedgerEntry.EntryType.CREDIT, credit.getEntryType());
+        assertEquals(0, debit.getAmount().add(credit.getAmount()).signum());
+    }
+    
+    @Test
+    void zeroChangeIsNotJournaled() {
+        ledgerService.record(1L, Money.ZERO, "ADJUSTMENT");
+    
+        verify(ledgerEntryRepository, never()).save(any());
+    }
+    
+    @Test
+    void balanceIsTheLatestSnapshotPlusLaterEntries() {
+        LocalDateTime takenAt = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime asOf = LocalDateTime.of(2024, 1, 2, 0, 0);
+        when(balanceSnapshotRepository.findFirstByAccountIdAndTakenAtLessThanEqualOrderByTakenAtDesc(1L, asOf))
+                .thenReturn(Optional.of(new BalanceSnapshot(5L, 1L, new BigDecimal("100.00"), takenAt)));
+        when(ledgerEntryRepository.sumAmountBetween(1L, takenAt, asOf.plusNanos(1000)))
+                .thenReturn(new BigDecimal("-30.00"));
+    
+        assertEquals(Optional.of(new BigDecimal("70.00")), ledgerService.getBalanceAsOf(1L, asOf));
+    }
+    
+    @Test
+    void accountWithoutSnapshotSumsItsWholeHistory() {
+        LocalDateTime asOf = LocalDateTime.of(2024, 1, 2, 0, 0);
+        when(balanceSnapshotRepository.findFirstByAccountIdAndTakenAtLessThanEqualOrderByTakenAtDesc(1L, asOf))
+                .thenReturn(Optional.empty());
+        when(ledgerEntryRepository.sumAmountBetween(eq(1L), any(), eq(asOf.plusNanos(1000))))
+                .thenReturn(new BigDecimal("25.00"));
+    
+        assertEquals(Optional.of(new BigDecimal("25.00")), ledgerService.getBalanceAsOf(1L, asOf));
+    }
+    
+    @Test
+    void instantBeforeTheOpeningSnapshotHasNoBalance() {
+        LocalDateTime asOf = LocalDateTime.of(2023, 6, 1, 0, 0);
+        when(balanceSnapshotRepository.findFirstByAccountIdAndTakenAtLessThanEqualOrderByTakenAtDesc(1L, asOf))
+                .thenReturn(Optional.empty());
+        when(balanceSnapshotRepository.existsByAccountIdAndTakenAtGreaterThan(1L, asOf)).thenReturn(true);
+    
+        assertTrue(ledgerService.getBalanceAsOf(1L, asOf).isEmpty());
+        verify(ledgerEntryRepository, never()).sumAmountBetween(any(), any(), any());
+    }
+}
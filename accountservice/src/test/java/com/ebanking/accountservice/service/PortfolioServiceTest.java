@@ -0,0 +1,108 @@
+package com.ebanking.accountservice.service;
+
+import com.ebanking.accountservice.dto.AccountChangedEvent;
+import com.ebanking.accountservice.dto.PortfolioSummary;
+import com.ebanking.accountservice.dto.UserAccountsChangedEvent;
+import com.ebanking.accountservice.model.Account;
+import com.ebanking.accountservice.model.FxRate;
+import com.ebanking.accountservice.model.Money;
+import com.ebanking.accountservice.repository.FxRateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PortfolioServiceTest {
+    
+    private final AccountService accountService = mock(AccountService.class);
+    private final FxRateRepository fxRateRepository = mock(FxRateRepository.class);
+    private final FxRateService fxRateService = new FxRateService(fxRateRepository, "USD", "");
+    private final PortfolioService portfolioService =
+            new PortfolioService(accountService, fxRateService, new SimpleMeterRegistry(), 100, 600);
+    
+    @BeforeEach
+    void setUp() {
+        when(fxRateRepository.findAll()).thenReturn(List.of(rate("EUR", "1.10"), rate("GBP", "1.25")));
+        fxRateService.refresh();
+        when(accountService.getAccountsByUserId(7L)).thenReturn(List.of(
+                account(Account.AccountType.CHECKING, "EUR", "100.00", Account.AccountStatus.ACTIVE),
+                account(Account.AccountType.CHECKING, null, "50.00", Account.AccountStatus.ACTIVE),
+                account(Account.AccountType.SAVINGS, "GBP", "200.00", Account.AccountStatus.ACTIVE),
+                account(Account.AccountType.SAVINGS, "USD", "999.00", Account.AccountStatus.CLOSED)));
+    }
+    
+    @Test
+    void totalsAreConvertedIntoTheRequestedCurrencyByType() {
+        PortfolioSummary summary = portfolioService.getSummary(7L, "usd");
+    
+        assertEquals("USD", summary.getCurrency());
+        assertEquals(new BigDecimal("160.00"), summary.getTotalsByType().get("CHECKING"));
+        assertEquals(new BigDecimal("250.00"), summary.getTotalsByType().get("SAVINGS"));
+        assertEquals(new BigDecimal("410.00"), summary.getTotal());
+        assertEquals(3, summary.getAccountCount());
+    }
+    
+    @Test
+    void holdingsAreCachedAcrossCurrenciesAndRateRefreshes() {
+        portfolioService.getSummary(7L, "USD");
+        when(fxRateRepository.findAll()).thenReturn(List.of(rate("EUR", "1.20"), rate("GBP", "1.25")));
+        fxRateService.refresh();
+    
+        PortfolioSummary summary = portfolioService.getSummary(7L, null);
+        PortfolioSummary inEuro = portfolioService.getSummary(7L, "EUR");
+    
+        assertEquals(new BigDecimal("420.00"), summary.getTotal());
+        assertEquals(new BigDecimal("350.00"), inEuro.getTotal());
+        verify(accountService, times(1)).getAccountsByUserId(7L);
+    }
+    
+    @Test
+    void localAccountChangeInvalidatesTheUser() {
+        portfolioService.getSummary(7L, "USD");
+    
+        portfolioService.onAccountsChanged(new UserAccountsChangedEvent(7L));
+        portfolioService.getSummary(7L, "USD");
+    
+        verify(accountService, times(2)).getAccountsByUserId(7L);
+    }
+    
+    @Test
+    void accountEventInvalidatesItsOwnerAndTombstonesAreIgnored() {
+        portfolioService.getSummary(7L, "USD");
+        AccountChangedEvent event = new AccountChangedEvent();
+        event.setAccountId(1L);
+        event.setUserId(7L);
+    
+        portfolioService.onAccountEvent(new ConsumerRecord<>("account-events", 0, 0L, "1", null));
+        portfolioService.getSummary(7L, "USD");
+        portfolioService.onAccountEvent(new ConsumerRecord<>("account-events", 0, 1L, "1", event));
+        portfolioService.getSummary(7L, "USD");
+    
+        verify(accountService, times(2)).getAccountsByUserId(7L);
+    }
+    
+    private static FxRate rate(String currency, String rate) {
+        return new FxRate(currency, new BigDecimal(rate), LocalDateTime.now());
+    }
+    
+    private static Account account(Account.AccountType type, String currency, String balance,
+                                   Account.AccountStatus status) {
+        Account account = new Account();
+        account.setAccountType(type);
+        account.setCurrency(currency);
+        account.setBalance(Money.of(new BigDecimal(balance), currency));
+        account.setStatus(status);
+        account.setUserId(7L);
+        return account;
+    }
+}
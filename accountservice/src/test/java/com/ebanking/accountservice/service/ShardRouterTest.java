@@ -0,0 +1,72 @@
+package com.ebanking.accountservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ShardRouterTest {
+    
+    @Test
+    void accountsRouteByIdModuloShardCount() {
+        ShardRouter shardRouter = new ShardRouter(4);
+    
+        assertEquals(0, shardRouter.shardOf(8L));
+        assertEquals(3, shardRouter.shardOf(7L));
+        assertEquals(1, shardRouter.shardOf(-3L));
+        assertEquals(shardRouter.placementShard("ACC-42"), shardRouter.placementShard("ACC-42"));
+        assertEquals(0, shardRouter.placementShard(null));
+    }
+    
+    @Test
+    void singleShardRoutesEverythingToShardZero() {
+        ShardRouter shardRouter = new ShardRouter(1);
+    
+        assertFalse(shardRouter.isSharded());
+        assertEquals(0, shardRouter.shardOf(12345L));
+        assertEquals(0, shardRouter.placementShard("ACC-42"));
+        assertThrows(IllegalArgumentException.class, () -> new ShardRouter(0));
+    }
+    
+    @Test
+    void nestedWorkRestoresTheEnclosingShard() {
+        ShardRouter shardRouter = new ShardRouter(3);
+    
+        int inner = shardRouter.on(1, () -> {
+            int nested = shardRouter.on(2, ShardRouter::currentShard);
+            assertEquals(1, ShardRouter.currentShard());
+            return nested;
+        });
+    
+        assertEquals(2, inner);
+        assertEquals(0, ShardRouter.currentShard());
+        assertThrows(IllegalStateException.class, () -> shardRouter.run(2, () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(0, ShardRouter.currentShard());
+    }
+    
+    @Test
+    void onEachVisitsEveryShardBoundToIt() {
+        ShardRouter shardRouter = new ShardRouter(3);
+    
+        List<Integer> bound = shardRouter.onEach(shard -> ShardRouter.currentShard() * 10 + shard);
+    
+        assertEquals(List.of(0, 11, 22), bound);
+    }
+    
+    @Test
+    void groupByShardKeepsRelativeOrder() {
+        ShardRouter shardRouter = new ShardRouter(2);
+    
+        Map<Integer, List<Long>> groups = shardRouter.groupByShard(List.of(5L, 2L, 3L, 4L, 1L), id -> id);
+    
+        assertEquals(List.of(5L, 3L, 1L), groups.get(1));
+        assertEquals(List.of(2L, 4L), groups.get(0));
+        assertEquals(List.of(1, 0), List.copyOf(groups.keySet()));
+    }
+}
@@ -1,35 +1,70 @@
 package com.ebanking.notificationservice.config;
 
+import com.ebanking.notificationservice.dto.NotificationsCreatedEvent;
 import com.ebanking.notificationservice.dto.TransactionEvent;
+import com.ebanking.notificationservice.service.NotificationPushRegistry;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.TopicConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 @Configuration
 public class KafkaConfig {
     
+    /** Transaction events that could not be stored after all retries. */
+    public static final String DEAD_LETTER_TOPIC = "transaction-events.DLT";
+    
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
     
+    @Value("${notification.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+    
+    @Value("${notification.consumer.retry-interval-ms:1000}")
+    private long retryIntervalMs;
+    
+    @Value("${notification.consumer.max-attempts:10}")
+    private long maxAttempts;
+    
     @Bean
     public ConsumerFactory<String, TransactionEvent> consumerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "notification-service-group");
         configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        // A payload that cannot be read arrives as a null value instead of failing the whole poll
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        configProps.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
         configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
+        // Producers stamp their own class name; always read into the local type
+        configProps.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
         configProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.ebanking.notificationservice.dto.TransactionEvent");
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
         return new DefaultKafkaConsumerFactory<>(configProps);
     }
     
@@ -40,4 +75,107 @@ public class KafkaConfig {
         factory.setConsumerFactory(consumerFactory());
         return factory;
     }
+    
+    /**
+     * Hands each poll to the listener as one list. Offsets are committed once
+     * the listener returns, i.e. after the batch is stored. When the listener
+     * names the record that failed, the records before it are committed and
+     * delivery resumes from it; a record still failing after
+     * {@code notification.consumer.max-attempts} is published to
+     * {@value #DEAD_LETTER_TOPIC} and skipped, so it cannot block its partition.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(deadLetterRecoverer(),
+                new FixedBackOff(retryIntervalMs, maxAttempts - 1)));
+        return factory;
+    }
+    
+    /**
+     * Record listener with out-of-order acknowledgments: records are acked from
+     * worker threads as they finish, and the container commits each partition
+     * up to its lowest offset not yet acked.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> orderedKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        return factory;
+    }
+    
+    @Bean
+    public ProducerFactory<String, Object> producerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+    
+    @Bean
+    public KafkaTemplate<String, Object> kafkaTemplate() {
+        return new KafkaTemplate<>(producerFactory());
+    }
+    
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterRecoverer() {
+        // No partition given, so the dead letter topic needs no more partitions than the source
+        return new DeadLetterPublishingRecoverer(kafkaTemplate(),
+                (record, exception) -> new TopicPartition(DEAD_LETTER_TOPIC, -1));
+    }
+    
+    @Bean
+    public NewTopic deadLetterTopic(@Value("${notification.consumer.dead-letter-partitions:1}") int partitions,
+                                    @Value("${notification.consumer.dead-letter-replicas:1}") int replicas) {
+        return TopicBuilder.name(DEAD_LETTER_TOPIC)
+                .partitions(partitions)
+                .replicas(replicas)
+                .build();
+    }
+    
+    @Bean
+    public ConsumerFactory<String, NotificationsCreatedEvent> notificationFanoutConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        // Every instance holds its own streams, so every instance must see every event
+        configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "notificationservice-push-" + UUID.randomUUID());
+        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
+        configProps.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        configProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, NotificationsCreatedEvent.class.getName());
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        return new DefaultKafkaConsumerFactory<>(configProps);
+    }
+    
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, NotificationsCreatedEvent> notificationFanoutListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, NotificationsCreatedEvent> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(notificationFanoutConsumerFactory());
+        return factory;
+    }
+    
+    /**
+     * Only read live, so events need not outlive a reconnect; clients catch up
+     * on older notifications from the database.
+     */
+    @Bean
+    public NewTopic notificationsCreatedTopic(@Value("${notification.push.topic-partitions:3}") int partitions,
+                                              @Value("${notification.push.topic-replicas:1}") int replicas) {
+        return TopicBuilder.name(NotificationPushRegistry.TOPIC)
+                .partitions(partitions)
+                .replicas(replicas)
+                .config(TopicConfig.RETENTION_MS_CONFIG, "3600000")
+                .build();
+    }
 }
@@ -1,11 +1,16 @@
 package com.ebanking.notificationservice.controller;
 
+import com.ebanking.notificationservice.dto.NotificationPage;
+import com.ebanking.notificationservice.dto.UnreadCount;
 import com.ebanking.notificationservice.model.Notification;
+import com.ebanking.notificationservice.service.NotificationPushRegistry;
 import com.ebanking.notificationservice.service.NotificationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -15,6 +20,7 @@ import java.util.List;
 public class NotificationController {
     
     private final NotificationService notificationService;
+    private final NotificationPushRegistry notificationPushRegistry;
     
     @GetMapping
     public ResponseEntity<List<Notification>> getAllNotifications() {
@@ -28,6 +34,59 @@ public class NotificationController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<NotificationPage> getUserNotifications(
+            @PathVariable Long userId,
+            @RequestParam(required = false) Notification.NotificationStatus status,
+            @RequestParam(defaultValue = "false") boolean unread,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(notificationService.getInbox(userId, status, unread, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Streams the user's new notifications as server-sent events. A client
+     * reconnecting with {@code Last-Event-ID} first gets what it missed, or a
+     * {@code resync} event if it missed too many to replay.
+     */
+    @GetMapping(value = "/user/{userId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamUserNotifications(
+            @PathVariable Long userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        try {
+            return ResponseEntity.ok(notificationPushRegistry.subscribe(userId, limit -> lastEventId != null
+                    ? notificationService.getNotificationsAfter(userId, lastEventId, limit)
+                    : List.of()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+    
+    @GetMapping("/user/{userId}/unread-count")
+    public ResponseEntity<UnreadCount> getUnreadCount(@PathVariable Long userId) {
+        return ResponseEntity.ok(notificationService.getUnreadCount(userId));
+    }
+    
+    @PutMapping("/user/{userId}/read")
+    public ResponseEntity<UnreadCount> markAllRead(@PathVariable Long userId) {
+        notificationService.markAllRead(userId);
+        return ResponseEntity.ok(notificationService.getUnreadCount(userId));
+    }
+    
+    @PutMapping("/{id}/read")
+    public ResponseEntity<Void> markRead(@PathVariable Long id) {
+        try {
+            notificationService.markRead(id);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
     @PostMapping
     public ResponseEntity<Notification> createNotification(@RequestBody Notification notification) {
         Notification createdNotification = notificationService.createNotification(notification);
@@ -0,0 +1,17 @@
+package com.ebanking.notificationservice.dto;
+
+import com.ebanking.notificationservice.model.Notification;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationPage {
+    private List<Notification> items;
+    /** Opaque cursor for the next page, or null when this is the last page. */
+    private String nextCursor;
+}
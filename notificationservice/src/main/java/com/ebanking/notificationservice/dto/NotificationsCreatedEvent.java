@@ -0,0 +1,18 @@
+package com.ebanking.notificationservice.dto;
+
+import com.ebanking.notificationservice.model.Notification;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Published once notifications are stored, for delivery to open streams.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationsCreatedEvent {
+    private List<Notification> notifications;
+}
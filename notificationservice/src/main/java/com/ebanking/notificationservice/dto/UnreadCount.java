@@ -0,0 +1,13 @@
+package com.ebanking.notificationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadCount {
+    private Long userId;
+    private long unread;
+}
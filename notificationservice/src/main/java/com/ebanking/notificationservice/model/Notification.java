@@ -10,7 +10,9 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        @Index(name = "idx_notifications_user_created", columnList = "user_id, created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -42,6 +44,9 @@ public class Notification {
     @Column
     private String subject;
     
+    @Column(name = "is_read", nullable = false, columnDefinition = "boolean default false not null")
+    private boolean read;
+    
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
     private NotificationType type;
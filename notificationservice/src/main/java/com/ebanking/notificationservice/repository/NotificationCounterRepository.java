@@ -0,0 +1,31 @@
+package com.ebanking.notificationservice.repository;
+
+import com.ebanking.notificationservice.model.NotificationCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface NotificationCounterRepository extends JpaRepository<NotificationCounter, Long> {
+    
+    @Modifying
+    @Query(value = "INSERT INTO notification_counters (user_id, unread) VALUES (:userId, :delta) " +
+                   "ON CONFLICT (user_id) DO UPDATE SET unread = notification_counters.unread + EXCLUDED.unread",
+           nativeQuery = true)
+    void adjustUnread(@Param("userId") Long userId, @Param("delta") long delta);
+    
+    /**
+     * Seeds the counters from the notifications table, but only while the
+     * counters table is still empty, i.e. on the first start after counters
+     * were introduced.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO notification_counters (user_id, unread) " +
+                   "SELECT user_id, COUNT(*) FROM notifications WHERE is_read = false " +
+                   "AND NOT EXISTS (SELECT 1 FROM notification_counters) GROUP BY user_id " +
+                   "ON CONFLICT (user_id) DO NOTHING",
+           nativeQuery = true)
+    int seedFromNotifications();
+}
@@ -1,9 +1,56 @@
 package com.ebanking.notificationservice.repository;
 
 import com.ebanking.notificationservice.model.Notification;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
+    
+    /** The first page of a user's inbox, newest first. */
+    @Query("SELECT n FROM Notification n " +
+           "WHERE n.userId = :userId " +
+           "AND (:status IS NULL OR n.status = :status) " +
+           "AND (:unreadOnly = false OR n.read = false) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findInbox(@Param("userId") Long userId,
+                                 @Param("status") Notification.NotificationStatus status,
+                                 @Param("unreadOnly") boolean unreadOnly,
+                                 Limit limit);
+    
+    /**
+     * A later page of a user's inbox, starting strictly before the cursor
+     * position. The row-value comparison lets the (user_id, created_at, id)
+     * index start the scan at the cursor instead of filtering up to it.
+     */
+    @Query("SELECT n FROM Notification n " +
+           "WHERE n.userId = :userId " +
+           "AND (n.createdAt, n.id) < (:cursorCreatedAt, :cursorId) " +
+           "AND (:status IS NULL OR n.status = :status) " +
+           "AND (:unreadOnly = false OR n.read = false) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findInboxBefore(@Param("userId") Long userId,
+                                       @Param("status") Notification.NotificationStatus status,
+                                       @Param("unreadOnly") boolean unreadOnly,
+                                       @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                       @Param("cursorId") Long cursorId,
+                                       Limit limit);
+    
+    List<Notification> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long id, Limit limit);
+    
+    /** Returns 1 if this call flipped the notification to read, 0 if it already was. */
+    @Modifying
+    @Query("UPDATE Notification n SET n.read = true, n.updatedAt = :now WHERE n.id = :id AND n.read = false")
+    int markRead(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Notification n SET n.read = true, n.updatedAt = :now WHERE n.userId = :userId AND n.read = false")
+    int markAllRead(@Param("userId") Long userId, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,53 @@
+package com.ebanking.notificationservice.service;
+
+import com.ebanking.notificationservice.model.Notification;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a user's inbox, encoded as an opaque URL-safe token of the
+ * last returned row's (createdAt, id).
+ */
+final class InboxCursor {
+    
+    private final LocalDateTime createdAt;
+    private final Long id;
+    
+    private InboxCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+    
+    static InboxCursor after(Notification notification) {
+        return new InboxCursor(notification.getCreatedAt(), notification.getId());
+    }
+    
+    static InboxCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new InboxCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    Long getId() {
+        return id;
+    }
+}
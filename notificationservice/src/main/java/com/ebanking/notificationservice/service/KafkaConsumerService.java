@@ -4,17 +4,29 @@ import com.ebanking.notificationservice.dto.TransactionEvent;
 import com.ebanking.notificationservice.model.Notification;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class KafkaConsumerService {
     
     private final NotificationService notificationService;
+    private final ObjectProvider<OrderedEventDispatcher> orderedEventDispatcher;
     
-    @KafkaListener(topics = "transaction-events", groupId = "notification-service-group")
+    /**
+     * One event per call. Only started with {@code notification.consumer.mode=record}.
+     */
+    @KafkaListener(id = "transaction-events-record", topics = "transaction-events", groupId = "notification-service-group",
+            autoStartup = "#{'${notification.consumer.mode:batch}' == 'record'}")
     public void consumeTransactionEvent(TransactionEvent event) {
         try {
             log.info("Received transaction event: transactionId={}, type={}, amount={}", 
@@ -28,7 +40,71 @@ public class KafkaConsumerService {
         }
     }
     
+    /**
+     * Stores everything a poll returned with one batched insert. If that
+     * fails, the notifications are stored one by one to find the record at
+     * fault; the container retries from that record and dead-letters it if it
+     * keeps failing. Stored records are never duplicated on redelivery, since
+     * inserts skip notification ids that already exist.
+     */
+    @KafkaListener(id = "transaction-events-batch", topics = "transaction-events", groupId = "notification-service-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "#{'${notification.consumer.mode:batch}' == 'batch'}")
+    public void consumeTransactionEvents(List<ConsumerRecord<String, TransactionEvent>> records) {
+        List<Notification> notifications = new ArrayList<>(records.size());
+        List<ConsumerRecord<String, TransactionEvent>> sources = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, TransactionEvent> record : records) {
+            TransactionEvent event = record.value();
+            if (event == null) {
+                log.warn("Skipping unreadable transaction event at {}-{}@{}",
+                        record.topic(), record.partition(), record.offset());
+            } else if ("COMPLETED".equals(event.getStatus())) {
+                notifications.add(toNotification(event));
+                sources.add(record);
+            }
+        }
+        try {
+            int created = notificationService.createNotifications(notifications).size();
+            log.info("Stored {} notifications from a batch of {} transaction events", created, records.size());
+        } catch (RuntimeException e) {
+            log.warn("Storing a batch of {} notifications failed, storing them one by one: {}",
+                    notifications.size(), e.getMessage());
+            for (int i = 0; i < notifications.size(); i++) {
+                try {
+                    notificationService.createNotifications(List.of(notifications.get(i)));
+                } catch (RuntimeException recordException) {
+                    throw new BatchListenerFailedException(
+                            "Cannot store notification " + notifications.get(i).getNotificationId(),
+                            recordException, sources.get(i));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Hands each record to a lane chosen by its key, so one user's events stay
+     * in order while different users are stored in parallel. Only started with
+     * {@code notification.consumer.mode=ordered}.
+     */
+    @KafkaListener(id = "transaction-events-ordered", topics = "transaction-events", groupId = "notification-service-group",
+            containerFactory = "orderedKafkaListenerContainerFactory",
+            autoStartup = "#{'${notification.consumer.mode:batch}' == 'ordered'}")
+    public void consumeTransactionEventOrdered(ConsumerRecord<String, TransactionEvent> record,
+                                               Acknowledgment acknowledgment) throws InterruptedException {
+        TransactionEvent event = record.value();
+        Notification notification = event != null && "COMPLETED".equals(event.getStatus()) ? toNotification(event) : null;
+        orderedEventDispatcher.getObject().dispatch(record, notification, acknowledgment);
+    }
+    
     private void createNotificationForTransaction(TransactionEvent event) {
+        if (notificationService.createNotifications(List.of(toNotification(event))).isEmpty()) {
+            log.debug("Duplicate transaction event ignored: {}", event.getTransactionId());
+        } else {
+            log.info("Notification created for transaction: {}", event.getTransactionId());
+        }
+    }
+    
+    private Notification toNotification(TransactionEvent event) {
         Notification notification = new Notification();
         notification.setUserId(event.getUserId());
         notification.setType(Notification.NotificationType.DEFAULT);
@@ -39,9 +115,7 @@ public class KafkaConsumerService {
         notification.setMessage(message);
         
         notification.setSubject("Transaction " + event.getTransactionType());
-        
-        notificationService.createNotification(notification);
-        log.info("Notification created for transaction: {}", event.getTransactionId());
+        return notification;
     }
     
     private String buildNotificationMessage(TransactionEvent event) {
@@ -0,0 +1,290 @@
+package com.ebanking.notificationservice.service;
+
+import com.ebanking.notificationservice.dto.NotificationsCreatedEvent;
+import com.ebanking.notificationservice.model.Notification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Pushes newly stored notifications to their user's open SSE streams.
+ * <p>
+ * A user's streams may be open on any instance, so stored notifications are
+ * published to the {@value #TOPIC} topic, which every instance reads with its
+ * own consumer group, and each instance delivers them to the streams it holds.
+ * <p>
+ * Streams are servlet async requests, so an idle stream holds no thread.
+ * Publishing only queues events: each stream has a bounded buffer that a
+ * small shared pool of sender threads writes out. A stream whose buffer is
+ * full, because its client reads too slowly, is closed rather than allowed to
+ * hold events back; the client reconnects with {@code Last-Event-ID} and
+ * catches up from the database. Heartbeats go through the same buffer, so a
+ * stuck client is detected even when it gets no notifications.
+ * <p>
+ * Writes themselves block, so each one is bounded by the connector's write
+ * timeout ({@code server.tomcat.connection-timeout}): a client that stops
+ * reading holds a sender for at most that long, then its write fails and only
+ * its stream is closed.
+ */
+@Slf4j
+@Component
+public class NotificationPushRegistry {
+    
+    public static final String TOPIC = "notifications-created";
+    
+    private static final Object SKIP = new Object();
+    private static final Object RESYNC = new Object();
+    
+    private final Map<Long, Set<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final ExecutorService senders;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final Counter droppedCounter;
+    private final int bufferSize;
+    private final int maxConnections;
+    private final long streamTimeoutMs;
+    private final int maxReplay;
+    
+    public NotificationPushRegistry(KafkaTemplate<String, Object> kafkaTemplate,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${notification.push.sender-threads:4}") int senderThreads,
+                                    @Value("${notification.push.buffer-size:64}") int bufferSize,
+                                    @Value("${notification.push.max-connections:50000}") int maxConnections,
+                                    @Value("${notification.push.stream-timeout-ms:1800000}") long streamTimeoutMs,
+                                    @Value("${notification.push.max-replay:1000}") int maxReplay) {
+        this.kafkaTemplate = kafkaTemplate;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "notification-push-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.droppedCounter = meterRegistry.counter("notification.push.dropped");
+        this.bufferSize = bufferSize;
+        this.maxConnections = maxConnections;
+        this.streamTimeoutMs = streamTimeoutMs;
+        this.maxReplay = maxReplay;
+        Gauge.builder("notification.push.connections", connectionCount, AtomicInteger::get)
+                .description("Open notification streams")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Opens a stream for the user. The stream is registered before the
+     * backlog, e.g. the notifications missed since a reconnecting client's
+     * last event, is loaded, so nothing stored in between is lost. The backlog
+     * is sent first; live events it already covers are skipped. The backlog
+     * function is asked for up to a given number of rows; a backlog longer
+     * than {@code notification.push.max-replay} is not replayed, the client
+     * gets a {@code resync} event telling it to reload its inbox instead.
+     */
+    public SseEmitter subscribe(Long userId, IntFunction<List<Notification>> backlog) {
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            throw new IllegalStateException("Too many open notification streams");
+        }
+        Connection connection = new Connection(userId, createEmitter(streamTimeoutMs));
+        connections.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(connection);
+        connection.emitter.onCompletion(() -> remove(connection));
+        connection.emitter.onTimeout(() -> remove(connection));
+        connection.emitter.onError(error -> remove(connection));
+    
+        try {
+            List<Notification> missed = backlog.apply(maxReplay + 1);
+            if (missed.size() > maxReplay) {
+                connection.backlog.add(RESYNC);
+            } else {
+                connection.backlog.addAll(missed);
+            }
+        } catch (RuntimeException e) {
+            close(connection);
+            throw e;
+        }
+        connection.backlog.add("connected");
+        connection.replaying = false;
+        schedule(connection);
+        return connection.emitter;
+    }
+    
+    /**
+     * Runs after the notifications' transaction commits, or straight away
+     * outside one. If the event cannot be published, at least the streams on
+     * this instance get it; the others catch up when their clients reconnect.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationsCreated(NotificationsCreatedEvent event) {
+        kafkaTemplate.send(TOPIC, event).whenComplete((result, e) -> {
+            if (e != null) {
+                log.warn("Could not publish {} notifications to other instances: {}",
+                        event.getNotifications().size(), e.getMessage());
+                deliver(event);
+            }
+        });
+    }
+    
+    @KafkaListener(topics = TOPIC, containerFactory = "notificationFanoutListenerContainerFactory")
+    public void deliver(NotificationsCreatedEvent event) {
+        for (Notification notification : event.getNotifications()) {
+            Set<Connection> userConnections = connections.get(notification.getUserId());
+            if (userConnections == null) {
+                continue;
+            }
+            for (Connection connection : userConnections) {
+                offer(connection, notification);
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${notification.push.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Set<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                offer(connection, "heartbeat");
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        connections.values().forEach(userConnections -> userConnections.forEach(connection -> connection.emitter.complete()));
+    }
+    
+    /** Separate so streams can be exercised without a servlet response to write to. */
+    SseEmitter createEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+    
+    /** Queues a notification, or a string to be sent as a comment. */
+    private void offer(Connection connection, Object event) {
+        if (connection.closed.get()) {
+            return;
+        }
+        if (!connection.buffer.offer(event)) {
+            droppedCounter.increment();
+            log.debug("Dropping slow notification stream of user {}", connection.userId);
+            close(connection);
+            return;
+        }
+        // While the backlog loads, live events wait behind it
+        if (!connection.replaying) {
+            schedule(connection);
+        }
+    }
+    
+    private void schedule(Connection connection) {
+        if (connection.scheduled.compareAndSet(false, true)) {
+            senders.execute(() -> drain(connection));
+        }
+    }
+    
+    private void drain(Connection connection) {
+        while (true) {
+            Object event;
+            while ((event = next(connection)) != null) {
+                if (event == SKIP) {
+                    continue;
+                }
+                try {
+                    connection.emitter.send(toEvent(event));
+                } catch (Exception e) {
+                    log.debug("Notification stream of user {} went away: {}", connection.userId, e.getMessage());
+                    close(connection);
+                    return;
+                }
+            }
+            connection.scheduled.set(false);
+            // An event offered after the last poll but before the flag was cleared would otherwise wait
+            if (connection.buffer.isEmpty() || !connection.scheduled.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+    
+    /** Backlog first, then live events, skipping live ones the backlog already sent. */
+    private Object next(Connection connection) {
+        Object event = connection.backlog.poll();
+        if (event != null) {
+            if (event instanceof Notification notification) {
+                connection.replayedIds.add(notification.getId());
+            }
+            return event;
+        }
+        event = connection.buffer.poll();
+        if (event instanceof Notification notification && connection.replayedIds.remove(notification.getId())) {
+            return SKIP;
+        }
+        return event;
+    }
+    
+    private void close(Connection connection) {
+        if (connection.closed.compareAndSet(false, true)) {
+            connection.buffer.clear();
+            remove(connection);
+            connection.emitter.complete();
+        }
+    }
+    
+    private void remove(Connection connection) {
+        connection.closed.set(true);
+        connections.computeIfPresent(connection.userId, (key, userConnections) -> {
+            if (userConnections.remove(connection)) {
+                connectionCount.decrementAndGet();
+            }
+            return userConnections.isEmpty() ? null : userConnections;
+        });
+    }
+    
+    private SseEmitter.SseEventBuilder toEvent(Object event) {
+        if (event == RESYNC) {
+            return SseEmitter.event().name("resync").data("Too many missed notifications, reload the inbox");
+        }
+        if (event instanceof Notification notification) {
+            return SseEmitter.event()
+                    .id(String.valueOf(notification.getId()))
+                    .name("notification")
+                    .data(notification);
+        }
+        return SseEmitter.event().comment((String) event);
+    }
+    
+    private final class Connection {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<Object> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final Queue<Object> backlog = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean replaying = true;
+        // Only touched by the sender draining this connection
+        private final Set<Long> replayedIds = new HashSet<>();
+    
+        private Connection(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -1,18 +1,75 @@
 package com.ebanking.notificationservice.service;
 
+import com.ebanking.notificationservice.dto.NotificationPage;
+import com.ebanking.notificationservice.dto.NotificationsCreatedEvent;
+import com.ebanking.notificationservice.dto.UnreadCount;
 import com.ebanking.notificationservice.model.Notification;
+import com.ebanking.notificationservice.model.NotificationCounter;
+import com.ebanking.notificationservice.repository.NotificationCounterRepository;
 import com.ebanking.notificationservice.repository.NotificationRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
+@Slf4j
 @Service
-@RequiredArgsConstructor
-public class NotificationService {
+public class NotificationService implements SmartInitializingSingleton {
+    
+    // One statement, so the rows and the unread counters they add to commit together
+    private static final String INSERT_SQL =
+            "WITH inserted AS (" +
+            "INSERT INTO notifications (created_at, updated_at, user_id, message, notification_id, notification_type, " +
+            "recipient, status, subject, type) " +
+            "SELECT ?, ?, u.* FROM unnest(?::bigint[], ?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::text[]) " +
+            "AS u(user_id, message, notification_id, notification_type, recipient, status, subject, type) " +
+            "ON CONFLICT (notification_id) DO NOTHING RETURNING id, notification_id, user_id), " +
+            "counted AS (" +
+            "INSERT INTO notification_counters (user_id, unread) " +
+            "SELECT user_id, COUNT(*) FROM inserted GROUP BY user_id ORDER BY user_id " +
+            "ON CONFLICT (user_id) DO UPDATE SET unread = notification_counters.unread + EXCLUDED.unread) " +
+            "SELECT id, notification_id FROM inserted";
+    private static final int MAX_INBOX_PAGE_SIZE = 200;
     
     private final NotificationRepository notificationRepository;
+    private final NotificationCounterRepository notificationCounterRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final RecentNotificationIds recentNotificationIds;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter suppressedInMemory;
+    private final Counter suppressedInDatabase;
+    
+    public NotificationService(NotificationRepository notificationRepository,
+                               NotificationCounterRepository notificationCounterRepository,
+                               JdbcTemplate jdbcTemplate,
+                               RecentNotificationIds recentNotificationIds,
+                               ApplicationEventPublisher eventPublisher,
+                               MeterRegistry meterRegistry) {
+        this.notificationRepository = notificationRepository;
+        this.notificationCounterRepository = notificationCounterRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.recentNotificationIds = recentNotificationIds;
+        this.eventPublisher = eventPublisher;
+        this.suppressedInMemory = meterRegistry.counter("notification.duplicates.suppressed", "stage", "memory");
+        this.suppressedInDatabase = meterRegistry.counter("notification.duplicates.suppressed", "stage", "database");
+    }
     
     public List<Notification> getAllNotifications() {
         return notificationRepository.findAll();
@@ -22,6 +79,79 @@ public class NotificationService {
         return notificationRepository.findById(id);
     }
     
+    public NotificationPage getInbox(Long userId, Notification.NotificationStatus status, boolean unreadOnly,
+                                     String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_INBOX_PAGE_SIZE));
+        InboxCursor position = InboxCursor.decode(cursor);
+        
+        List<Notification> rows = position == null
+                ? notificationRepository.findInbox(userId, status, unreadOnly, Limit.of(pageSize + 1))
+                : notificationRepository.findInboxBefore(userId, status, unreadOnly,
+                        position.getCreatedAt(), position.getId(), Limit.of(pageSize + 1));
+        
+        if (rows.size() <= pageSize) {
+            return new NotificationPage(rows, null);
+        }
+        List<Notification> page = rows.subList(0, pageSize);
+        return new NotificationPage(page, InboxCursor.after(page.get(pageSize - 1)).encode());
+    }
+    
+    /**
+     * The user's notifications stored after the given id, oldest first, read
+     * a page at a time until there are no more or {@code limit} are loaded.
+     */
+    public List<Notification> getNotificationsAfter(Long userId, Long afterId, int limit) {
+        List<Notification> notifications = new ArrayList<>();
+        Long position = afterId;
+        while (notifications.size() < limit) {
+            int pageSize = Math.min(MAX_INBOX_PAGE_SIZE, limit - notifications.size());
+            List<Notification> page = notificationRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, position,
+                    Limit.of(pageSize));
+            notifications.addAll(page);
+            if (page.size() < pageSize) {
+                break;
+            }
+            position = page.get(page.size() - 1).getId();
+        }
+        return notifications;
+    }
+    
+    public UnreadCount getUnreadCount(Long userId) {
+        long unread = notificationCounterRepository.findById(userId)
+                .map(NotificationCounter::getUnread)
+                .orElse(0L);
+        return new UnreadCount(userId, unread);
+    }
+    
+    @Transactional
+    public void markRead(Long id) {
+        Notification notification = notificationRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Notification not found"));
+        // Only the call that actually flips the flag adjusts the counter
+        if (notificationRepository.markRead(id, LocalDateTime.now()) == 1) {
+            notificationCounterRepository.adjustUnread(notification.getUserId(), -1);
+        }
+    }
+    
+    @Transactional
+    public int markAllRead(Long userId) {
+        int marked = notificationRepository.markAllRead(userId, LocalDateTime.now());
+        if (marked > 0) {
+            notificationCounterRepository.adjustUnread(userId, -marked);
+        }
+        return marked;
+    }
+    
+    @Override
+    @Transactional
+    public void afterSingletonsInstantiated() {
+        int seeded = notificationCounterRepository.seedFromNotifications();
+        if (seeded > 0) {
+            log.info("Seeded unread counters for {} users", seeded);
+        }
+    }
+    
+    @Transactional
     public Notification createNotification(Notification notification) {
         if (notification.getType() == null) {
             notification.setType(Notification.NotificationType.DEFAULT);
@@ -31,13 +161,109 @@ public class NotificationService {
             notification.setType(notification.getNotificationType());
         }
         
-        return notificationRepository.save(notification);
+        Notification saved = notificationRepository.save(notification);
+        if (!saved.isRead()) {
+            notificationCounterRepository.adjustUnread(saved.getUserId(), 1);
+        }
+        eventPublisher.publishEvent(new NotificationsCreatedEvent(List.of(saved)));
+        return saved;
+    }
+    
+    /**
+     * Inserts a batch of notifications with a single statement and returns the
+     * ones actually inserted, with their ids set. Notification ids seen
+     * recently, repeated within the batch or already stored are skipped and
+     * counted as suppressed duplicates rather than failing the insert.
+     */
+    public List<Notification> createNotifications(List<Notification> notifications) {
+        Map<String, Notification> fresh = new LinkedHashMap<>();
+        int suppressed = 0;
+        for (Notification notification : notifications) {
+            String notificationId = notification.getNotificationId();
+            if (notificationId == null) {
+                throw new IllegalArgumentException("Batch notifications need a notification id");
+            }
+            if (recentNotificationIds.contains(notificationId) || fresh.putIfAbsent(notificationId, notification) != null) {
+                suppressed++;
+            }
+        }
+        suppressedInMemory.increment(suppressed);
+        if (fresh.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<String, Long> inserted = new HashMap<>();
+        // Truncated to what the column stores, so the returned objects match the rows
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        jdbcTemplate.query(connection -> {
+            List<Notification> rows = new ArrayList<>(fresh.values());
+            PreparedStatement ps = connection.prepareStatement(INSERT_SQL);
+            ps.setTimestamp(1, Timestamp.valueOf(now));
+            ps.setTimestamp(2, Timestamp.valueOf(now));
+            ps.setArray(3, connection.createArrayOf("bigint", column(rows, Notification::getUserId)));
+            ps.setArray(4, connection.createArrayOf("text", column(rows, Notification::getMessage)));
+            ps.setArray(5, connection.createArrayOf("text", column(rows, Notification::getNotificationId)));
+            ps.setArray(6, connection.createArrayOf("text", column(rows, n -> name(n.getNotificationType()))));
+            ps.setArray(7, connection.createArrayOf("text", column(rows, Notification::getRecipient)));
+            ps.setArray(8, connection.createArrayOf("text", column(rows, n -> name(n.getStatus()))));
+            ps.setArray(9, connection.createArrayOf("text", column(rows, Notification::getSubject)));
+            ps.setArray(10, connection.createArrayOf("text", column(rows, n -> name(effectiveType(n)))));
+            return ps;
+        }, rs -> {
+            inserted.put(rs.getString("notification_id"), rs.getLong("id"));
+        });
+        
+        // Stored either way now, by this insert or an earlier one
+        recentNotificationIds.addAll(fresh.keySet());
+        suppressedInDatabase.increment(fresh.size() - inserted.size());
+        
+        List<Notification> created = new ArrayList<>(inserted.size());
+        for (Notification notification : fresh.values()) {
+            Long id = inserted.get(notification.getNotificationId());
+            if (id != null) {
+                notification.setId(id);
+                notification.setType(effectiveType(notification));
+                notification.setCreatedAt(now);
+                notification.setUpdatedAt(now);
+                created.add(notification);
+            }
+        }
+        if (!created.isEmpty()) {
+            eventPublisher.publishEvent(new NotificationsCreatedEvent(created));
+        }
+        return created;
     }
     
+    private static Notification.NotificationType effectiveType(Notification notification) {
+        if (notification.getNotificationType() != null) {
+            return notification.getNotificationType();
+        }
+        return notification.getType() != null ? notification.getType() : Notification.NotificationType.DEFAULT;
+    }
+    
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+    
+    private static Object[] column(List<Notification> rows, Function<Notification, Object> getter) {
+        Object[] values = new Object[rows.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getter.apply(rows.get(i));
+        }
+        return values;
+    }
+    
+    @Transactional
     public Notification updateNotification(Long id, Notification notification) {
         Notification existingNotification = notificationRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Notification not found"));
         
+        if (notification.getUserId() != null && !notification.getUserId().equals(existingNotification.getUserId())
+                && !existingNotification.isRead()) {
+            notificationCounterRepository.adjustUnread(existingNotification.getUserId(), -1);
+            notificationCounterRepository.adjustUnread(notification.getUserId(), 1);
+        }
+        
         if (notification.getUserId() != null) {
             existingNotification.setUserId(notification.getUserId());
         }
@@ -73,7 +299,13 @@ public class NotificationService {
         return notificationRepository.save(existingNotification);
     }
     
+    @Transactional
     public void deleteNotification(Long id) {
-        notificationRepository.deleteById(id);
+        notificationRepository.findById(id).ifPresent(notification -> {
+            notificationRepository.delete(notification);
+            if (!notification.isRead()) {
+                notificationCounterRepository.adjustUnread(notification.getUserId(), -1);
+            }
+        });
     }
 }
@@ -0,0 +1,190 @@
+package com.ebanking.notificationservice.service;
+
+import com.ebanking.notificationservice.dto.TransactionEvent;
+import com.ebanking.notificationservice.model.Notification;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes transaction events on a pool of lanes, one thread each. A record
+ * goes to the lane its key hashes to, so events with the same key are handled
+ * one after another in offset order while different keys run in parallel.
+ * Each record is acknowledged once stored; the container commits a partition
+ * only up to its lowest offset not yet acknowledged.
+ * <p>
+ * Lane queues are bounded: when a lane is full the consumer thread waits,
+ * which stops polling until the lanes catch up.
+ * <p>
+ * A record that still cannot be stored after
+ * {@code notification.consumer.max-attempts} is published to the dead letter
+ * topic and acknowledged, so it does not hold up the rest of its lane.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "notification.consumer.mode", havingValue = "ordered")
+public class OrderedEventDispatcher {
+    
+    private final NotificationService notificationService;
+    private final DeadLetterPublishingRecoverer deadLetterRecoverer;
+    private final List<BlockingQueue<Task>> lanes = new ArrayList<>();
+    private final ExecutorService workers;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final int laneBatchSize;
+    private final long retryIntervalMs;
+    private final long maxAttempts;
+    
+    public OrderedEventDispatcher(NotificationService notificationService,
+                                  DeadLetterPublishingRecoverer deadLetterRecoverer,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${notification.consumer.lanes:0}") int laneCount,
+                                  @Value("${notification.consumer.lane-capacity:1000}") int laneCapacity,
+                                  @Value("${notification.consumer.lane-batch-size:100}") int laneBatchSize,
+                                  @Value("${notification.consumer.retry-interval-ms:1000}") long retryIntervalMs,
+                                  @Value("${notification.consumer.max-attempts:10}") long maxAttempts) {
+        this.notificationService = notificationService;
+        this.deadLetterRecoverer = deadLetterRecoverer;
+        this.laneBatchSize = laneBatchSize;
+        this.retryIntervalMs = retryIntervalMs;
+        this.maxAttempts = maxAttempts;
+        int count = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(count, runnable -> {
+            Thread thread = new Thread(runnable, "notification-lane-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < count; i++) {
+            BlockingQueue<Task> lane = new ArrayBlockingQueue<>(laneCapacity);
+            lanes.add(lane);
+            workers.execute(() -> drain(lane));
+        }
+        Gauge.builder("notification.consumer.ordered.pending", pending, AtomicInteger::get)
+                .description("Transaction events handed to a lane and not yet acknowledged")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Queues the record on its lane, blocking while that lane is full.
+     */
+    public void dispatch(ConsumerRecord<String, TransactionEvent> record, Notification notification,
+                         Acknowledgment acknowledgment) throws InterruptedException {
+        Object key = record.key() != null ? record.key() : record.partition();
+        BlockingQueue<Task> lane = lanes.get(Math.floorMod(key.hashCode(), lanes.size()));
+        pending.incrementAndGet();
+        lane.put(new Task(record, notification, acknowledgment));
+    }
+    
+    private void drain(BlockingQueue<Task> lane) {
+        List<Task> tasks = new ArrayList<>(laneBatchSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                tasks.add(lane.take());
+                lane.drainTo(tasks, laneBatchSize - 1);
+                store(tasks);
+                for (Task task : tasks) {
+                    task.getAcknowledgment().acknowledge();
+                }
+                pending.addAndGet(-tasks.size());
+                tasks.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Stores the lane's batch. If that fails, each notification is retried on
+     * its own, in order, so only a record that keeps failing is dead-lettered
+     * and the later records on this lane still wait behind it until then.
+     */
+    private void store(List<Task> tasks) throws InterruptedException {
+        List<Notification> notifications = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (task.getNotification() != null) {
+                notifications.add(task.getNotification());
+            }
+        }
+        try {
+            notificationService.createNotifications(notifications);
+            return;
+        } catch (Exception e) {
+            log.error("Storing {} notifications failed, storing them one by one: {}", notifications.size(), e.getMessage());
+        }
+        for (Task task : tasks) {
+            if (task.getNotification() != null) {
+                storeOne(task);
+            }
+        }
+    }
+    
+    private void storeOne(Task task) throws InterruptedException {
+        for (long attempt = 1; ; attempt++) {
+            try {
+                notificationService.createNotifications(List.of(task.getNotification()));
+                return;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    deadLetter(task, e);
+                    return;
+                }
+                log.warn("Storing notification {} failed (attempt {} of {}), retrying: {}",
+                        task.getNotification().getNotificationId(), attempt, maxAttempts, e.getMessage());
+                TimeUnit.MILLISECONDS.sleep(retryIntervalMs);
+            }
+        }
+    }
+    
+    /**
+     * Publishes the record to the dead letter topic. Until that succeeds the
+     * record cannot be acknowledged without being lost, so a failing publish,
+     * i.e. Kafka itself being unavailable, is retried.
+     */
+    private void deadLetter(Task task, Exception cause) throws InterruptedException {
+        ConsumerRecord<String, TransactionEvent> record = task.getRecord();
+        log.error("Giving up on transaction event at {}-{}@{} after {} attempts: {}",
+                record.topic(), record.partition(), record.offset(), maxAttempts, cause.getMessage());
+        while (true) {
+            try {
+                deadLetterRecoverer.accept(record, cause);
+                return;
+            } catch (Exception e) {
+                log.error("Publishing transaction event {}-{}@{} to the dead letter topic failed, retrying: {}",
+                        record.topic(), record.partition(), record.offset(), e.getMessage());
+                TimeUnit.MILLISECONDS.sleep(retryIntervalMs);
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        // Anything not yet acknowledged is redelivered after the restart
+        workers.shutdownNow();
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    private static class Task {
+        private final ConsumerRecord<String, TransactionEvent> record;
+        private final Notification notification;
+        private final Acknowledgment acknowledgment;
+    }
+}
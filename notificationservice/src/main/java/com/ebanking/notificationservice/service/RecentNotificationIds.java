@@ -0,0 +1,38 @@
+package com.ebanking.notificationservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded set of notification ids known to be stored, oldest evicted first.
+ * Lets redelivered events be dropped without a database round trip; an id
+ * that has been evicted is still caught by the unique constraint.
+ */
+@Component
+public class RecentNotificationIds {
+    
+    private final Map<String, Boolean> ids;
+    
+    public RecentNotificationIds(@Value("${notification.dedup.recent-ids:100000}") int capacity) {
+        this.ids = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+    
+    public synchronized boolean contains(String notificationId) {
+        return ids.containsKey(notificationId);
+    }
+    
+    public synchronized void addAll(Collection<String> notificationIds) {
+        for (String notificationId : notificationIds) {
+            ids.put(notificationId, Boolean.TRUE);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.ebanking.notificationservice.service;
+
+import com.ebanking.notificationservice.model.Notification;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InboxCursorTest {
+    
+    @Test
+    void cursorRoundTripsThroughAnOpaqueUrlSafeToken() {
+        Notification notification = new Notification();
+        notification.setId(42L);
+        notification.setCreatedAt(LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123456000));
+    
+        String token = InboxCursor.after(notification).encode();
+        InboxCursor cursor = InboxCursor.decode(token);
+    
+        assertFalse(token.contains("|") || token.contains("=") || token.contains("/") || token.contains("+"));
+        assertEquals(notification.getCreatedAt(), cursor.getCreatedAt());
+        assertEquals(42L, cursor.getId());
+    }
+    
+    @Test
+    void missingCursorMeansTheFirstPage() {
+        assertNull(InboxCursor.decode(null));
+        assertNull(InboxCursor.decode(""));
+    }
+    
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> InboxCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> InboxCursor.decode("MjAyNC0wMy0wMQ"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.ebanking.notificationservice.service;
+
+import com.ebanking.notificationservice.dto.TransactionEvent;
+import com.ebanking.notificationservice.model.Notification;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KafkaConsumerServiceTest {
+    
+    private final NotificationService notificationService = mock(NotificationService.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaConsumerService consumerService =
+            new KafkaConsumerService(notificationService, mock(ObjectProvider.class));
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void completedEventsOfAPollAreStoredWithOneInsert() {
+        ConsumerRecord<String, TransactionEvent> first = record(0, event("tx-1", "COMPLETED"));
+        ConsumerRecord<String, TransactionEvent> failed = record(1, event("tx-2", "FAILED"));
+        ConsumerRecord<String, TransactionEvent> unreadable = record(2, null);
+        ConsumerRecord<String, TransactionEvent> second = record(3, event("tx-3", "COMPLETED"));
+        when(notificationService.createNotifications(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    
+        consumerService.consumeTransactionEvents(List.of(first, failed, unreadable, second));
+    
+        ArgumentCaptor<List<Notification>> batch = ArgumentCaptor.forClass(List.class);
+        verify(notificationService, times(1)).createNotifications(batch.capture());
+        assertEquals(List.of("NOTIF-tx-1", "NOTIF-tx-3"),
+                batch.getValue().stream().map(Notification::getNotificationId).toList());
+        assertEquals(7L, batch.getValue().get(0).getUserId());
+        assertEquals(Notification.NotificationStatus.PENDING, batch.getValue().get(0).getStatus());
+    }
+    
+    @Test
+    void failedBatchIsRetriedOneByOneAndBlamesTheFailingRecord() {
+        ConsumerRecord<String, TransactionEvent> first = record(0, event("tx-1", "COMPLETED"));
+        ConsumerRecord<String, TransactionEvent> skipped = record(1, event("tx-2", "FAILED"));
+        ConsumerRecord<String, TransactionEvent> poison = record(2, event("tx-3", "COMPLETED"));
+        ConsumerRecord<String, TransactionEvent> last = record(3, event("tx-4", "COMPLETED"));
+        when(notificationService.createNotifications(anyList())).thenAnswer(invocation -> {
+            List<Notification> notifications = invocation.getArgument(0);
+            if (notifications.stream().anyMatch(n -> n.getNotificationId().equals("NOTIF-tx-3"))) {
+                throw new IllegalStateException("value too long");
+            }
+            return notifications;
+        });
+    
+        BatchListenerFailedException e = assertThrows(BatchListenerFailedException.class,
+                () -> consumerService.consumeTransactionEvents(List.of(first, skipped, poison, last)));
+    
+        assertSame(poison, e.getRecord());
+        verify(notificationService).createNotifications(List.of(notification("tx-1")));
+    }
+    
+    @Test
+    void transientBatchFailureStoresEveryRecordIndividually() {
+        ConsumerRecord<String, TransactionEvent> first = record(0, event("tx-1", "COMPLETED"));
+        ConsumerRecord<String, TransactionEvent> second = record(1, event("tx-2", "COMPLETED"));
+        when(notificationService.createNotifications(anyList()))
+                .thenThrow(new IllegalStateException("deadlock detected"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+    
+        consumerService.consumeTransactionEvents(List.of(first, second));
+    
+        verify(notificationService).createNotifications(List.of(notification("tx-1")));
+        verify(notificationService).createNotifications(List.of(notification("tx-2")));
+    }
+    
+    private static ConsumerRecord<String, TransactionEvent> record(long offset, TransactionEvent event) {
+        return new ConsumerRecord<>("transaction-events", 0, offset, "7", event);
+    }
+    
+    private static TransactionEvent event(String transactionId, String status) {
+        return new TransactionEvent(transactionId, "TRANSFER", new BigDecimal("10.00"), "USD", null, 1L, 2L, 7L, status);
+    }
+    
+    private static Notification notification(String transactionId) {
+        Notification notification = new Notification();
+        notification.setUserId(7L);
+        notification.setType(Notification.NotificationType.DEFAULT);
+        notification.setStatus(Notification.NotificationStatus.PENDING);
+        notification.setNotificationId("NOTIF-" + transactionId);
+        notification.setMessage("Transaction TRANSFER completed. Amount: 10.00 USD. Transaction ID: " + transactionId);
+        notification.setSubject("Transaction TRANSFER");
+        return notification;
+    }
+}
@@ -0,0 +1,212 @@
+package com.ebanking.notificationservice.service;
+
+import com.ebanking.notificationservice.dto.NotificationsCreatedEvent;
+import com.ebanking.notificationservice.model.Notification;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NotificationPushRegistryTest {
+    
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private NotificationPushRegistry pushRegistry;
+    
+    @AfterEach
+    void tearDown() {
+        pushRegistry.shutdown();
+    }
+    
+    @Test
+    void backlogIsSentFirstAndLiveEventsItCoveredAreSkipped() throws Exception {
+        pushRegistry = pushRegistry(64, 10, 100);
+    
+        RecordingEmitter emitter = (RecordingEmitter) pushRegistry.subscribe(7L, limit -> {
+            // Stored while the backlog was loading, so delivered live as well
+            pushRegistry.deliver(created(notification(2L, 7L), notification(3L, 7L)));
+            return List.of(notification(1L, 7L), notification(2L, 7L));
+        });
+        pushRegistry.deliver(created(notification(4L, 7L)));
+    
+        assertEquals(List.of("notification 1", "notification 2", "connected", "notification 3", "notification 4"),
+                emitter.next(5));
+    }
+    
+    @Test
+    void backlogLongerThanMaxReplayAsksTheClientToResync() throws Exception {
+        pushRegistry = pushRegistry(64, 10, 2);
+        AtomicInteger requested = new AtomicInteger();
+    
+        RecordingEmitter emitter = (RecordingEmitter) pushRegistry.subscribe(7L, limit -> {
+            requested.set(limit);
+            return List.of(notification(1L, 7L), notification(2L, 7L), notification(3L, 7L));
+        });
+    
+        assertEquals(3, requested.get());
+        assertEquals(List.of("resync", "connected"), emitter.next(2));
+    }
+    
+    @Test
+    void notificationsReachOnlyTheirUsersStreams() throws Exception {
+        pushRegistry = pushRegistry(64, 10, 100);
+        RecordingEmitter first = (RecordingEmitter) pushRegistry.subscribe(7L, limit -> List.of());
+        RecordingEmitter second = (RecordingEmitter) pushRegistry.subscribe(7L, limit -> List.of());
+        RecordingEmitter other = (RecordingEmitter) pushRegistry.subscribe(8L, limit -> List.of());
+    
+        pushRegistry.deliver(created(notification(1L, 7L), notification(2L, 8L)));
+    
+        assertEquals(List.of("connected", "notification 1"), first.next(2));
+        assertEquals(List.of("connected", "notification 1"), second.next(2));
+        assertEquals(List.of("connected", "notification 2"), other.next(2));
+    }
+    
+    @Test
+    void storedNotificationsFanOutThroughKafka() throws Exception {
+        pushRegistry = pushRegistry(64, 10, 100);
+        RecordingEmitter emitter = (RecordingEmitter) pushRegistry.subscribe(7L, limit -> List.of());
+        when(kafkaTemplate.send(eq(NotificationPushRegistry.TOPIC), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    
+        pushRegistry.onNotificationsCreated(created(notification(1L, 7L)));
+        pushRegistry.deliver(created(notification(2L, 7L)));
+    
+        assertEquals(List.of("connected", "notification 2"), emitter.next(2));
+    }
+    
+    @Test
+    void localStreamsStillGetNotificationsKafkaRejected() throws Exception {
+        pushRegistry = pushRegistry(64, 10, 100);
+        RecordingEmitter emitter = (RecordingEmitter) pushRegistry.subscribe(7L, limit -> List.of());
+        when(kafkaTemplate.send(eq(NotificationPushRegistry.TOPIC), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+    
+        pushRegistry.onNotificationsCreated(created(notification(1L, 7L)));
+    
+        assertEquals(List.of("connected", "notification 1"), emitter.next(2));
+    }
+    
+    @Test
+    void slowStreamIsClosedWhenItsBufferFills() throws Exception {
+        pushRegistry = pushRegistry(1, 10, 100);
+        RecordingEmitter emitter = (RecordingEmitter) pushRegistry.subscribe(7L, limit -> List.of());
+        emitter.hold();
+        pushRegistry.heartbeat();
+        assertTrue(emitter.sending.await(5, TimeUnit.SECONDS));
+    
+        pushRegistry.deliver(created(notification(1L, 7L)));
+        pushRegistry.deliver(created(notification(2L, 7L)));
+        emitter.release.countDown();
+    
+        assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(1.0, meterRegistry.counter("notification.push.dropped").count());
+        assertEquals(0.0, meterRegistry.get("notification.push.connections").gauge().value());
+    }
+    
+    @Test
+    void streamsBeyondTheLimitAreRefused() {
+        pushRegistry = pushRegistry(64, 1, 100);
+        pushRegistry.subscribe(7L, limit -> List.of());
+    
+        assertThrows(IllegalStateException.class, () -> pushRegistry.subscribe(8L, limit -> List.of()));
+        assertEquals(1.0, meterRegistry.get("notification.push.connections").gauge().value());
+    }
+    
+    private NotificationPushRegistry pushRegistry(int bufferSize, int maxConnections, int maxReplay) {
+        return new NotificationPushRegistry(kafkaTemplate, meterRegistry, 2, bufferSize, maxConnections, 60_000,
+                maxReplay) {
+            @Override
+            SseEmitter createEmitter(long timeoutMs) {
+                return new RecordingEmitter();
+            }
+        };
+    }
+    
+    private static NotificationsCreatedEvent created(Notification... notifications) {
+        return new NotificationsCreatedEvent(List.of(notifications));
+    }
+    
+    private static Notification notification(Long id, Long userId) {
+        Notification notification = new Notification();
+        notification.setId(id);
+        notification.setUserId(userId);
+        notification.setNotificationId("NOTIF-" + id);
+        return notification;
+    }
+    
+    /** Records what would have been written to the client, one line per event. */
+    private static final class RecordingEmitter extends SseEmitter {
+    
+        private final BlockingQueue<String> sent = new LinkedBlockingQueue<>();
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile boolean held;
+    
+        /** Blocks the next send, as a client that stopped reading would. */
+        void hold() throws InterruptedException {
+            next(1);
+            held = true;
+        }
+    
+        List<String> next(int count) throws InterruptedException {
+            List<String> events = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String event = sent.poll(5, TimeUnit.SECONDS);
+                if (event == null) {
+                    break;
+                }
+                events.add(event);
+            }
+            return events;
+        }
+    
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (held) {
+                sending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof Notification notification) {
+                    sent.add("notification " + notification.getId());
+                    return;
+                }
+                text.append(part.getData());
+            }
+            String raw = text.toString().trim();
+            sent.add(raw.startsWith(":") ? raw.substring(1) : raw.contains("event:resync") ? "resync" : raw);
+        }
+    
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+}
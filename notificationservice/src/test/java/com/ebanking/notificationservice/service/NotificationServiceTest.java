@@ -0,0 +1,221 @@
+package com.ebanking.notificationservice.service;
+
+import com.ebanking.notificationservice.dto.NotificationPage;
+import com.ebanking.notificationservice.dto.NotificationsCreatedEvent;
+import com.ebanking.notificationservice.model.Notification;
+import com.ebanking.notificationservice.model.NotificationCounter;
+import com.ebanking.notificationservice.repository.NotificationCounterRepository;
+import com.ebanking.notificationservice.repository.NotificationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationServiceTest {
+    
+    private final NotificationRepository notificationRepository = mock(NotificationRepository.class);
+    private final NotificationCounterRepository notificationCounterRepository =
+            mock(NotificationCounterRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final RecentNotificationIds recentNotificationIds = new RecentNotificationIds(100);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final NotificationService notificationService = new NotificationService(notificationRepository,
+            notificationCounterRepository, jdbcTemplate, recentNotificationIds, eventPublisher, meterRegistry);
+    private final Map<String, Long> storedIds = new HashMap<>();
+    private final List<List<Object>> insertedBatches = new ArrayList<>();
+    
+    /** The batched insert against a table with a unique notification id, skipping ids already stored. */
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            Connection connection = mock(Connection.class);
+            List<Object[]> columns = new ArrayList<>();
+            when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+            when(connection.createArrayOf(anyString(), any(Object[].class))).thenAnswer(call -> {
+                columns.add(call.getArgument(1));
+                return mock(Array.class);
+            });
+            invocation.<PreparedStatementCreator>getArgument(0).createPreparedStatement(connection);
+    
+            Object[] notificationIds = columns.get(2);
+            insertedBatches.add(List.of(notificationIds));
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Object notificationId : notificationIds) {
+                if (storedIds.containsKey((String) notificationId)) {
+                    continue;
+                }
+                long id = storedIds.size() + 1L;
+                storedIds.put((String) notificationId, id);
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString("notification_id")).thenReturn((String) notificationId);
+                when(rs.getLong("id")).thenReturn(id);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+    
+    @Test
+    void duplicatesInTheBatchOrSeenRecentlyNeverReachTheInsert() {
+        recentNotificationIds.addAll(List.of("NOTIF-1"));
+    
+        List<Notification> created = notificationService.createNotifications(List.of(
+                notification("NOTIF-1"), notification("NOTIF-2"), notification("NOTIF-2"), notification("NOTIF-3")));
+    
+        assertEquals(List.of(List.of("NOTIF-2", "NOTIF-3")), insertedBatches);
+        assertEquals(List.of("NOTIF-2", "NOTIF-3"), created.stream().map(Notification::getNotificationId).toList());
+        assertEquals(2.0, suppressed("memory"));
+        assertEquals(0.0, suppressed("database"));
+        assertTrue(created.stream().allMatch(notification -> notification.getId() != null
+                && notification.getCreatedAt() != null && notification.getType() != null));
+    }
+    
+    @Test
+    void idsAlreadyStoredAreSkippedByTheInsertWithoutFailingIt() {
+        storedIds.put("NOTIF-2", 1L);
+    
+        List<Notification> created = notificationService.createNotifications(
+                List.of(notification("NOTIF-2"), notification("NOTIF-3")));
+    
+        assertEquals(List.of("NOTIF-3"), created.stream().map(Notification::getNotificationId).toList());
+        assertEquals(1.0, suppressed("database"));
+        assertTrue(recentNotificationIds.contains("NOTIF-2"));
+        assertTrue(recentNotificationIds.contains("NOTIF-3"));
+        ArgumentCaptor<NotificationsCreatedEvent> event = ArgumentCaptor.forClass(NotificationsCreatedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(created, event.getValue().getNotifications());
+    }
+    
+    @Test
+    void redeliveredBatchIsDroppedWithoutAnInsertOrEvent() {
+        notificationService.createNotifications(List.of(notification("NOTIF-1")));
+    
+        List<Notification> created = notificationService.createNotifications(List.of(notification("NOTIF-1")));
+    
+        assertEquals(List.of(), created);
+        assertEquals(1, insertedBatches.size());
+        verify(eventPublisher).publishEvent(any(NotificationsCreatedEvent.class));
+    }
+    
+    @Test
+    void batchNotificationsNeedAnId() {
+        assertThrows(IllegalArgumentException.class,
+                () -> notificationService.createNotifications(List.of(notification(null))));
+    
+        verify(jdbcTemplate, never()).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+    
+    @Test
+    void inboxPagesFollowTheCursorOfTheLastReturnedRow() {
+        LocalDateTime now = LocalDateTime.of(2024, 3, 1, 12, 0);
+        when(notificationRepository.findInbox(7L, null, true, Limit.of(3)))
+                .thenReturn(List.of(stored(5L, now), stored(4L, now), stored(3L, now.minusMinutes(1))));
+        when(notificationRepository.findInboxBefore(7L, null, true, now, 4L, Limit.of(3)))
+                .thenReturn(List.of(stored(3L, now.minusMinutes(1))));
+    
+        NotificationPage first = notificationService.getInbox(7L, null, true, null, 2);
+        NotificationPage second = notificationService.getInbox(7L, null, true, first.getNextCursor(), 2);
+    
+        assertEquals(List.of(5L, 4L), first.getItems().stream().map(Notification::getId).toList());
+        assertEquals(List.of(3L), second.getItems().stream().map(Notification::getId).toList());
+        assertNull(second.getNextCursor());
+    }
+    
+    @Test
+    void inboxPageSizeIsClamped() {
+        notificationService.getInbox(7L, null, false, null, 10_000);
+        notificationService.getInbox(7L, null, false, null, 0);
+    
+        verify(notificationRepository).findInbox(7L, null, false, Limit.of(201));
+        verify(notificationRepository).findInbox(7L, null, false, Limit.of(2));
+    }
+    
+    @Test
+    void unreadCountComesFromTheCounterRow() {
+        when(notificationCounterRepository.findById(7L)).thenReturn(Optional.of(new NotificationCounter(7L, 3)));
+    
+        assertEquals(3L, notificationService.getUnreadCount(7L).getUnread());
+        assertEquals(0L, notificationService.getUnreadCount(8L).getUnread());
+    }
+    
+    @Test
+    void onlyTheCallThatFlipsANotificationDecrementsTheCounter() {
+        when(notificationRepository.findById(5L)).thenReturn(Optional.of(stored(5L, LocalDateTime.now())));
+        when(notificationRepository.markRead(eq(5L), any())).thenReturn(1, 0);
+    
+        notificationService.markRead(5L);
+        notificationService.markRead(5L);
+    
+        verify(notificationCounterRepository, times(1)).adjustUnread(7L, -1);
+    }
+    
+    @Test
+    void markAllReadDecrementsByTheRowsItMarked() {
+        when(notificationRepository.markAllRead(eq(7L), any())).thenReturn(4, 0);
+    
+        assertEquals(4, notificationService.markAllRead(7L));
+        assertEquals(0, notificationService.markAllRead(7L));
+    
+        verify(notificationCounterRepository).adjustUnread(7L, -4);
+        verify(notificationCounterRepository, never()).adjustUnread(7L, 0);
+    }
+    
+    @Test
+    void insertedBatchCountsTowardsUnreadInTheSameStatement() {
+        notificationService.createNotifications(List.of(notification("NOTIF-1")));
+    
+        verify(notificationCounterRepository, never()).adjustUnread(anyLong(), anyLong());
+    }
+    
+    private double suppressed(String stage) {
+        return meterRegistry.counter("notification.duplicates.suppressed", "stage", stage).count();
+    }
+    
+    private static Notification notification(String notificationId) {
+        Notification notification = new Notification();
+        notification.setUserId(7L);
+        notification.setNotificationId(notificationId);
+        notification.setMessage("Transaction TRANSFER completed.");
+        notification.setStatus(Notification.NotificationStatus.PENDING);
+        return notification;
+    }
+    
+    private static Notification stored(Long id, LocalDateTime createdAt) {
+        Notification notification = notification("NOTIF-" + id);
+        notification.setId(id);
+        notification.setCreatedAt(createdAt);
+        return notification;
+    }
+}
@@ -0,0 +1,151 @@
+package com.ebanking.notificationservice.service;
+
+import com.ebanking.notificationservice.dto.TransactionEvent;
+import com.ebanking.notificationservice.model.Notification;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderedEventDispatcherTest {
+    
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final DeadLetterPublishingRecoverer deadLetterRecoverer = mock(DeadLetterPublishingRecoverer.class);
+    private final List<String> stored = Collections.synchronizedList(new ArrayList<>());
+    private OrderedEventDispatcher dispatcher;
+    
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+    
+    @Test
+    void eventsWithTheSameKeyAreStoredInOffsetOrder() throws Exception {
+        dispatcher = dispatcher(4, 3);
+        when(notificationService.createNotifications(anyList())).thenAnswer(invocation -> {
+            List<Notification> notifications = invocation.getArgument(0);
+            notifications.forEach(notification -> stored.add(notification.getNotificationId()));
+            return notifications;
+        });
+        CountDownLatch acknowledged = new CountDownLatch(200);
+    
+        for (int offset = 0; offset < 200; offset++) {
+            String key = String.valueOf(offset % 5);
+            dispatcher.dispatch(record(key, offset), notification(key + "-" + offset), acknowledged::countDown);
+        }
+    
+        assertTrue(acknowledged.await(5, TimeUnit.SECONDS));
+        assertEquals(200, stored.size());
+        for (int key = 0; key < 5; key++) {
+            String prefix = key + "-";
+            List<Integer> offsets = stored.stream().filter(id -> id.startsWith(prefix))
+                    .map(id -> Integer.valueOf(id.substring(prefix.length()))).toList();
+            assertEquals(offsets.stream().sorted().toList(), offsets);
+            assertEquals(40, offsets.size());
+        }
+    }
+    
+    @Test
+    void recordIsAcknowledgedOnlyOnceStored() throws Exception {
+        dispatcher = dispatcher(1, 3);
+        CountDownLatch storing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(notificationService.createNotifications(anyList())).thenAnswer(invocation -> {
+            storing.countDown();
+            release.await();
+            return invocation.getArgument(0);
+        });
+        CountDownLatch acknowledged = new CountDownLatch(1);
+    
+        dispatcher.dispatch(record("7", 0), notification("a"), acknowledged::countDown);
+    
+        assertTrue(storing.await(5, TimeUnit.SECONDS));
+        assertEquals(1, acknowledged.getCount());
+        release.countDown();
+        assertTrue(acknowledged.await(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    void recordThatKeepsFailingIsDeadLetteredAndTheLaneMovesOn() throws Exception {
+        dispatcher = dispatcher(1, 3);
+        when(notificationService.createNotifications(anyList())).thenAnswer(invocation -> {
+            List<Notification> notifications = invocation.getArgument(0);
+            if (notifications.stream().anyMatch(notification -> notification.getNotificationId().equals("poison"))) {
+                throw new IllegalStateException("value too long");
+            }
+            notifications.forEach(notification -> stored.add(notification.getNotificationId()));
+            return notifications;
+        });
+        CountDownLatch acknowledged = new CountDownLatch(4);
+        ConsumerRecord<String, TransactionEvent> poison = record("7", 1);
+    
+        // Hold the lane so the records behind the first one drain as one batch
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.dispatch(record("7", 0), null, () -> {
+            awaitQuietly(release);
+            acknowledged.countDown();
+        });
+        dispatcher.dispatch(poison, notification("poison"), acknowledged::countDown);
+        dispatcher.dispatch(record("7", 2), notification("b"), acknowledged::countDown);
+        dispatcher.dispatch(record("7", 3), null, acknowledged::countDown);
+        release.countDown();
+    
+        assertTrue(acknowledged.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("b"), stored);
+        verify(deadLetterRecoverer, times(1)).accept(any(), any(Exception.class));
+        verify(deadLetterRecoverer).accept(eq(poison), any(IllegalStateException.class));
+    }
+    
+    @Test
+    void recordsWithoutANotificationAreAcknowledgedWithoutStoring() throws Exception {
+        dispatcher = dispatcher(1, 3);
+        CountDownLatch acknowledged = new CountDownLatch(1);
+    
+        dispatcher.dispatch(record("7", 0), null, acknowledged::countDown);
+    
+        assertTrue(acknowledged.await(5, TimeUnit.SECONDS));
+        verify(deadLetterRecoverer, never()).accept(any(), any(Exception.class));
+    }
+    
+    private OrderedEventDispatcher dispatcher(int lanes, long maxAttempts) {
+        return new OrderedEventDispatcher(notificationService, deadLetterRecoverer, new SimpleMeterRegistry(),
+                lanes, 1000, 100, 1, maxAttempts);
+    }
+    
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static ConsumerRecord<String, TransactionEvent> record(String key, long offset) {
+        return new ConsumerRecord<>("transaction-events", 0, offset, key, new TransactionEvent());
+    }
+    
+    private static Notification notification(String notificationId) {
+        Notification notification = new Notification();
+        notification.setUserId(7L);
+        notification.setNotificationId(notificationId);
+        return notification;
+    }
+}
@@ -0,0 +1,34 @@
+package com.ebanking.notificationservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecentNotificationIdsTest {
+    
+    @Test
+    void oldestIdsAreEvictedFirst() {
+        RecentNotificationIds recentIds = new RecentNotificationIds(2);
+    
+        recentIds.addAll(List.of("NOTIF-1", "NOTIF-2"));
+        recentIds.addAll(List.of("NOTIF-1", "NOTIF-3"));
+    
+        assertFalse(recentIds.contains("NOTIF-1"));
+        assertTrue(recentIds.contains("NOTIF-2"));
+        assertTrue(recentIds.contains("NOTIF-3"));
+    }
+    
+    @Test
+    void lookupsDoNotRefreshAnId() {
+        RecentNotificationIds recentIds = new RecentNotificationIds(2);
+        recentIds.addAll(List.of("NOTIF-1", "NOTIF-2"));
+    
+        assertTrue(recentIds.contains("NOTIF-1"));
+        recentIds.addAll(List.of("NOTIF-3"));
+    
+        assertFalse(recentIds.contains("NOTIF-1"));
+    }
+}
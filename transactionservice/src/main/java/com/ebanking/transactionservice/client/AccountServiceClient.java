@@ -1,20 +1,41 @@
 package com.ebanking.transactionservice.client;
 
 import com.ebanking.transactionservice.dto.Account;
+import com.ebanking.transactionservice.dto.AccountBalance;
+import com.ebanking.transactionservice.dto.AccountLookupResult;
+import com.ebanking.transactionservice.dto.BalancePosting;
 import com.ebanking.transactionservice.dto.BalanceUpdateRequest;
+import com.ebanking.transactionservice.dto.PostingResult;
+import com.ebanking.transactionservice.dto.TransferRequest;
+import com.ebanking.transactionservice.dto.TransferResponse;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
+
 @FeignClient(name = "accountservice")
 public interface AccountServiceClient {
     
     @GetMapping("/api/accounts/{id}")
     ResponseEntity<Account> getAccountById(@PathVariable Long id);
     
+    @PostMapping("/api/accounts/batch-get")
+    ResponseEntity<List<AccountLookupResult>> getAccountsByIds(@RequestBody List<Long> ids);
+    
+    @PostMapping("/api/accounts/balances/batch-get")
+    ResponseEntity<List<AccountBalance>> getBalancesByIds(@RequestBody List<Long> ids);
+    
     @PutMapping("/api/accounts/{id}/balance")
     ResponseEntity<Account> updateBalance(@PathVariable Long id, @RequestBody BalanceUpdateRequest request);
+    
+    @PostMapping("/api/accounts/transfers")
+    ResponseEntity<TransferResponse> transfer(@RequestBody TransferRequest request);
+    
+    @PostMapping("/api/accounts/postings/batch")
+    ResponseEntity<List<PostingResult>> applyPostings(@RequestBody List<BalancePosting> postings);
 }
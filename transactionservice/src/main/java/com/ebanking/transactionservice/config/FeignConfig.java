@@ -9,6 +9,11 @@ import org.springframework.security.oauth2.server.resource.authentication.JwtAut
 @Configuration
 public class FeignConfig {
     
+    /**
+     * Relays the caller's JWT. The token is read from the current thread's
+     * SecurityContext, so calls made off the request thread must go through
+     * {@link RemoteCallExecutor}, which carries the context along.
+     */
     @Bean
     public RequestInterceptor requestInterceptor() {
         return requestTemplate -> {
@@ -0,0 +1,30 @@
+package com.ebanking.transactionservice.config;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs blocking remote calls on virtual threads. Each task runs with the
+ * submitting thread's SecurityContext, so the Feign interceptor in
+ * {@link FeignConfig} still finds the caller's JWT.
+ */
+@Component
+public class RemoteCallExecutor {
+    
+    private final ExecutorService executor =
+            new DelegatingSecurityContextExecutorService(Executors.newVirtualThreadPerTaskExecutor());
+    
+    public CompletableFuture<Void> runAsync(Runnable call) {
+        return CompletableFuture.runAsync(call, executor);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,35 @@
+package com.ebanking.transactionservice.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves transactions_seq past ids handed out by the former IDENTITY column,
+ * so pooled sequence ids never collide with existing rows. Runs after
+ * Hibernate has created or updated the schema.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class SequenceInitializer {
+    
+    // Hibernate's pooled optimizer hands out (value - allocationSize, value]
+    private static final int ALLOCATION_SIZE = 50;
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @PostConstruct
+    public void alignTransactionSequence() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM transactions", Long.class);
+        Long lastValue = jdbcTemplate.queryForObject("SELECT last_value FROM transactions_seq", Long.class);
+        if (maxId != null && lastValue != null && maxId > 0 && lastValue <= maxId) {
+            jdbcTemplate.queryForObject("SELECT setval('transactions_seq', ?, false)", Long.class, maxId + ALLOCATION_SIZE);
+            log.info("Aligned transactions_seq past existing id {}", maxId);
+        }
+    }
+}
@@ -1,13 +1,36 @@
 package com.ebanking.transactionservice.controller;
 
+import com.ebanking.transactionservice.dto.BatchItemResult;
+import com.ebanking.transactionservice.dto.TransactionPage;
+import com.ebanking.transactionservice.dto.TransactionStatusResponse;
+import com.ebanking.transactionservice.exception.DuplicateTransactionException;
+import com.ebanking.transactionservice.exception.IdempotencyConflictException;
+import com.ebanking.transactionservice.exception.IdempotencyMismatchException;
 import com.ebanking.transactionservice.model.Transaction;
+import com.ebanking.transactionservice.service.BatchTransactionService;
+import com.ebanking.transactionservice.service.TransactionExportService;
 import com.ebanking.transactionservice.service.TransactionService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -15,12 +38,50 @@ import java.util.List;
 public class TransactionController {
     
     private final TransactionService transactionService;
+    private final BatchTransactionService batchTransactionService;
+    private final TransactionExportService transactionExportService;
+    private final ObjectMapper objectMapper;
     
     @GetMapping
     public ResponseEntity<List<Transaction>> getAllTransactions() {
         return ResponseEntity.ok(transactionService.getAllTransactions());
     }
     
+    /**
+     * Streams transactions as NDJSON or CSV in id order. Pass the last id
+     * received as {@code afterId} to resume an interrupted export. The body is
+     * gzipped when the client accepts it.
+     */
+    @GetMapping("/export")
+    public void exportTransactions(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) Long accountId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long afterId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        TransactionExportService.Format exportFormat;
+        try {
+            exportFormat = TransactionExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Unsupported format: " + format);
+            return;
+        }
+        
+        response.setContentType(exportFormat == TransactionExportService.Format.CSV
+                ? "text/csv;charset=UTF-8"
+                : MediaType.APPLICATION_NDJSON_VALUE);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        
+        OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), 64 * 1024) : response.getOutputStream();
+        transactionExportService.export(out, exportFormat, accountId, from, to, afterId);
+        out.close();
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<Transaction> getTransactionById(@PathVariable Long id) {
         return transactionService.getTransactionById(id)
@@ -33,10 +94,82 @@ public class TransactionController {
         return ResponseEntity.ok(transactionService.getTransactionsByAccountId(accountId));
     }
     
+    @GetMapping("/account/{accountId}/history")
+    public ResponseEntity<TransactionPage> getAccountHistory(
+            @PathVariable Long accountId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Transaction.TransactionType type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(transactionService.getAccountHistory(accountId, from, to, type, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/{id}/status")
+    public ResponseEntity<TransactionStatusResponse> getTransactionStatus(@PathVariable Long id) {
+        return transactionService.getTransactionStatus(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping(value = "/{id}/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTransactionStatus(@PathVariable Long id) {
+        return transactionService.subscribeToStatus(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Creates a transaction synchronously, or in async mode when the client
+     * sends {@code Prefer: respond-async} or {@code ?async=true}. Async mode
+     * answers 202 with a status URL as soon as the PENDING row is stored.
+     * A repeated {@code Idempotency-Key} replays the stored transaction; reusing
+     * one for a different request is answered with 422.
+     */
     @PostMapping
-    public ResponseEntity<Transaction> createTransaction(@RequestBody Transaction transaction) {
-        Transaction createdTransaction = transactionService.createTransaction(transaction);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdTransaction);
+    public ResponseEntity<?> createTransaction(@RequestBody Transaction transaction,
+                                               @RequestHeader(value = "Prefer", required = false) String prefer,
+                                               @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                               @RequestParam(defaultValue = "false") boolean async) {
+        try {
+            if (idempotencyKey != null) {
+                Optional<Transaction> previous = transactionService.findIdempotentResult(idempotencyKey, transaction);
+                if (previous.isPresent()) {
+                    return ResponseEntity.ok().header("Idempotent-Replayed", "true").body(previous.get());
+                }
+            }
+            
+            if (async || (prefer != null && prefer.contains("respond-async"))) {
+                TransactionStatusResponse accepted = transactionService.acceptTransaction(transaction, idempotencyKey);
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/transactions/" + accepted.getId() + "/status"))
+                        .body(accepted);
+            }
+            Transaction createdTransaction = transactionService.createTransaction(transaction, idempotencyKey);
+            return ResponseEntity.status(HttpStatus.CREATED).body(createdTransaction);
+        } catch (DuplicateTransactionException | IdempotencyConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IdempotencyMismatchException e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+    
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchItemResult>> createTransactions(@RequestBody List<Transaction> transactions) {
+        return ResponseEntity.ok(batchTransactionService.createTransactions(transactions.iterator()));
+    }
+    
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<BatchItemResult>> createTransactionsFromStream(InputStream body) throws IOException {
+        try (MappingIterator<Transaction> items = objectMapper.readerFor(Transaction.class).readValues(body)) {
+            return ResponseEntity.ok(batchTransactionService.createTransactions(items));
+        }
     }
     
     @PutMapping("/{id}")
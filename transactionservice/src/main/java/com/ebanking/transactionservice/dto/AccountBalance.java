@@ -0,0 +1,21 @@
+package com.ebanking.transactionservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Balance-only view of an account, returned in request order by the batch
+ * balance query.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountBalance {
+    private Long id;
+    private boolean found;
+    private BigDecimal balance;
+    private String currency;
+}
@@ -0,0 +1,27 @@
+package com.ebanking.transactionservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Latest state of an account, keyed by account id on a compacted topic, so
+ * the topic always holds the current state of every account. A deleted
+ * account is followed by a tombstone (null value) for its key.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountChangedEvent {
+    private Long accountId;
+    private String status;
+    private String changeType;
+    private BigDecimal balance;
+    private Long version;
+    
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+}
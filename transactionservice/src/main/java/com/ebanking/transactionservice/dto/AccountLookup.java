@@ -0,0 +1,22 @@
+package com.ebanking.transactionservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cached answer to "does this account exist, and in what status".
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountLookup {
+    private Long accountId;
+    private boolean exists;
+    private String status;
+    
+    /** Same rule as {@code AccountReplica.isActive}: an account without a status is treated as active. */
+    public boolean isActive() {
+        return exists && (status == null || "ACTIVE".equals(status));
+    }
+}
@@ -0,0 +1,17 @@
+package com.ebanking.transactionservice.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * One balance movement in a posting batch. A deposit only has a credit
+ * account, a withdrawal only a debit account, a transfer has both.
+ */
+@Data
+public class BalancePosting {
+    private String reference;
+    private Long debitAccountId;
+    private Long creditAccountId;
+    private BigDecimal amount;
+}
@@ -0,0 +1,24 @@
+package com.ebanking.transactionservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one item in a batch submission. {@code status} is the stored
+ * transaction status (COMPLETED or FAILED, or PENDING when the posting outcome
+ * is unknown), or REJECTED when the item was invalid or a duplicate and
+ * nothing was stored.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResult {
+    public static final String REJECTED = "REJECTED";
+    
+    private int index;
+    private String transactionId;
+    private Long id;
+    private String status;
+    private String error;
+}
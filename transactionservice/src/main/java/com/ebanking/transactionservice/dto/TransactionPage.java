@@ -0,0 +1,17 @@
+package com.ebanking.transactionservice.dto;
+
+import com.ebanking.transactionservice.model.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionPage {
+    private List<Transaction> items;
+    /** Opaque cursor for the next page, or null when this is the last page. */
+    private String nextCursor;
+}
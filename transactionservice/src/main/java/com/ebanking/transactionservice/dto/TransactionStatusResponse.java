@@ -0,0 +1,19 @@
+package com.ebanking.transactionservice.dto;
+
+import com.ebanking.transactionservice.model.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionStatusResponse {
+    private Long id;
+    private String transactionId;
+    private Transaction.TransactionStatus status;
+    
+    public static TransactionStatusResponse of(Transaction transaction) {
+        return new TransactionStatusResponse(transaction.getId(), transaction.getTransactionId(), transaction.getStatus());
+    }
+}
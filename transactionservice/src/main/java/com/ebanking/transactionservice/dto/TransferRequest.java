@@ -0,0 +1,13 @@
+package com.ebanking.transactionservice.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class TransferRequest {
+    private Long fromAccountId;
+    private Long toAccountId;
+    private BigDecimal amount;
+    private String reference;
+}
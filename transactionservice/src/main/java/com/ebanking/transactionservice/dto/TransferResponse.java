@@ -0,0 +1,9 @@
+package com.ebanking.transactionservice.dto;
+
+import lombok.Data;
+
+@Data
+public class TransferResponse {
+    private Account fromAccount;
+    private Account toAccount;
+}
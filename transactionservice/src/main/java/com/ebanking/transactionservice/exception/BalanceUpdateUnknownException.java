@@ -0,0 +1,11 @@
+package com.ebanking.transactionservice.exception;
+
+/**
+ * The balance update was sent but no answer came back, e.g. a read timeout or
+ * a 5xx, so it may or may not have been applied.
+ */
+public class BalanceUpdateUnknownException extends RuntimeException {
+    public BalanceUpdateUnknownException(String transactionId, Throwable cause) {
+        super("Outcome of the balance update for transaction " + transactionId + " is unknown", cause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.ebanking.transactionservice.exception;
+
+public class DuplicateTransactionException extends RuntimeException {
+    public DuplicateTransactionException(String transactionId) {
+        super("Transaction ID already exists: " + transactionId);
+    }
+}
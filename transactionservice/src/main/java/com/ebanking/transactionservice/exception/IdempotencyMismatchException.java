@@ -0,0 +1,7 @@
+package com.ebanking.transactionservice.exception;
+
+public class IdempotencyMismatchException extends RuntimeException {
+    public IdempotencyMismatchException(String idempotencyKey) {
+        super("Idempotency-Key " + idempotencyKey + " was already used with a different request");
+    }
+}
@@ -0,0 +1,37 @@
+package com.ebanking.transactionservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    @Id
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+    
+    @Column(name = "transaction_ref")
+    private Long transactionRef;
+    
+    /** SHA-256 of the request the key was first used with. */
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+    
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private IdempotencyStatus status;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    public enum IdempotencyStatus {
+        IN_PROGRESS, COMPLETED
+    }
+}
@@ -0,0 +1,39 @@
+package com.ebanking.transactionservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pending transaction event, written in the same local transaction as the
+ * {@link Transaction} row it describes and deleted once the relay has
+ * handed it to Kafka.
+ */
+@Entity
+@Table(name = "transaction_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_outbox_seq")
+    @SequenceGenerator(name = "transaction_outbox_seq", sequenceName = "transaction_outbox_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "transaction_id", nullable = false)
+    private String transactionId;
+    
+    @Column(name = "event_key", nullable = false)
+    private String eventKey;
+    
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -11,13 +12,18 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_from_account_created", columnList = "from_account_id, created_at, id"),
+        @Index(name = "idx_transactions_to_account_created", columnList = "to_account_id, created_at, id"),
+        @Index(name = "idx_transactions_status_updated", columnList = "status, updated_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "transaction_id", nullable = false, unique = true)
@@ -49,6 +55,15 @@ public class Transaction {
     @Column(name = "user_id", nullable = false)
     private Long userId;
     
+    /**
+     * Set before the balance update is sent to accountservice. A PENDING row
+     * with this set may already have moved money, so it is reconciled rather
+     * than failed when it goes stale.
+     */
+    @Column(name = "balance_update_sent", nullable = false)
+    @ColumnDefault("false")
+    private boolean balanceUpdateSent;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     @CreationTimestamp
     private LocalDateTime createdAt;
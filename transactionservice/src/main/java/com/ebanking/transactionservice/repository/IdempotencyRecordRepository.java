@@ -0,0 +1,46 @@
+package com.ebanking.transactionservice.repository;
+
+import com.ebanking.transactionservice.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    
+    /**
+     * Claim a key for a new request. Returns 1 when the key was free, or was
+     * held by an IN_PROGRESS attempt at the same request older than
+     * {@code staleBefore}; 0 otherwise.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_hash, status, created_at) " +
+                   "VALUES (:key, :requestHash, 'IN_PROGRESS', :now) " +
+                   "ON CONFLICT (idempotency_key) DO UPDATE SET created_at = EXCLUDED.created_at " +
+                   "WHERE idempotency_keys.status = 'IN_PROGRESS' AND idempotency_keys.created_at < :staleBefore " +
+                   "AND idempotency_keys.request_hash IS NOT DISTINCT FROM EXCLUDED.request_hash",
+           nativeQuery = true)
+    int claim(@Param("key") String key,
+              @Param("requestHash") String requestHash,
+              @Param("now") LocalDateTime now,
+              @Param("staleBefore") LocalDateTime staleBefore);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.status = :status, r.transactionRef = :transactionRef " +
+           "WHERE r.idempotencyKey = :key")
+    int complete(@Param("key") String key,
+                 @Param("transactionRef") Long transactionRef,
+                 @Param("status") IdempotencyRecord.IdempotencyStatus status);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
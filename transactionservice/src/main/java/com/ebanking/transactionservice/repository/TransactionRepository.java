@@ -1,13 +1,86 @@
 package com.ebanking.transactionservice.repository;
 
 import com.ebanking.transactionservice.model.Transaction;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+    boolean existsByTransactionId(String transactionId);
     List<Transaction> findByFromAccountId(Long accountId);
     List<Transaction> findByToAccountId(Long accountId);
+    List<Transaction> findByFromAccountIdOrToAccountIdOrderByCreatedAtAscIdAsc(Long fromAccountId, Long toAccountId);
+    
+    /**
+     * One page of an account's history in (createdAt, id) order, starting
+     * strictly after the cursor position. Outgoing and incoming rows are read
+     * as two separately limited branches, each walking its own
+     * (account, created_at, id) index in order, and merged; an OR over both
+     * columns could use neither index for the ordering. Callers pass bounds
+     * rather than nulls so the range stays an index condition.
+     */
+    @Query(value = "SELECT * FROM (" +
+           "(SELECT * FROM transactions t WHERE t.from_account_id = :accountId " +
+           "  AND t.created_at >= :fromDate AND t.created_at < :toDate " +
+           "  AND (t.created_at, t.id) > (:cursorCreatedAt, :cursorId) " +
+           "  AND (CAST(:type AS varchar) IS NULL OR t.transaction_type = CAST(:type AS varchar)) " +
+           "  ORDER BY t.created_at, t.id LIMIT :limit) " +
+           "UNION ALL " +
+           "(SELECT * FROM transactions t WHERE t.to_account_id = :accountId AND t.from_account_id <> :accountId " +
+           "  AND t.created_at >= :fromDate AND t.created_at < :toDate " +
+           "  AND (t.created_at, t.id) > (:cursorCreatedAt, :cursorId) " +
+           "  AND (CAST(:type AS varchar) IS NULL OR t.transaction_type = CAST(:type AS varchar)) " +
+           "  ORDER BY t.created_at, t.id LIMIT :limit)" +
+           ") history ORDER BY history.created_at, history.id LIMIT :limit",
+           nativeQuery = true)
+    List<Transaction> findAccountHistory(@Param("accountId") Long accountId,
+                                         @Param("fromDate") LocalDateTime fromDate,
+                                         @Param("toDate") LocalDateTime toDate,
+                                         @Param("type") String type,
+                                         @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                         @Param("cursorId") Long cursorId,
+                                         @Param("limit") int limit);
+    
+    @Query("SELECT t.transactionId FROM Transaction t WHERE t.transactionId IN :transactionIds")
+    List<String> findExistingTransactionIds(@Param("transactionIds") Collection<String> transactionIds);
+    
+    /** Stale PENDING rows whose balance update was never sent, so nothing moved. */
+    List<Transaction> findByStatusAndBalanceUpdateSentFalseAndUpdatedAtBeforeOrderByIdAsc(
+            Transaction.TransactionStatus status, LocalDateTime updatedAt, Limit limit);
+    
+    long countByStatusAndBalanceUpdateSentTrueAndUpdatedAtBefore(Transaction.TransactionStatus status,
+                                                                 LocalDateTime updatedAt);
+    
+    /**
+     * Claims a PENDING row for its balance update. Once this has committed
+     * the sweeper no longer fails the row. Returns 0 if it is no longer PENDING.
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.balanceUpdateSent = true, t.updatedAt = :updatedAt " +
+           "WHERE t.id = :id AND t.status = com.ebanking.transactionservice.model.Transaction.TransactionStatus.PENDING")
+    int markBalanceUpdateSent(@Param("id") Long id, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    /** Fails a PENDING row, unless its balance update has been sent in the meantime. */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.ebanking.transactionservice.model.Transaction.TransactionStatus.FAILED, " +
+           "t.updatedAt = :updatedAt " +
+           "WHERE t.id = :id AND t.balanceUpdateSent = false " +
+           "AND t.status = com.ebanking.transactionservice.model.Transaction.TransactionStatus.PENDING")
+    int failUnsent(@Param("id") Long id, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    /** Moves rows recorded as PENDING to their final status. */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :status, t.updatedAt = :updatedAt " +
+           "WHERE t.id IN :ids AND t.status = com.ebanking.transactionservice.model.Transaction.TransactionStatus.PENDING")
+    int completePending(@Param("ids") Collection<Long> ids,
+                        @Param("status") Transaction.TransactionStatus status,
+                        @Param("updatedAt") LocalDateTime updatedAt);
 }
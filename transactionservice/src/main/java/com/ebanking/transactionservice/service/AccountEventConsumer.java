@@ -0,0 +1,25 @@
+package com.ebanking.transactionservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccountEventConsumer {
+    
+    private final AccountLookupCache accountLookupCache;
+    
+    @KafkaListener(topics = "account-events", containerFactory = "accountEventListenerContainerFactory")
+    public void consumeAccountEvent(ConsumerRecord<String, ?> record) {
+        try {
+            accountLookupCache.invalidate(Long.valueOf(record.key()));
+            log.debug("Invalidated cached account {}", record.key());
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring account event with invalid key: {}", record.key());
+        }
+    }
+}
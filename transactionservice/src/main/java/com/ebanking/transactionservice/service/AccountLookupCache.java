@@ -0,0 +1,90 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.client.AccountServiceClient;
+import com.ebanking.transactionservice.dto.Account;
+import com.ebanking.transactionservice.dto.AccountLookup;
+import com.ebanking.transactionservice.dto.AccountLookupResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded, TTL-evicting cache of account existence and status in front of
+ * {@link AccountServiceClient#getAccountById}. Entries are dropped early when
+ * accountservice publishes a change for the account.
+ */
+@Service
+public class AccountLookupCache {
+    
+    private final AccountServiceClient accountServiceClient;
+    private final Cache<Long, AccountLookup> cache;
+    
+    public AccountLookupCache(AccountServiceClient accountServiceClient,
+                              MeterRegistry meterRegistry,
+                              @Value("${account.cache.max-size:100000}") long maxSize,
+                              @Value("${account.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.accountServiceClient = accountServiceClient;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "account-lookup");
+    }
+    
+    public AccountLookup lookup(Long accountId) {
+        return cache.get(accountId, this::load);
+    }
+    
+    /**
+     * Looks up several accounts at once. Ids missing from the cache are
+     * fetched together with a single multi-get call.
+     */
+    public Map<Long, AccountLookup> lookupAll(Collection<Long> accountIds) {
+        return cache.getAll(accountIds, this::loadAll);
+    }
+    
+    public void invalidate(Long accountId) {
+        cache.invalidate(accountId);
+    }
+    
+    private Map<Long, AccountLookup> loadAll(Set<? extends Long> accountIds) {
+        List<AccountLookupResult> results = accountServiceClient.getAccountsByIds(new ArrayList<>(accountIds)).getBody();
+        if (results == null) {
+            throw new RuntimeException("Unexpected multi-get response from accountservice");
+        }
+        Map<Long, AccountLookup> lookups = new HashMap<>();
+        for (AccountLookupResult result : results) {
+            lookups.put(result.getId(), result.isFound()
+                    ? new AccountLookup(result.getId(), true, result.getAccount().getStatus())
+                    : new AccountLookup(result.getId(), false, null));
+        }
+        return lookups;
+    }
+    
+    private AccountLookup load(Long accountId) {
+        try {
+            ResponseEntity<Account> response = accountServiceClient.getAccountById(accountId);
+            Account account = response.getBody();
+            if (account == null) {
+                return new AccountLookup(accountId, false, null);
+            }
+            return new AccountLookup(accountId, true, account.getStatus());
+        } catch (FeignException.NotFound e) {
+            return new AccountLookup(accountId, false, null);
+        }
+    }
+}
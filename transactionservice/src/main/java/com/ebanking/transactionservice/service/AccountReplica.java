@@ -0,0 +1,73 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.dto.AccountChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only, in-memory copy of the latest state of every account, rebuilt on
+ * startup by reading the compacted account-events topic from the beginning
+ * and kept current by following it. Answers "does this account exist, and is
+ * it active" without a call to accountservice. An account that is not in the
+ * replica may simply not have been read yet, so callers fall back to
+ * accountservice on a miss.
+ */
+@Slf4j
+@Component
+public class AccountReplica {
+    
+    private final Map<Long, AccountChangedEvent> accounts = new ConcurrentHashMap<>();
+    
+    public AccountReplica(MeterRegistry meterRegistry) {
+        Gauge.builder("account.replica.size", accounts, Map::size)
+                .description("Accounts held in the local replica")
+                .register(meterRegistry);
+    }
+    
+    @KafkaListener(topics = "account-events", containerFactory = "accountReplicaListenerContainerFactory",
+            autoStartup = "${account.replica.enabled:true}")
+    public void onAccountEvent(ConsumerRecord<String, AccountChangedEvent> record) {
+        Long accountId;
+        try {
+            accountId = Long.valueOf(record.key());
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring account event with invalid key: {}", record.key());
+            return;
+        }
+        
+        AccountChangedEvent event = record.value();
+        if (event == null || AccountChangedEvent.ChangeType.DELETED.name().equals(event.getChangeType())) {
+            accounts.remove(accountId);
+            return;
+        }
+        accounts.merge(accountId, event, AccountReplica::newer);
+    }
+    
+    public Optional<AccountChangedEvent> get(Long accountId) {
+        return Optional.ofNullable(accounts.get(accountId));
+    }
+    
+    public boolean contains(Long accountId) {
+        return accounts.containsKey(accountId);
+    }
+    
+    public boolean isActive(Long accountId) {
+        AccountChangedEvent account = accounts.get(accountId);
+        return account != null && (account.getStatus() == null || "ACTIVE".equals(account.getStatus()));
+    }
+    
+    private static AccountChangedEvent newer(AccountChangedEvent current, AccountChangedEvent candidate) {
+        if (current.getVersion() == null || candidate.getVersion() == null) {
+            return candidate;
+        }
+        return candidate.getVersion() >= current.getVersion() ? candidate : current;
+    }
+}
@@ -0,0 +1,62 @@
+package com.ebanking.transactionservice.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded worker pipeline for transactions accepted in async mode. Callers
+ * reserve a slot before persisting the PENDING row, so a full pipeline is
+ * reported up front instead of leaving work that can never be queued.
+ */
+@Slf4j
+@Component
+public class AsyncTransactionProcessor {
+    
+    private final ThreadPoolExecutor workers;
+    private final Semaphore slots;
+    
+    public AsyncTransactionProcessor(@Value("${transaction.async.workers:8}") int workerCount,
+                                     @Value("${transaction.async.queue-capacity:1000}") int queueCapacity) {
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+        this.slots = new Semaphore(workerCount + queueCapacity);
+    }
+    
+    public boolean tryReserve() {
+        return slots.tryAcquire();
+    }
+    
+    public void release() {
+        slots.release();
+    }
+    
+    /**
+     * Run a task in a slot previously obtained from {@link #tryReserve()}. The
+     * task runs with the caller's SecurityContext so remote calls keep the JWT.
+     */
+    public void submit(Runnable task) {
+        Runnable withContext = new DelegatingSecurityContextRunnable(task);
+        workers.execute(() -> {
+            try {
+                withContext.run();
+            } catch (Exception e) {
+                log.error("Async transaction task failed: {}", e.getMessage(), e);
+            } finally {
+                slots.release();
+            }
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,291 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.client.AccountServiceClient;
+import com.ebanking.transactionservice.dto.BalancePosting;
+import com.ebanking.transactionservice.dto.BatchItemResult;
+import com.ebanking.transactionservice.dto.PostingResult;
+import com.ebanking.transactionservice.model.Transaction;
+import com.ebanking.transactionservice.repository.TransactionRepository;
+import feign.FeignException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk transaction submission. Items are processed in chunks: each chunk is
+ * first recorded as PENDING with batched inserts, which claims its transaction
+ * IDs, then makes a single posting call to accountservice, which groups
+ * balance updates per account. The final statuses are stored together with the
+ * outbox events. Storing chunk N runs on a separate stage while chunk N+1 is
+ * being posted, so the remote call and the local writes overlap.
+ * <p>
+ * Only items accountservice reports as not applied, or a batch it rejects
+ * with a 4xx, are marked FAILED. When the outcome is unknown, e.g. after a
+ * timeout or a malformed response, the items stay PENDING for reconciliation.
+ */
+@Slf4j
+@Service
+public class BatchTransactionService {
+
+    private final TransactionRepository transactionRepository;
+    private final AccountServiceClient accountServiceClient;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService persistExecutor;
+
+    @Value("${transaction.batch.chunk-size:500}")
+    private int chunkSize;
+
+    public BatchTransactionService(TransactionRepository transactionRepository,
+                                   AccountServiceClient accountServiceClient,
+                                   OutboxService outboxService,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${transaction.batch.persist-threads:4}") int persistThreads) {
+        this.transactionRepository = transactionRepository;
+        this.accountServiceClient = accountServiceClient;
+        this.outboxService = outboxService;
+        this.transactionTemplate = transactionTemplate;
+        this.persistExecutor = Executors.newFixedThreadPool(persistThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persistExecutor.shutdown();
+    }
+
+    public List<BatchItemResult> createTransactions(Iterator<Transaction> items) {
+        List<BatchItemResult> results = new ArrayList<>();
+        Set<String> seenTransactionIds = new HashSet<>();
+        CompletableFuture<Void> pendingPersist = CompletableFuture.completedFuture(null);
+
+        int index = 0;
+        while (items.hasNext()) {
+            List<Transaction> chunk = new ArrayList<>(chunkSize);
+            List<BatchItemResult> chunkResults = new ArrayList<>(chunkSize);
+            while (items.hasNext() && chunk.size() < chunkSize) {
+                Transaction transaction = items.next();
+                chunk.add(transaction);
+                chunkResults.add(new BatchItemResult(index++, transaction.getTransactionId(), null, null, null));
+            }
+
+            List<Transaction> accepted = postChunk(chunk, chunkResults, seenTransactionIds);
+
+            // Only one chunk is stored at a time per request, keeping memory bounded
+            pendingPersist.join();
+            pendingPersist = CompletableFuture.runAsync(() -> persistChunk(accepted, chunk, chunkResults), persistExecutor);
+            results.addAll(chunkResults);
+        }
+        pendingPersist.join();
+        return results;
+    }
+
+    private List<Transaction> postChunk(List<Transaction> chunk, List<BatchItemResult> chunkResults,
+                                        Set<String> seenTransactionIds) {
+        List<String> candidateIds = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Transaction transaction = chunk.get(i);
+            String error = validate(transaction);
+            if (error == null && !seenTransactionIds.add(transaction.getTransactionId())) {
+                error = "Duplicate transaction ID in batch: " + transaction.getTransactionId();
+            }
+            if (error != null) {
+                reject(chunkResults.get(i), error);
+            } else {
+                candidateIds.add(transaction.getTransactionId());
+            }
+        }
+
+        Set<String> existing = candidateIds.isEmpty()
+                ? Set.of()
+                : new HashSet<>(transactionRepository.findExistingTransactionIds(candidateIds));
+        List<Transaction> accepted = new ArrayList<>();
+        List<BatchItemResult> acceptedResults = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Transaction transaction = chunk.get(i);
+            if (chunkResults.get(i).getStatus() != null) {
+                continue;
+            }
+            if (existing.contains(transaction.getTransactionId())) {
+                reject(chunkResults.get(i), "Transaction ID already exists: " + transaction.getTransactionId());
+                continue;
+            }
+            accepted.add(transaction);
+            acceptedResults.add(chunkResults.get(i));
+        }
+
+        claim(accepted, acceptedResults);
+        if (accepted.isEmpty()) {
+            return accepted;
+        }
+        List<BalancePosting> postings = accepted.stream().map(this::toPosting).toList();
+
+        try {
+            List<PostingResult> postingResults = accountServiceClient.applyPostings(postings).getBody();
+            if (postingResults == null || postingResults.size() != postings.size()) {
+                // Some postings may have been applied; the rows stay PENDING for reconciliation
+                log.error("Unexpected posting response from accountservice for {} postings", postings.size());
+                acceptedResults.forEach(result -> result.setError(
+                        "Unexpected posting response from accountservice; outcome unknown"));
+                return accepted;
+            }
+            for (int i = 0; i < accepted.size(); i++) {
+                PostingResult postingResult = postingResults.get(i);
+                Transaction transaction = accepted.get(i);
+                if (postingResult.isApplied()) {
+                    transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+                } else {
+                    transaction.setStatus(Transaction.TransactionStatus.FAILED);
+                    acceptedResults.get(i).setError(postingResult.getError());
+                }
+            }
+        } catch (FeignException e) {
+            log.error("Error applying batch postings: {}", e.getMessage());
+            if (e.status() >= 400 && e.status() < 500) {
+                // accountservice rejected the whole batch, so nothing was applied
+                accepted.forEach(transaction -> transaction.setStatus(Transaction.TransactionStatus.FAILED));
+                acceptedResults.forEach(result -> result.setError("Error updating account balances: " + e.getMessage()));
+            } else {
+                // A timeout or 5xx may follow postings that were applied, possibly on some shards only
+                acceptedResults.forEach(result -> result.setError("Outcome of the balance update is unknown: " + e.getMessage()));
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Inserts the chunk as PENDING before anything is posted. A transaction ID
+     * taken concurrently fails the batch insert; the chunk is then inserted one
+     * row at a time so only the duplicates are rejected. Rejected items are
+     * removed from both lists.
+     */
+    private void claim(List<Transaction> accepted, List<BatchItemResult> acceptedResults) {
+        if (accepted.isEmpty()) {
+            return;
+        }
+        accepted.forEach(transaction -> {
+            transaction.setStatus(Transaction.TransactionStatus.PENDING);
+            // Posted right after this insert, so a row left PENDING is reconciled, never failed
+            transaction.setBalanceUpdateSent(true);
+        });
+        try {
+            transactionTemplate.executeWithoutResult(status -> transactionRepository.saveAll(accepted));
+            return;
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Batch insert hit an existing transaction ID, claiming {} rows one by one", accepted.size());
+        }
+
+        for (int i = accepted.size() - 1; i >= 0; i--) {
+            Transaction transaction = accepted.get(i);
+            transaction.setId(null);
+            try {
+                transactionRepository.saveAndFlush(transaction);
+            } catch (DataIntegrityViolationException e) {
+                transaction.setId(null);
+                reject(acceptedResults.get(i), "Transaction ID already exists: " + transaction.getTransactionId());
+                accepted.remove(i);
+                acceptedResults.remove(i);
+            }
+        }
+    }
+
+    private void persistChunk(List<Transaction> accepted, List<Transaction> chunk, List<BatchItemResult> chunkResults) {
+        if (accepted.isEmpty()) {
+            return;
+        }
+        try {
+            Map<Transaction.TransactionStatus, List<Long>> idsByStatus = accepted.stream()
+                    .filter(transaction -> transaction.getStatus() != Transaction.TransactionStatus.PENDING)
+                    .collect(Collectors.groupingBy(Transaction::getStatus,
+                            Collectors.mapping(Transaction::getId, Collectors.toList())));
+            LocalDateTime now = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status -> {
+                idsByStatus.forEach((finalStatus, ids) -> transactionRepository.completePending(ids, finalStatus, now));
+                outboxService.enqueueAll(accepted.stream()
+                        .filter(transaction -> transaction.getStatus() == Transaction.TransactionStatus.COMPLETED)
+                        .toList());
+            });
+            for (int i = 0; i < chunk.size(); i++) {
+                BatchItemResult result = chunkResults.get(i);
+                if (result.getStatus() == null) {
+                    Transaction transaction = chunk.get(i);
+                    result.setId(transaction.getId());
+                    result.setStatus(transaction.getStatus().name());
+                }
+            }
+        } catch (Exception e) {
+            // The rows stay PENDING; postings that were applied need reconciliation
+            log.error("Failed to store the outcome of {} posted transactions: {}", accepted.size(), e.getMessage(), e);
+            for (int i = 0; i < chunk.size(); i++) {
+                BatchItemResult result = chunkResults.get(i);
+                if (result.getStatus() == null) {
+                    result.setId(chunk.get(i).getId());
+                    result.setStatus(Transaction.TransactionStatus.PENDING.name());
+                    result.setError("Posted but final status not recorded: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private String validate(Transaction transaction) {
+        if (transaction.getTransactionId() == null || transaction.getTransactionId().isBlank()) {
+            return "Transaction ID is required";
+        }
+        if (transaction.getTransactionType() == null) {
+            return "Transaction type is required";
+        }
+        if (transaction.getAmount() == null || transaction.getAmount().signum() <= 0) {
+            return "Amount must be positive";
+        }
+        if (transaction.getFromAccountId() == null) {
+            return "From account is required";
+        }
+        if (transaction.getUserId() == null) {
+            return "User is required";
+        }
+        if (transaction.getTransactionType() == Transaction.TransactionType.TRANSFER && transaction.getToAccountId() == null) {
+            return "To account is required for TRANSFER";
+        }
+        return null;
+    }
+
+    private BalancePosting toPosting(Transaction transaction) {
+        BalancePosting posting = new BalancePosting();
+        posting.setReference(transaction.getTransactionId());
+        posting.setAmount(transaction.getAmount());
+        switch (transaction.getTransactionType()) {
+            case DEPOSIT:
+                posting.setCreditAccountId(transaction.getToAccountId() != null
+                        ? transaction.getToAccountId()
+                        : transaction.getFromAccountId());
+                break;
+            case WITHDRAWAL:
+                posting.setDebitAccountId(transaction.getFromAccountId());
+                break;
+            case TRANSFER:
+                posting.setDebitAccountId(transaction.getFromAccountId());
+                posting.setCreditAccountId(transaction.getToAccountId());
+                break;
+        }
+        return posting;
+    }
+
+    private void reject(BatchItemResult result, String error) {
+        result.setStatus(BatchItemResult.REJECTED);
+        result.setError(error);
+    }
+}
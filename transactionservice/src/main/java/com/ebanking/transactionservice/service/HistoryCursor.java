@@ -0,0 +1,53 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.model.Transaction;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in an account history, encoded as an opaque URL-safe token of the
+ * last returned row's (createdAt, id).
+ */
+final class HistoryCursor {
+    
+    private final LocalDateTime createdAt;
+    private final Long id;
+    
+    private HistoryCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+    
+    static HistoryCursor after(Transaction transaction) {
+        return new HistoryCursor(transaction.getCreatedAt(), transaction.getId());
+    }
+    
+    static HistoryCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,137 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.exception.IdempotencyConflictException;
+import com.ebanking.transactionservice.exception.IdempotencyMismatchException;
+import com.ebanking.transactionservice.model.IdempotencyRecord;
+import com.ebanking.transactionservice.repository.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Tracks Idempotency-Key headers. Completed keys map to the stored
+ * transaction's row id and are served from memory first, then from the
+ * idempotency_keys table, which also arbitrates concurrent first attempts.
+ * Each key is bound to a hash of the request it was first used with; reusing
+ * it for a different request is rejected instead of replaying the original.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+    
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final Cache<String, CompletedKey> completedKeys;
+    private final Duration retention;
+    private final Duration inProgressTimeout;
+    
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.cache.max-size:100000}") long maxSize,
+                              @Value("${idempotency.retention-hours:24}") long retentionHours,
+                              @Value("${idempotency.in-progress-timeout-seconds:60}") long inProgressTimeoutSeconds) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.retention = Duration.ofHours(retentionHours);
+        this.inProgressTimeout = Duration.ofSeconds(inProgressTimeoutSeconds);
+        this.completedKeys = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(retention)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completedKeys, "idempotency-keys");
+    }
+    
+    /** SHA-256 of the given request fields, escaped so different fields never hash alike. */
+    public static String fingerprint(Object... parts) {
+        StringBuilder canonical = new StringBuilder();
+        for (Object part : parts) {
+            canonical.append(part == null ? "" : String.valueOf(part).replace("\\", "\\\\").replace("|", "\\|"))
+                    .append('|');
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Row id of the transaction stored for this key, if the original request
+     * has finished. Throws {@link IdempotencyMismatchException} if that request
+     * was a different one.
+     */
+    public Optional<Long> findCompleted(String key, String requestHash) {
+        CompletedKey completed = completedKeys.getIfPresent(key);
+        if (completed == null) {
+            completed = idempotencyRecordRepository.findById(key)
+                    .filter(record -> record.getStatus() == IdempotencyRecord.IdempotencyStatus.COMPLETED)
+                    .map(record -> new CompletedKey(record.getTransactionRef(), record.getRequestHash()))
+                    .orElse(null);
+            if (completed == null) {
+                return Optional.empty();
+            }
+            completedKeys.put(key, completed);
+        }
+        checkSameRequest(key, completed.getRequestHash(), requestHash);
+        return Optional.of(completed.getTransactionRef());
+    }
+    
+    public void claim(String key, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        if (idempotencyRecordRepository.claim(key, requestHash, now, now.minus(inProgressTimeout)) == 0) {
+            idempotencyRecordRepository.findById(key)
+                    .ifPresent(record -> checkSameRequest(key, record.getRequestHash(), requestHash));
+            throw new IdempotencyConflictException(key);
+        }
+    }
+    
+    public void complete(String key, String requestHash, Long transactionRef) {
+        idempotencyRecordRepository.complete(key, transactionRef, IdempotencyRecord.IdempotencyStatus.COMPLETED);
+        completedKeys.put(key, new CompletedKey(transactionRef, requestHash));
+    }
+    
+    private void checkSameRequest(String key, String storedHash, String requestHash) {
+        // Keys stored before requests were hashed have no hash to compare
+        if (storedHash != null && !Objects.equals(storedHash, requestHash)) {
+            throw new IdempotencyMismatchException(key);
+        }
+    }
+    
+    /**
+     * Free a key whose request stored nothing, so the client can retry it.
+     */
+    public void release(String key) {
+        idempotencyRecordRepository.deleteById(key);
+    }
+    
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        int purged = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention));
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    private static class CompletedKey {
+        private final Long transactionRef;
+        private final String requestHash;
+    }
+}
@@ -17,22 +17,18 @@ public class KafkaProducerService {
     private static final String TOPIC = "transaction-events";
     private final KafkaTemplate<String, TransactionEvent> kafkaTemplate;
     
-    public void sendTransactionEvent(TransactionEvent event) {
-        try {
-            CompletableFuture<SendResult<String, TransactionEvent>> future = 
-                kafkaTemplate.send(TOPIC, event.getTransactionId(), event);
-            
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    log.info("Transaction event sent successfully: transactionId={}, offset={}", 
-                        event.getTransactionId(), result.getRecordMetadata().offset());
-                } else {
-                    log.error("Failed to send transaction event: transactionId={}, error={}", 
-                        event.getTransactionId(), ex.getMessage());
-                }
-            });
-        } catch (Exception e) {
-            log.error("Error sending transaction event: {}", e.getMessage(), e);
-        }
+    public CompletableFuture<SendResult<String, TransactionEvent>> sendTransactionEvent(String key, TransactionEvent event) {
+        CompletableFuture<SendResult<String, TransactionEvent>> future = kafkaTemplate.send(TOPIC, key, event);
+        
+        future.whenComplete((result, ex) -> {
+            if (ex == null) {
+                log.debug("Transaction event sent successfully: transactionId={}, offset={}", 
+                    event.getTransactionId(), result.getRecordMetadata().offset());
+            } else {
+                log.error("Failed to send transaction event: transactionId={}, error={}", 
+                    event.getTransactionId(), ex.getMessage());
+            }
+        });
+        return future;
     }
 }
@@ -0,0 +1,117 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.dto.TransactionEvent;
+import com.ebanking.transactionservice.model.OutboxEvent;
+import com.ebanking.transactionservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the transaction outbox to Kafka in batches. Rows are locked with
+ * SKIP LOCKED so several instances can relay concurrently, and are only
+ * deleted once every send in the batch has been acknowledged. A failed batch
+ * is retried on the next run, which gives at-least-once delivery.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxService outboxService;
+    private final KafkaProducerService kafkaProducerService;
+    private final TransactionTemplate transactionTemplate;
+    
+    private final Counter publishedCounter;
+    private final Counter failureCounter;
+    private final Timer relayTimer;
+    private final AtomicLong lagMillis = new AtomicLong();
+    
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${outbox.relay.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+    
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxService outboxService,
+                       KafkaProducerService kafkaProducerService,
+                       TransactionTemplate transactionTemplate,
+                       MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxService = outboxService;
+        this.kafkaProducerService = kafkaProducerService;
+        this.transactionTemplate = transactionTemplate;
+        this.publishedCounter = meterRegistry.counter("transaction.outbox.published");
+        this.failureCounter = meterRegistry.counter("transaction.outbox.failures");
+        this.relayTimer = meterRegistry.timer("transaction.outbox.relay.batch");
+        Gauge.builder("transaction.outbox.lag", lagMillis, AtomicLong::get)
+                .description("Age of the oldest unpublished outbox event")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+    
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:200}")
+    public void relay() {
+        try {
+            int relayed;
+            do {
+                relayed = relayTimer.record(() -> transactionTemplate.execute(status -> relayBatch()));
+            } while (relayed == batchSize);
+        } catch (Exception e) {
+            failureCounter.increment();
+            log.error("Outbox relay failed, will retry: {}", e.getMessage());
+        } finally {
+            updateLag();
+        }
+    }
+    
+    private int relayBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.lockNextBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        
+        List<CompletableFuture<SendResult<String, TransactionEvent>>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent outboxEvent : batch) {
+            TransactionEvent event = outboxService.readEvent(outboxEvent);
+            sends.add(kafkaProducerService.sendTransactionEvent(outboxEvent.getEventKey(), event));
+        }
+        
+        try {
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new RuntimeException("Kafka did not acknowledge outbox batch: " + e.getMessage(), e);
+        }
+        
+        outboxEventRepository.deleteAllInBatch(batch);
+        publishedCounter.increment(batch.size());
+        log.debug("Relayed {} transaction events", batch.size());
+        return batch.size();
+    }
+    
+    private void updateLag() {
+        try {
+            lagMillis.set(outboxEventRepository.findFirstByOrderByIdAsc()
+                    .map(oldest -> Duration.between(oldest.getCreatedAt(), LocalDateTime.now()).toMillis())
+                    .orElse(0L));
+        } catch (Exception e) {
+            log.warn("Could not compute outbox lag: {}", e.getMessage());
+        }
+    }
+}
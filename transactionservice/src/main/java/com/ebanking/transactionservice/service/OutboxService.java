@@ -0,0 +1,81 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.dto.TransactionEvent;
+import com.ebanking.transactionservice.model.OutboxEvent;
+import com.ebanking.transactionservice.model.Transaction;
+import com.ebanking.transactionservice.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * Queue the event for a stored transaction. Must be called inside the local
+     * transaction that writes the transaction row, so both commit or roll back
+     * together.
+     */
+    public OutboxEvent enqueue(Transaction transaction) {
+        return outboxEventRepository.save(toOutboxEvent(transaction));
+    }
+    
+    public List<OutboxEvent> enqueueAll(List<Transaction> transactions) {
+        List<OutboxEvent> outboxEvents = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            outboxEvents.add(toOutboxEvent(transaction));
+        }
+        return outboxEventRepository.saveAll(outboxEvents);
+    }
+    
+    private OutboxEvent toOutboxEvent(Transaction transaction) {
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setTransactionId(transaction.getTransactionId());
+        outboxEvent.setEventKey(eventKey(transaction));
+        outboxEvent.setPayload(serialize(toTransactionEvent(transaction)));
+        return outboxEvent;
+    }
+    
+    /** Events of one user land on one partition, in order. Every transaction has a user. */
+    private String eventKey(Transaction transaction) {
+        return "user-" + transaction.getUserId();
+    }
+    
+    private TransactionEvent toTransactionEvent(Transaction transaction) {
+        TransactionEvent event = new TransactionEvent();
+        event.setTransactionId(transaction.getTransactionId());
+        event.setTransactionType(transaction.getTransactionType().name());
+        event.setAmount(transaction.getAmount());
+        event.setCurrency(transaction.getCurrency());
+        event.setDescription(transaction.getDescription());
+        event.setFromAccountId(transaction.getFromAccountId());
+        event.setToAccountId(transaction.getToAccountId());
+        event.setUserId(transaction.getUserId());
+        event.setStatus(transaction.getStatus().name());
+        return event;
+    }
+    
+    public TransactionEvent readEvent(OutboxEvent outboxEvent) {
+        try {
+            return objectMapper.readValue(outboxEvent.getPayload(), TransactionEvent.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Unreadable outbox payload: " + outboxEvent.getId(), e);
+        }
+    }
+    
+    private String serialize(TransactionEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Cannot serialize transaction event: " + event.getTransactionId(), e);
+        }
+    }
+}
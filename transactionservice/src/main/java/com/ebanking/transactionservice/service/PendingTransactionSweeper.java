@@ -0,0 +1,95 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.model.Transaction;
+import com.ebanking.transactionservice.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fails transactions left PENDING by a worker that never finished them, e.g.
+ * because the instance that accepted them with 202 crashed and lost its
+ * in-memory queue. Only rows whose balance update was never sent, and that
+ * nobody has touched for {@code transaction.pending.stale-after-ms}, are
+ * failed. The first sweep runs on startup.
+ * <p>
+ * A stale row whose balance update was sent may have moved money, so it is
+ * never failed here; it stays PENDING and is counted in the
+ * {@code transaction.pending.unreconciled} gauge until it is reconciled
+ * against the account ledger.
+ */
+@Slf4j
+@Component
+public class PendingTransactionSweeper {
+    
+    private final TransactionRepository transactionRepository;
+    private final TransactionStatusNotifier transactionStatusNotifier;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter sweptCounter;
+    private final AtomicLong unreconciled = new AtomicLong();
+    
+    @Value("${transaction.pending.stale-after-ms:300000}")
+    private long staleAfterMs;
+    
+    @Value("${transaction.pending.sweep-batch-size:500}")
+    private int batchSize;
+    
+    public PendingTransactionSweeper(TransactionRepository transactionRepository,
+                                     TransactionStatusNotifier transactionStatusNotifier,
+                                     TransactionTemplate transactionTemplate,
+                                     MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.transactionStatusNotifier = transactionStatusNotifier;
+        this.transactionTemplate = transactionTemplate;
+        this.sweptCounter = meterRegistry.counter("transaction.pending.swept");
+        meterRegistry.gauge("transaction.pending.unreconciled", unreconciled);
+    }
+    
+    @Scheduled(fixedDelayString = "${transaction.pending.sweep-interval-ms:60000}")
+    public void sweep() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusNanos(staleAfterMs * 1_000_000);
+            List<Transaction> stale;
+            do {
+                stale = transactionRepository.findByStatusAndBalanceUpdateSentFalseAndUpdatedAtBeforeOrderByIdAsc(
+                        Transaction.TransactionStatus.PENDING, cutoff, Limit.of(batchSize));
+                for (Transaction transaction : stale) {
+                    fail(transaction);
+                }
+            } while (stale.size() == batchSize);
+            
+            long sent = transactionRepository.countByStatusAndBalanceUpdateSentTrueAndUpdatedAtBefore(
+                    Transaction.TransactionStatus.PENDING, cutoff);
+            unreconciled.set(sent);
+            if (sent > 0) {
+                log.warn("{} PENDING transactions had their balance update sent but no outcome recorded; "
+                        + "reconcile them against the account ledger", sent);
+            }
+        } catch (Exception e) {
+            log.error("Sweeping stale PENDING transactions failed: {}", e.getMessage());
+        }
+    }
+    
+    private void fail(Transaction transaction) {
+        Integer updated = transactionTemplate.execute(status ->
+                transactionRepository.failUnsent(transaction.getId(), LocalDateTime.now()));
+        if (updated == null || updated == 0) {
+            // A worker claimed or finished it in the meantime
+            return;
+        }
+        log.warn("Failed stale PENDING transaction {}; its balance update was never sent",
+                transaction.getTransactionId());
+        sweptCounter.increment();
+        transaction.setStatus(Transaction.TransactionStatus.FAILED);
+        transactionStatusNotifier.publish(transaction);
+    }
+}
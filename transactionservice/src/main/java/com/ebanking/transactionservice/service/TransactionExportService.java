@@ -0,0 +1,174 @@
+package com.ebanking.transactionservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams transactions straight from a forward-only JDBC cursor to the
+ * response, so memory use does not depend on how many rows are exported.
+ * Rows are written in id order; the id of the last row received is the
+ * checkpoint to resume from with {@code afterId}.
+ */
+@Slf4j
+@Service
+public class TransactionExportService {
+    
+    private static final String COLUMNS = "id, transaction_id, transaction_type, amount, currency, description, " +
+            "from_account_id, to_account_id, status, user_id, created_at, updated_at";
+    
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ObjectMapper objectMapper;
+    
+    public TransactionExportService(DataSource dataSource,
+                                    TransactionTemplate transactionTemplate,
+                                    ObjectMapper objectMapper,
+                                    @Value("${transaction.export.fetch-size:1000}") int fetchSize) {
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(fetchSize);
+        // Postgres only uses a server-side cursor inside a transaction
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+    
+    public enum Format {
+        NDJSON, CSV
+    }
+    
+    public void export(OutputStream out, Format format, Long accountId,
+                       LocalDateTime fromDate, LocalDateTime toDate, Long afterId) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM transactions WHERE id > ?");
+        List<Object> params = new ArrayList<>();
+        params.add(afterId != null ? afterId : 0L);
+        if (accountId != null) {
+            sql.append(" AND (from_account_id = ? OR to_account_id = ?)");
+            params.add(accountId);
+            params.add(accountId);
+        }
+        if (fromDate != null) {
+            sql.append(" AND created_at >= ?");
+            params.add(Timestamp.valueOf(fromDate));
+        }
+        if (toDate != null) {
+            sql.append(" AND created_at < ?");
+            params.add(Timestamp.valueOf(toDate));
+        }
+        sql.append(" ORDER BY id");
+        
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        RowCallbackHandler rowWriter = format == Format.CSV ? csvRowWriter(writer) : ndjsonRowWriter(writer);
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status ->
+                    cursorJdbcTemplate.query(sql.toString(), rowWriter, params.toArray()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+    
+    private RowCallbackHandler ndjsonRowWriter(Writer writer) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.setRootValueSeparator(null);
+        // flush() below only hands each row to the buffered writer; the response is flushed once at the end
+        generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        return rs -> {
+            try {
+                generator.writeStartObject();
+                generator.writeNumberField("id", rs.getLong("id"));
+                generator.writeStringField("transactionId", rs.getString("transaction_id"));
+                generator.writeStringField("transactionType", rs.getString("transaction_type"));
+                writeDecimal(generator, "amount", rs.getBigDecimal("amount"));
+                generator.writeStringField("currency", rs.getString("currency"));
+                generator.writeStringField("description", rs.getString("description"));
+                writeLong(generator, "fromAccountId", rs, "from_account_id");
+                writeLong(generator, "toAccountId", rs, "to_account_id");
+                generator.writeStringField("status", rs.getString("status"));
+                writeLong(generator, "userId", rs, "user_id");
+                generator.writeStringField("createdAt", timestamp(rs, "created_at"));
+                generator.writeStringField("updatedAt", timestamp(rs, "updated_at"));
+                generator.writeEndObject();
+                generator.flush();
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+    
+    private RowCallbackHandler csvRowWriter(Writer writer) throws IOException {
+        writer.write(COLUMNS.replace(" ", ""));
+        writer.write('\n');
+        return rs -> {
+            try {
+                writer.write(rs.getString("id"));
+                for (String column : List.of("transaction_id", "transaction_type", "amount", "currency", "description",
+                        "from_account_id", "to_account_id", "status", "user_id")) {
+                    writer.write(',');
+                    writer.write(csv(rs.getString(column)));
+                }
+                writer.write(',');
+                writer.write(csv(timestamp(rs, "created_at")));
+                writer.write(',');
+                writer.write(csv(timestamp(rs, "updated_at")));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+    
+    private static void writeDecimal(JsonGenerator generator, String field, BigDecimal value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeNumberField(field, value);
+        }
+    }
+    
+    private static void writeLong(JsonGenerator generator, String field, ResultSet rs, String column)
+            throws IOException, SQLException {
+        long value = rs.getLong(column);
+        if (rs.wasNull()) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeNumberField(field, value);
+        }
+    }
+    
+    private static String timestamp(ResultSet rs, String column) throws SQLException {
+        Timestamp value = rs.getTimestamp(column);
+        return value != null ? value.toLocalDateTime().toString() : null;
+    }
+    
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,30 +1,53 @@
 package com.ebanking.transactionservice.service;
 
 import com.ebanking.transactionservice.client.AccountServiceClient;
-import com.ebanking.transactionservice.dto.Account;
+import com.ebanking.transactionservice.config.RemoteCallExecutor;
+import com.ebanking.transactionservice.dto.AccountLookup;
 import com.ebanking.transactionservice.dto.BalanceUpdateRequest;
-import com.ebanking.transactionservice.dto.TransactionEvent;
+import com.ebanking.transactionservice.dto.TransactionPage;
+import com.ebanking.transactionservice.dto.TransactionStatusResponse;
+import com.ebanking.transactionservice.dto.TransferRequest;
+import com.ebanking.transactionservice.exception.BalanceUpdateUnknownException;
+import com.ebanking.transactionservice.exception.DuplicateTransactionException;
 import com.ebanking.transactionservice.model.Transaction;
 import com.ebanking.transactionservice.repository.TransactionRepository;
 import feign.FeignException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class TransactionService {
     
+    private static final int MAX_HISTORY_PAGE_SIZE = 500;
+    // Open ends of a history range, so the query never has to test for null bounds
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+    
     private final TransactionRepository transactionRepository;
     private final AccountServiceClient accountServiceClient;
-    private final KafkaProducerService kafkaProducerService;
+    private final AccountLookupCache accountLookupCache;
+    private final AccountReplica accountReplica;
+    private final RemoteCallExecutor remoteCallExecutor;
+    private final AsyncTransactionProcessor asyncTransactionProcessor;
+    private final TransactionStatusNotifier transactionStatusNotifier;
+    private final IdempotencyService idempotencyService;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
     
     public List<Transaction> getAllTransactions() {
         return transactionRepository.findAll();
@@ -35,62 +58,344 @@ public class TransactionService {
     }
     
     public List<Transaction> getTransactionsByAccountId(Long accountId) {
-        List<Transaction> fromAccount = transactionRepository.findByFromAccountId(accountId);
-        List<Transaction> toAccount = transactionRepository.findByToAccountId(accountId);
+        return transactionRepository.findByFromAccountIdOrToAccountIdOrderByCreatedAtAscIdAsc(accountId, accountId);
+    }
+    
+    public TransactionPage getAccountHistory(Long accountId, LocalDateTime fromDate, LocalDateTime toDate,
+                                             Transaction.TransactionType type, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
+        HistoryCursor position = HistoryCursor.decode(cursor);
+        
+        List<Transaction> rows = transactionRepository.findAccountHistory(accountId,
+                fromDate != null ? fromDate : HISTORY_START,
+                toDate != null ? toDate : HISTORY_END,
+                type != null ? type.name() : null,
+                position != null ? position.getCreatedAt() : HISTORY_START,
+                position != null ? position.getId() : 0L,
+                pageSize + 1);
         
-        fromAccount.addAll(toAccount);
-        return fromAccount;
+        if (rows.size() <= pageSize) {
+            return new TransactionPage(rows, null);
+        }
+        List<Transaction> page = rows.subList(0, pageSize);
+        return new TransactionPage(page, HistoryCursor.after(page.get(pageSize - 1)).encode());
+    }
+    
+    /**
+     * The transaction previously stored for an Idempotency-Key, if that request
+     * has finished. Throws {@link com.ebanking.transactionservice.exception.IdempotencyMismatchException}
+     * if the key was used for a different request.
+     */
+    public Optional<Transaction> findIdempotentResult(String idempotencyKey, Transaction transaction) {
+        return idempotencyService.findCompleted(idempotencyKey, requestHash(transaction))
+                .flatMap(transactionRepository::findById);
+    }
+    
+    public Transaction createTransaction(Transaction transaction, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return createTransaction(transaction);
+        }
+        String requestHash = requestHash(transaction);
+        idempotencyService.claim(idempotencyKey, requestHash);
+        try {
+            Transaction createdTransaction = createTransaction(transaction);
+            idempotencyService.complete(idempotencyKey, requestHash, createdTransaction.getId());
+            return createdTransaction;
+        } catch (RuntimeException e) {
+            finishIdempotencyKey(idempotencyKey, requestHash, transaction);
+            throw e;
+        }
+    }
+    
+    public TransactionStatusResponse acceptTransaction(Transaction transaction, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return acceptTransaction(transaction);
+        }
+        String requestHash = requestHash(transaction);
+        idempotencyService.claim(idempotencyKey, requestHash);
+        try {
+            TransactionStatusResponse accepted = acceptTransaction(transaction);
+            idempotencyService.complete(idempotencyKey, requestHash, accepted.getId());
+            return accepted;
+        } catch (RuntimeException e) {
+            finishIdempotencyKey(idempotencyKey, requestHash, transaction);
+            throw e;
+        }
+    }
+    
+    /**
+     * The fields a client chooses; server-assigned ones such as id and status
+     * are left out. Equal amounts hash alike whatever their scale, e.g. 10 and 10.00.
+     */
+    private static String requestHash(Transaction transaction) {
+        BigDecimal amount = transaction.getAmount();
+        return IdempotencyService.fingerprint(transaction.getTransactionId(), transaction.getTransactionType(),
+                amount != null ? amount.stripTrailingZeros().toPlainString() : null,
+                transaction.getCurrency(), transaction.getDescription(),
+                transaction.getFromAccountId(), transaction.getToAccountId(), transaction.getUserId());
+    }
+    
+    private void finishIdempotencyKey(String idempotencyKey, String requestHash, Transaction transaction) {
+        try {
+            if (transaction.getId() != null) {
+                // A row was stored; retries replay it rather than trying again
+                idempotencyService.complete(idempotencyKey, requestHash, transaction.getId());
+            } else {
+                idempotencyService.release(idempotencyKey);
+            }
+        } catch (Exception e) {
+            log.error("Failed to finish idempotency key {}: {}", idempotencyKey, e.getMessage());
+        }
     }
     
+    /**
+     * Stores the transaction as PENDING, moves the balances with no database
+     * transaction open, then records the outcome with a single status update.
+     * The PENDING insert claims the transaction ID, so a duplicate is rejected
+     * before any balance moves; accounts missing from the local replica are
+     * looked up on a virtual thread while that insert runs. COMPLETED is
+     * written together with the outbox
+     * event. If only that final write fails, or accountservice gives no
+     * answer, the balances may have moved: the row is left PENDING with its
+     * balance update marked as sent, for reconciliation.
+     */
     public Transaction createTransaction(Transaction transaction) {
+        if (transactionRepository.existsByTransactionId(transaction.getTransactionId())) {
+            throw new DuplicateTransactionException(transaction.getTransactionId());
+        }
+        CompletableFuture<Void> validation = startValidation(transaction);
+        Transaction pendingTransaction;
         try {
-            validateAccounts(transaction);
-            
-            Transaction savedTransaction = transactionRepository.save(transaction);
-            
-            updateAccountBalances(savedTransaction);
-            
-            savedTransaction.setStatus(Transaction.TransactionStatus.COMPLETED);
-            Transaction completedTransaction = transactionRepository.save(savedTransaction);
-            
-            sendTransactionEvent(completedTransaction);
-            
-            return completedTransaction;
-            
+            transaction.setStatus(Transaction.TransactionStatus.PENDING);
+            transaction.setBalanceUpdateSent(true);
+            pendingTransaction = transactionRepository.saveAndFlush(transaction);
         } catch (DataIntegrityViolationException e) {
+            transaction.setId(null);
             log.error("Transaction ID already exists: {}", transaction.getTransactionId());
-            throw new RuntimeException("Transaction ID already exists: " + transaction.getTransactionId());
+            throw new DuplicateTransactionException(transaction.getTransactionId());
+        }
+        
+        try {
+            awaitValidation(validation);
+            updateAccountBalances(pendingTransaction);
+        } catch (BalanceUpdateUnknownException e) {
+            log.error("{}, left PENDING for reconciliation", e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Error creating transaction: {}", e.getMessage());
             try {
-                transaction.setStatus(Transaction.TransactionStatus.FAILED);
-                transactionRepository.save(transaction);
+                recordOutcome(pendingTransaction, Transaction.TransactionStatus.FAILED);
             } catch (Exception saveException) {
                 log.error("Failed to save transaction with FAILED status: {}", saveException.getMessage());
             }
             throw new RuntimeException("Transaction failed: " + e.getMessage());
         }
+        
+        try {
+            return recordOutcome(pendingTransaction, Transaction.TransactionStatus.COMPLETED);
+        } catch (Exception e) {
+            pendingTransaction.setStatus(Transaction.TransactionStatus.PENDING);
+            log.error("Balances for transaction {} were updated but recording it failed, left PENDING: {}",
+                    pendingTransaction.getTransactionId(), e.getMessage());
+            throw new RuntimeException("Transaction applied but not recorded: " + e.getMessage());
+        }
     }
     
-    private void validateAccounts(Transaction transaction) {
-        try {
-            ResponseEntity<Account> fromAccountResponse = accountServiceClient.getAccountById(transaction.getFromAccountId());
-            if (fromAccountResponse.getBody() == null) {
-                throw new RuntimeException("From account not found: " + transaction.getFromAccountId());
+    /**
+     * Moves a PENDING row to its final status with one UPDATE, adding the
+     * outbox event when it completed.
+     */
+    private Transaction recordOutcome(Transaction transaction, Transaction.TransactionStatus finalStatus) {
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            transactionRepository.completePending(List.of(transaction.getId()), finalStatus, now);
+            transaction.setStatus(finalStatus);
+            transaction.setUpdatedAt(now);
+            if (finalStatus == Transaction.TransactionStatus.COMPLETED) {
+                outboxService.enqueue(transaction);
             }
-            
-            if (transaction.getToAccountId() != null) {
-                ResponseEntity<Account> toAccountResponse = accountServiceClient.getAccountById(transaction.getToAccountId());
-                if (toAccountResponse.getBody() == null) {
-                    throw new RuntimeException("To account not found: " + transaction.getToAccountId());
-                }
+        });
+        return transaction;
+    }
+    
+    /**
+     * Async mode: store the transaction as PENDING and hand it to the worker
+     * pipeline, which moves it to COMPLETED or FAILED. Throws
+     * {@link RejectedExecutionException} when the pipeline is full.
+     */
+    public TransactionStatusResponse acceptTransaction(Transaction transaction) {
+        if (!asyncTransactionProcessor.tryReserve()) {
+            throw new RejectedExecutionException("Transaction pipeline is full");
+        }
+        
+        if (transactionRepository.existsByTransactionId(transaction.getTransactionId())) {
+            asyncTransactionProcessor.release();
+            throw new DuplicateTransactionException(transaction.getTransactionId());
+        }
+        
+        Transaction pendingTransaction;
+        try {
+            transaction.setStatus(Transaction.TransactionStatus.PENDING);
+            transaction.setBalanceUpdateSent(false);
+            pendingTransaction = transactionRepository.save(transaction);
+        } catch (DataIntegrityViolationException e) {
+            asyncTransactionProcessor.release();
+            log.error("Transaction ID already exists: {}", transaction.getTransactionId());
+            throw new DuplicateTransactionException(transaction.getTransactionId());
+        } catch (RuntimeException e) {
+            asyncTransactionProcessor.release();
+            throw e;
+        }
+        
+        TransactionStatusResponse accepted = TransactionStatusResponse.of(pendingTransaction);
+        asyncTransactionProcessor.submit(() -> processPendingTransaction(pendingTransaction));
+        return accepted;
+    }
+    
+    /**
+     * Claims the row before its balance update is sent; if the sweeper already
+     * failed it, its stored status is published instead. COMPLETED is
+     * published once the balances moved, even when recording it fails, and
+     * such a row is never failed by the sweeper afterwards.
+     */
+    private void processPendingTransaction(Transaction pendingTransaction) {
+        try {
+            validateAccounts(pendingTransaction);
+        } catch (Exception e) {
+            log.error("Error processing transaction {}: {}", pendingTransaction.getTransactionId(), e.getMessage());
+            failPendingTransaction(pendingTransaction);
+            return;
+        }
+        
+        Integer claimed = transactionTemplate.execute(status ->
+                transactionRepository.markBalanceUpdateSent(pendingTransaction.getId(), LocalDateTime.now()));
+        if (claimed == null || claimed == 0) {
+            transactionRepository.findById(pendingTransaction.getId()).ifPresent(transactionStatusNotifier::publish);
+            return;
+        }
+        pendingTransaction.setBalanceUpdateSent(true);
+        
+        try {
+            updateAccountBalances(pendingTransaction);
+        } catch (BalanceUpdateUnknownException e) {
+            log.error("{}, left PENDING for reconciliation", e.getMessage());
+            return;
+        } catch (Exception e) {
+            log.error("Error processing transaction {}: {}", pendingTransaction.getTransactionId(), e.getMessage());
+            failPendingTransaction(pendingTransaction);
+            return;
+        }
+        
+        try {
+            transactionStatusNotifier.publish(recordOutcome(pendingTransaction, Transaction.TransactionStatus.COMPLETED));
+        } catch (Exception e) {
+            log.error("Balances for transaction {} were updated but recording it failed, left PENDING: {}",
+                    pendingTransaction.getTransactionId(), e.getMessage());
+            // The balances did move, so that is what subscribers are told
+            pendingTransaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+            transactionStatusNotifier.publish(pendingTransaction);
+        }
+    }
+    
+    /** Records FAILED, or publishes whatever the row already ended as. */
+    private void failPendingTransaction(Transaction pendingTransaction) {
+        try {
+            recordOutcome(pendingTransaction, Transaction.TransactionStatus.FAILED);
+        } catch (Exception saveException) {
+            // Left PENDING; the sweeper fails it once it goes stale
+            log.error("Failed to save transaction {} with FAILED status: {}",
+                    pendingTransaction.getTransactionId(), saveException.getMessage());
+        }
+        transactionStatusNotifier.publish(pendingTransaction);
+    }
+    
+    public Optional<TransactionStatusResponse> getTransactionStatus(Long id) {
+        return transactionRepository.findById(id).map(TransactionStatusResponse::of);
+    }
+    
+    public Optional<SseEmitter> subscribeToStatus(Long id) {
+        return transactionRepository.findById(id).map(transaction -> {
+            SseEmitter emitter = transactionStatusNotifier.subscribe(transaction);
+            // The worker may have finished between the read and the subscription
+            transactionRepository.findById(id).ifPresent(transactionStatusNotifier::publish);
+            return emitter;
+        });
+    }
+    
+    /**
+     * Validates on the calling thread when the local replica holds every
+     * account; otherwise the lookup runs on a virtual thread, so the caller can
+     * do its own I/O meanwhile.
+     */
+    private CompletableFuture<Void> startValidation(Transaction transaction) {
+        if (accountIds(transaction).stream().allMatch(accountReplica::contains)) {
+            try {
+                validateAccounts(transaction);
+                return CompletableFuture.completedFuture(null);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
             }
-        } catch (FeignException.NotFound e) {
-            throw new RuntimeException("Account not found", e);
-        } catch (FeignException e) {
+        }
+        return remoteCallExecutor.runAsync(() -> validateAccounts(transaction));
+    }
+    
+    private static void awaitValidation(CompletableFuture<Void> validation) {
+        try {
+            validation.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+    
+    private static List<Long> accountIds(Transaction transaction) {
+        return transaction.getToAccountId() != null
+                ? List.of(transaction.getFromAccountId(), transaction.getToAccountId())
+                : List.of(transaction.getFromAccountId());
+    }
+    
+    /**
+     * Both accounts must exist and be ACTIVE. Accounts held in the local
+     * replica are checked against its status without a remote call. The rest
+     * are looked up together, using the status the lookup cache holds: cache
+     * misses are fetched with one multi-get call, so a transfer costs at most
+     * one round trip.
+     */
+    private void validateAccounts(Transaction transaction) {
+        List<Long> remoteIds = accountIds(transaction).stream()
+                .filter(accountId -> !accountReplica.contains(accountId))
+                .toList();
+        
+        Map<Long, AccountLookup> lookups;
+        try {
+            lookups = remoteIds.isEmpty() ? Map.of() : accountLookupCache.lookupAll(remoteIds);
+        } catch (RuntimeException e) {
             log.error("Error validating accounts: {}", e.getMessage());
             throw new RuntimeException("Error validating accounts: " + e.getMessage(), e);
         }
+        
+        checkAccount("From", transaction.getFromAccountId(), lookups);
+        if (transaction.getToAccountId() != null) {
+            checkAccount("To", transaction.getToAccountId(), lookups);
+        }
+    }
+    
+    private void checkAccount(String side, Long accountId, Map<Long, AccountLookup> lookups) {
+        AccountLookup lookup = lookups.get(accountId);
+        if (lookup == null) {
+            if (!accountReplica.contains(accountId)) {
+                throw new RuntimeException(side + " account not found: " + accountId);
+            }
+            if (!accountReplica.isActive(accountId)) {
+                throw new RuntimeException(side + " account is not active: " + accountId);
+            }
+            return;
+        }
+        if (!lookup.isExists()) {
+            throw new RuntimeException(side + " account not found: " + accountId);
+        }
+        if (!lookup.isActive()) {
+            throw new RuntimeException(side + " account is not active: " + accountId);
+        }
     }
     
     private void updateAccountBalances(Transaction transaction) {
@@ -116,15 +421,12 @@ public class TransactionService {
                     if (transaction.getToAccountId() == null) {
                         throw new RuntimeException("To account is required for TRANSFER");
                     }
-                    BalanceUpdateRequest withdrawalRequest = new BalanceUpdateRequest();
-                    withdrawalRequest.setAmount(transaction.getAmount());
-                    withdrawalRequest.setTransactionType(BalanceUpdateRequest.TransactionType.WITHDRAWAL);
-                    accountServiceClient.updateBalance(transaction.getFromAccountId(), withdrawalRequest);
-                    
-                    BalanceUpdateRequest depositRequest = new BalanceUpdateRequest();
-                    depositRequest.setAmount(transaction.getAmount());
-                    depositRequest.setTransactionType(BalanceUpdateRequest.TransactionType.DEPOSIT);
-                    accountServiceClient.updateBalance(transaction.getToAccountId(), depositRequest);
+                    TransferRequest transferRequest = new TransferRequest();
+                    transferRequest.setFromAccountId(transaction.getFromAccountId());
+                    transferRequest.setToAccountId(transaction.getToAccountId());
+                    transferRequest.setAmount(transaction.getAmount());
+                    transferRequest.setReference(transaction.getTransactionId());
+                    accountServiceClient.transfer(transferRequest);
                     break;
             }
         } catch (FeignException.BadRequest e) {
@@ -132,26 +434,11 @@ public class TransactionService {
             throw new RuntimeException("Insufficient balance or invalid request", e);
         } catch (FeignException e) {
             log.error("Error updating account balances: {}", e.getMessage());
-            throw new RuntimeException("Error updating account balances: " + e.getMessage(), e);
-        }
-    }
-    
-    private void sendTransactionEvent(Transaction transaction) {
-        try {
-            TransactionEvent event = new TransactionEvent();
-            event.setTransactionId(transaction.getTransactionId());
-            event.setTransactionType(transaction.getTransactionType().name());
-            event.setAmount(transaction.getAmount());
-            event.setCurrency(transaction.getCurrency());
-            event.setDescription(transaction.getDescription());
-            event.setFromAccountId(transaction.getFromAccountId());
-            event.setToAccountId(transaction.getToAccountId());
-            event.setUserId(transaction.getUserId());
-            event.setStatus(transaction.getStatus().name());
-            
-            kafkaProducerService.sendTransactionEvent(event);
-        } catch (Exception e) {
-            log.error("Error sending transaction event: {}", e.getMessage());
+            if (e.status() >= 400 && e.status() < 500) {
+                // accountservice answered and rejected it, so nothing was applied
+                throw new RuntimeException("Error updating account balances: " + e.getMessage(), e);
+            }
+            throw new BalanceUpdateUnknownException(transaction.getTransactionId(), e);
         }
     }
     
@@ -0,0 +1,80 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.dto.TransactionStatusResponse;
+import com.ebanking.transactionservice.model.Transaction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Pushes the final status of async transactions to SSE subscribers.
+ */
+@Slf4j
+@Component
+public class TransactionStatusNotifier {
+    
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    
+    @Value("${transaction.async.stream-timeout-ms:60000}")
+    private long streamTimeoutMs;
+    
+    /**
+     * Subscribe to a transaction's status. The current status is sent straight
+     * away; the stream completes once the transaction is final.
+     */
+    public SseEmitter subscribe(Transaction transaction) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Long id = transaction.getId();
+        if (isFinal(transaction.getStatus())) {
+            send(emitter, transaction);
+            emitter.complete();
+            return emitter;
+        }
+        
+        subscribers.computeIfAbsent(id, key -> new CopyOnWriteArrayList<>()).add(emitter);
+        Runnable remove = () -> subscribers.computeIfPresent(id, (key, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        send(emitter, transaction);
+        return emitter;
+    }
+    
+    public void publish(Transaction transaction) {
+        if (!isFinal(transaction.getStatus())) {
+            return;
+        }
+        List<SseEmitter> emitters = subscribers.remove(transaction.getId());
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            send(emitter, transaction);
+            emitter.complete();
+        }
+    }
+    
+    private void send(SseEmitter emitter, Transaction transaction) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name("status")
+                    .data(TransactionStatusResponse.of(transaction)));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Status subscriber for transaction {} went away: {}", transaction.getId(), e.getMessage());
+        }
+    }
+    
+    private boolean isFinal(Transaction.TransactionStatus status) {
+        return status != null && status != Transaction.TransactionStatus.PENDING;
+    }
+}
@@ -0,0 +1,236 @@
+package com.ebanking.transactionservice.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the old transaction write path (IDENTITY key, insert then update
+ * per row) with the current ones, which also insert PENDING and then update
+ * the status: the single-transaction path (pooled sequence ids, one UPDATE
+ * plus the outbox row in one commit) and the batch path (batched inserts,
+ * one UPDATE per chunk and batched outbox rows). Needs a Postgres database,
+ * so it only runs when asked for:
+ *
+ * <pre>
+ * mvn test -Dtest=TransactionInsertBenchmark \
+ *     -Dbenchmark.jdbc-url=jdbc:postgresql://localhost:5432/ebank_transactions \
+ *     -Dbenchmark.rows=20000
+ * </pre>
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark.jdbc-url", matches = ".+")
+class TransactionInsertBenchmark {
+
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int BATCH_SIZE = 500;
+
+    private final int rows = Integer.getInteger("benchmark.rows", 20000);
+    private Connection connection;
+    private long nextId;
+    private long maxId = -1;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection(System.getProperty("benchmark.jdbc-url"),
+                System.getProperty("benchmark.username", "postgres"),
+                System.getProperty("benchmark.password", "postgres"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE bench_tx_identity (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "transaction_id VARCHAR(255) UNIQUE NOT NULL, amount NUMERIC(38,2), status VARCHAR(32), created_at TIMESTAMP)");
+            statement.execute("CREATE TABLE bench_tx_sequence (id BIGINT PRIMARY KEY, "
+                    + "transaction_id VARCHAR(255) UNIQUE NOT NULL, amount NUMERIC(38,2), status VARCHAR(32), "
+                    + "created_at TIMESTAMP, updated_at TIMESTAMP)");
+            statement.execute("CREATE TABLE bench_tx_outbox (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "transaction_id VARCHAR(255) NOT NULL, payload TEXT NOT NULL)");
+            statement.execute("CREATE SEQUENCE bench_tx_seq INCREMENT BY " + ALLOCATION_SIZE);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_tx_identity");
+            statement.execute("DROP TABLE IF EXISTS bench_tx_sequence");
+            statement.execute("DROP TABLE IF EXISTS bench_tx_outbox");
+            statement.execute("DROP SEQUENCE IF EXISTS bench_tx_seq");
+        }
+        connection.close();
+    }
+
+    @Test
+    void insertThroughput() throws SQLException {
+        double before = identityInsertThenUpdate();
+        double single = sequenceInsertThenCompleteWithOutbox();
+        double batch = batchedInsertThenCompleteWithOutbox();
+
+        log.info("Transaction writes/s: before={} single={} (x{}) batch={} (x{}), {} rows per path",
+                String.format("%.0f", before), String.format("%.0f", single), String.format("%.1f", single / before),
+                String.format("%.0f", batch), String.format("%.1f", batch / before), rows);
+        assertEquals(rows, countCompleted("bench_tx_identity"));
+        assertEquals(2L * rows, countCompleted("bench_tx_sequence"));
+        assertEquals(2L * rows, countOutbox());
+    }
+
+    private long countCompleted(String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet count = statement.executeQuery(
+                     "SELECT count(DISTINCT id) FROM " + table + " WHERE status = 'COMPLETED'")) {
+            count.next();
+            return count.getLong(1);
+        }
+    }
+
+    private long countOutbox() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet count = statement.executeQuery("SELECT count(*) FROM bench_tx_outbox")) {
+            count.next();
+            return count.getLong(1);
+        }
+    }
+
+    private double identityInsertThenUpdate() throws SQLException {
+        connection.setAutoCommit(true);
+        long start = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO bench_tx_identity (transaction_id, amount, status, created_at) VALUES (?, ?, NULL, ?) RETURNING id");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE bench_tx_identity SET status = 'COMPLETED' WHERE id = ?")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setString(1, "BEFORE-" + i);
+                insert.setBigDecimal(2, BigDecimal.TEN);
+                insert.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+                long id;
+                try (ResultSet generated = insert.executeQuery()) {
+                    generated.next();
+                    id = generated.getLong(1);
+                }
+                update.setLong(1, id);
+                update.executeUpdate();
+            }
+        }
+        return rows / seconds(start);
+    }
+
+    /**
+     * What createTransaction does per request: the PENDING insert commits on
+     * its own, then the status update and the outbox row commit together.
+     */
+    private double sequenceInsertThenCompleteWithOutbox() throws SQLException {
+        connection.setAutoCommit(false);
+        long start = System.nanoTime();
+        try (PreparedStatement nextValue = connection.prepareStatement("SELECT nextval('bench_tx_seq')");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO bench_tx_sequence (id, transaction_id, amount, status, created_at, updated_at) "
+                     + "VALUES (?, ?, ?, 'PENDING', ?, ?)");
+             PreparedStatement complete = connection.prepareStatement(
+                     "UPDATE bench_tx_sequence SET status = 'COMPLETED', updated_at = ? WHERE id = ? AND status = 'PENDING'");
+             PreparedStatement outbox = connection.prepareStatement(
+                     "INSERT INTO bench_tx_outbox (transaction_id, payload) VALUES (?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                long id = nextId(nextValue);
+                String transactionId = "SINGLE-" + i;
+                bindInsert(insert, id, transactionId);
+                insert.executeUpdate();
+                connection.commit();
+
+                complete.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                complete.setLong(2, id);
+                complete.executeUpdate();
+                bindOutbox(outbox, transactionId);
+                outbox.executeUpdate();
+                connection.commit();
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        return rows / seconds(start);
+    }
+
+    /**
+     * What a batch submission does per chunk: the PENDING rows are inserted
+     * in one JDBC batch, then one UPDATE completes the chunk together with
+     * its batched outbox rows.
+     */
+    private double batchedInsertThenCompleteWithOutbox() throws SQLException {
+        connection.setAutoCommit(false);
+        long start = System.nanoTime();
+        try (PreparedStatement nextValue = connection.prepareStatement("SELECT nextval('bench_tx_seq')");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO bench_tx_sequence (id, transaction_id, amount, status, created_at, updated_at) "
+                     + "VALUES (?, ?, ?, 'PENDING', ?, ?)");
+             PreparedStatement complete = connection.prepareStatement(
+                     "UPDATE bench_tx_sequence SET status = 'COMPLETED', updated_at = ? "
+                     + "WHERE id = ANY (?) AND status = 'PENDING'");
+             PreparedStatement outbox = connection.prepareStatement(
+                     "INSERT INTO bench_tx_outbox (transaction_id, payload) VALUES (?, ?)")) {
+            for (int chunkStart = 0; chunkStart < rows; chunkStart += BATCH_SIZE) {
+                int chunkEnd = Math.min(rows, chunkStart + BATCH_SIZE);
+                Long[] ids = new Long[chunkEnd - chunkStart];
+                for (int i = chunkStart; i < chunkEnd; i++) {
+                    ids[i - chunkStart] = nextId(nextValue);
+                    bindInsert(insert, ids[i - chunkStart], "BATCH-" + i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                connection.commit();
+
+                complete.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                complete.setArray(2, connection.createArrayOf("bigint", ids));
+                complete.executeUpdate();
+                for (int i = chunkStart; i < chunkEnd; i++) {
+                    bindOutbox(outbox, "BATCH-" + i);
+                    outbox.addBatch();
+                }
+                outbox.executeBatch();
+                connection.commit();
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        return rows / seconds(start);
+    }
+
+    private long nextId(PreparedStatement nextValue) throws SQLException {
+        if (nextId > maxId) {
+            try (ResultSet value = nextValue.executeQuery()) {
+                value.next();
+                maxId = value.getLong(1);
+                nextId = maxId - ALLOCATION_SIZE + 1;
+            }
+        }
+        return nextId++;
+    }
+
+    private static void bindInsert(PreparedStatement insert, long id, String transactionId) throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        insert.setLong(1, id);
+        insert.setString(2, transactionId);
+        insert.setBigDecimal(3, BigDecimal.TEN);
+        insert.setTimestamp(4, now);
+        insert.setTimestamp(5, now);
+    }
+
+    private static void bindOutbox(PreparedStatement outbox, String transactionId) throws SQLException {
+        outbox.setString(1, transactionId);
+        outbox.setString(2, "{\"transactionId\":\"" + transactionId + "\",\"status\":\"COMPLETED\"}");
+    }
+
+    private static double seconds(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000_000.0;
+    }
+}
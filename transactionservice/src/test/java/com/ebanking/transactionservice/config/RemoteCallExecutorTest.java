@@ -0,0 +1,40 @@
+package com.ebanking.transactionservice.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RemoteCallExecutorTest {
+    
+    private final RemoteCallExecutor remoteCallExecutor = new RemoteCallExecutor();
+    
+    @AfterEach
+    void tearDown() {
+        remoteCallExecutor.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+    
+    @Test
+    void runsOnAVirtualThreadWithTheCallersSecurityContext() {
+        Authentication caller = new TestingAuthenticationToken("user", "jwt");
+        SecurityContextHolder.getContext().setAuthentication(caller);
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+        AtomicBoolean virtual = new AtomicBoolean();
+    
+        remoteCallExecutor.runAsync(() -> {
+            seen.set(SecurityContextHolder.getContext().getAuthentication());
+            virtual.set(Thread.currentThread().isVirtual());
+        }).join();
+    
+        assertSame(caller, seen.get());
+        assertTrue(virtual.get());
+    }
+}
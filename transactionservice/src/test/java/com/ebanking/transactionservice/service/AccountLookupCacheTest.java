@@ -0,0 +1,84 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.client.AccountServiceClient;
+import com.ebanking.transactionservice.dto.Account;
+import com.ebanking.transactionservice.dto.AccountLookup;
+import com.ebanking.transactionservice.dto.AccountLookupResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AccountLookupCacheTest {
+    
+    private final AccountServiceClient accountServiceClient = mock(AccountServiceClient.class);
+    private final AccountLookupCache accountLookupCache =
+            new AccountLookupCache(accountServiceClient, new SimpleMeterRegistry(), 100, 300);
+    
+    @Test
+    void repeatedLookupIsServedFromTheCache() {
+        when(accountServiceClient.getAccountById(1L)).thenReturn(ResponseEntity.ok(account(1L, "ACTIVE")));
+    
+        accountLookupCache.lookup(1L);
+        AccountLookup lookup = accountLookupCache.lookup(1L);
+    
+        assertTrue(lookup.isActive());
+        verify(accountServiceClient, times(1)).getAccountById(1L);
+    }
+    
+    @Test
+    void missesAreFetchedWithOneMultiGet() {
+        when(accountServiceClient.getAccountById(1L)).thenReturn(ResponseEntity.ok(account(1L, "ACTIVE")));
+        when(accountServiceClient.getAccountsByIds(List.of(2L))).thenReturn(ResponseEntity.ok(List.of(
+                new AccountLookupResult(2L, false, null))));
+        accountLookupCache.lookup(1L);
+    
+        Map<Long, AccountLookup> lookups = accountLookupCache.lookupAll(List.of(1L, 2L));
+    
+        assertTrue(lookups.get(1L).isExists());
+        assertFalse(lookups.get(2L).isExists());
+        verify(accountServiceClient, times(1)).getAccountsByIds(anyList());
+        verify(accountServiceClient).getAccountsByIds(List.of(2L));
+    }
+    
+    @Test
+    void accountEventDropsTheCachedEntry() {
+        when(accountServiceClient.getAccountById(1L))
+                .thenReturn(ResponseEntity.ok(account(1L, "ACTIVE")))
+                .thenReturn(ResponseEntity.ok(account(1L, "FROZEN")));
+        accountLookupCache.lookup(1L);
+    
+        new AccountEventConsumer(accountLookupCache)
+                .consumeAccountEvent(new ConsumerRecord<>("account-events", 0, 0L, "1", null));
+    
+        assertFalse(accountLookupCache.lookup(1L).isActive());
+        verify(accountServiceClient, times(2)).getAccountById(1L);
+    }
+    
+    @Test
+    void onlyExistingActiveOrUnknownStatusAccountsAreActive() {
+        assertTrue(new AccountLookup(1L, true, "ACTIVE").isActive());
+        assertTrue(new AccountLookup(1L, true, null).isActive());
+        assertFalse(new AccountLookup(1L, true, "FROZEN").isActive());
+        assertFalse(new AccountLookup(1L, false, null).isActive());
+    }
+    
+    private static Account account(Long id, String status) {
+        Account account = new Account();
+        account.setId(id);
+        account.setStatus(status);
+        return account;
+    }
+}
@@ -0,0 +1,70 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.dto.AccountChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountReplicaTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AccountReplica replica = new AccountReplica(meterRegistry);
+    
+    @Test
+    void keepsTheNewestVersionOfEachAccount() {
+        replica.onAccountEvent(record("1", event(1L, "ACTIVE", "10.00", 3L)));
+        replica.onAccountEvent(record("1", event(1L, "ACTIVE", "5.00", 2L)));
+    
+        assertEquals(3L, replica.get(1L).orElseThrow().getVersion());
+    
+        replica.onAccountEvent(record("1", event(1L, "SUSPENDED", "5.00", 4L)));
+    
+        assertEquals(4L, replica.get(1L).orElseThrow().getVersion());
+        assertFalse(replica.isActive(1L));
+    }
+    
+    @Test
+    void deletionAndTombstoneRemoveTheAccount() {
+        replica.onAccountEvent(record("1", event(1L, "ACTIVE", "10.00", 1L)));
+        replica.onAccountEvent(record("2", event(2L, "ACTIVE", "10.00", 1L)));
+    
+        AccountChangedEvent deleted = event(1L, null, null, null);
+        deleted.setChangeType(AccountChangedEvent.ChangeType.DELETED.name());
+        replica.onAccountEvent(record("1", deleted));
+        replica.onAccountEvent(record("2", null));
+    
+        assertFalse(replica.contains(1L));
+        assertFalse(replica.contains(2L));
+        assertEquals(0.0, meterRegistry.get("account.replica.size").gauge().value());
+    }
+    
+    @Test
+    void accountWithoutStatusIsTreatedAsActive() {
+        replica.onAccountEvent(record("1", event(1L, null, "10.00", 1L)));
+    
+        assertTrue(replica.isActive(1L));
+        assertFalse(replica.isActive(2L));
+    }
+    
+    @Test
+    void eventWithInvalidKeyIsIgnored() {
+        replica.onAccountEvent(record("not-a-number", event(1L, "ACTIVE", "10.00", 1L)));
+    
+        assertFalse(replica.contains(1L));
+    }
+    
+    private static ConsumerRecord<String, AccountChangedEvent> record(String key, AccountChangedEvent event) {
+        return new ConsumerRecord<>("account-events", 0, 0L, key, event);
+    }
+    
+    private static AccountChangedEvent event(Long accountId, String status, String balance, Long version) {
+        return new AccountChangedEvent(accountId, status, AccountChangedEvent.ChangeType.UPDATED.name(),
+                balance != null ? new BigDecimal(balance) : null, version);
+    }
+}
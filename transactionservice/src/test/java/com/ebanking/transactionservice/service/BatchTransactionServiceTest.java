@@ -0,0 +1,163 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.client.AccountServiceClient;
+import com.ebanking.transactionservice.dto.BalancePosting;
+import com.ebanking.transactionservice.dto.BatchItemResult;
+import com.ebanking.transactionservice.dto.PostingResult;
+import com.ebanking.transactionservice.model.Transaction;
+import com.ebanking.transactionservice.repository.TransactionRepository;
+import feign.FeignException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchTransactionServiceTest {
+    
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final AccountServiceClient accountServiceClient = mock(AccountServiceClient.class);
+    private final OutboxService outboxService = mock(OutboxService.class);
+    private final AtomicLong nextId = new AtomicLong(1);
+    private BatchTransactionService batchTransactionService;
+    
+    @BeforeEach
+    void setUp() {
+        batchTransactionService = new BatchTransactionService(transactionRepository, accountServiceClient, outboxService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), 1);
+        ReflectionTestUtils.setField(batchTransactionService, "chunkSize", 500);
+        when(transactionRepository.findExistingTransactionIds(anyCollection())).thenReturn(List.of());
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            transactions.forEach(transaction -> transaction.setId(nextId.getAndIncrement()));
+            return transactions;
+        });
+    }
+    
+    @AfterEach
+    void tearDown() {
+        batchTransactionService.shutdown();
+    }
+    
+    @Test
+    void postsOneCallAndStoresThePerItemOutcome() {
+        when(accountServiceClient.applyPostings(anyList())).thenReturn(ResponseEntity.ok(List.of(
+                new PostingResult("TX-1", true, null),
+                new PostingResult("TX-2", false, "Insufficient balance"))));
+    
+        List<BatchItemResult> results = batchTransactionService.createTransactions(
+                List.of(withdrawal("TX-1"), withdrawal("TX-2")).iterator());
+    
+        assertEquals("COMPLETED", results.get(0).getStatus());
+        assertEquals("FAILED", results.get(1).getStatus());
+        assertEquals("Insufficient balance", results.get(1).getError());
+        verify(transactionRepository).completePending(eq(List.of(1L)), eq(Transaction.TransactionStatus.COMPLETED), any());
+        verify(transactionRepository).completePending(eq(List.of(2L)), eq(Transaction.TransactionStatus.FAILED), any());
+        ArgumentCaptor<List<Transaction>> enqueued = ArgumentCaptor.forClass(List.class);
+        verify(outboxService).enqueueAll(enqueued.capture());
+        assertEquals(List.of("TX-1"), enqueued.getValue().stream().map(Transaction::getTransactionId).toList());
+    }
+    
+    @Test
+    void claimsRowsAsPendingAndSentBeforePosting() {
+        when(accountServiceClient.applyPostings(anyList())).thenAnswer(invocation -> {
+            ArgumentCaptor<List<Transaction>> claimed = ArgumentCaptor.forClass(List.class);
+            verify(transactionRepository).saveAll(claimed.capture());
+            Transaction transaction = claimed.getValue().get(0);
+            assertEquals(Transaction.TransactionStatus.PENDING, transaction.getStatus());
+            assertTrue(transaction.isBalanceUpdateSent());
+            List<BalancePosting> postings = invocation.getArgument(0);
+            return ResponseEntity.ok(List.of(new PostingResult(postings.get(0).getReference(), true, null)));
+        });
+    
+        List<BatchItemResult> results = batchTransactionService.createTransactions(List.of(withdrawal("TX-1")).iterator());
+    
+        assertEquals("COMPLETED", results.get(0).getStatus());
+    }
+    
+    @Test
+    void unknownPostingOutcomeLeavesItemsPending() {
+        FeignException timeout = mock(FeignException.class);
+        when(timeout.status()).thenReturn(-1);
+        when(accountServiceClient.applyPostings(anyList())).thenThrow(timeout);
+    
+        List<BatchItemResult> results = batchTransactionService.createTransactions(
+                List.of(withdrawal("TX-1"), withdrawal("TX-2")).iterator());
+    
+        results.forEach(result -> assertEquals("PENDING", result.getStatus()));
+        verify(transactionRepository, never()).completePending(anyCollection(), any(), any());
+    }
+    
+    @Test
+    void malformedPostingResponseLeavesItemsPending() {
+        when(accountServiceClient.applyPostings(anyList()))
+                .thenReturn(ResponseEntity.ok(List.of(new PostingResult("TX-1", true, null))));
+    
+        List<BatchItemResult> results = batchTransactionService.createTransactions(
+                List.of(withdrawal("TX-1"), withdrawal("TX-2")).iterator());
+    
+        results.forEach(result -> assertEquals("PENDING", result.getStatus()));
+        verify(transactionRepository, never()).completePending(anyCollection(), any(), any());
+    }
+    
+    @Test
+    void rejectedBatchFailsEveryItem() {
+        FeignException badRequest = mock(FeignException.class);
+        when(badRequest.status()).thenReturn(400);
+        when(accountServiceClient.applyPostings(anyList())).thenThrow(badRequest);
+    
+        List<BatchItemResult> results = batchTransactionService.createTransactions(
+                List.of(withdrawal("TX-1"), withdrawal("TX-2")).iterator());
+    
+        results.forEach(result -> assertEquals("FAILED", result.getStatus()));
+        verify(transactionRepository).completePending(eq(List.of(1L, 2L)), eq(Transaction.TransactionStatus.FAILED), any());
+    }
+    
+    @Test
+    void invalidAndDuplicateItemsAreRejectedWithoutBeingPosted() {
+        when(transactionRepository.findExistingTransactionIds(anyCollection())).thenReturn(List.of("TX-OLD"));
+        when(accountServiceClient.applyPostings(anyList()))
+                .thenReturn(ResponseEntity.ok(List.of(new PostingResult("TX-1", true, null))));
+        Transaction invalid = withdrawal("TX-BAD");
+        invalid.setAmount(BigDecimal.ZERO);
+    
+        List<BatchItemResult> results = batchTransactionService.createTransactions(
+                List.of(withdrawal("TX-1"), withdrawal("TX-1"), invalid, withdrawal("TX-OLD")).iterator());
+    
+        assertEquals("COMPLETED", results.get(0).getStatus());
+        assertEquals(BatchItemResult.REJECTED, results.get(1).getStatus());
+        assertEquals(BatchItemResult.REJECTED, results.get(2).getStatus());
+        assertEquals(BatchItemResult.REJECTED, results.get(3).getStatus());
+        ArgumentCaptor<List<BalancePosting>> posted = ArgumentCaptor.forClass(List.class);
+        verify(accountServiceClient).applyPostings(posted.capture());
+        assertEquals(1, posted.getValue().size());
+    }
+    
+    private static Transaction withdrawal(String transactionId) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(transactionId);
+        transaction.setTransactionType(Transaction.TransactionType.WITHDRAWAL);
+        transaction.setAmount(new BigDecimal("10.00"));
+        transaction.setFromAccountId(1L);
+        transaction.setUserId(7L);
+        return transaction;
+    }
+}
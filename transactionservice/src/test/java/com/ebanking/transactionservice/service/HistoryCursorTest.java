@@ -0,0 +1,49 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HistoryCursorTest {
+    
+    @Test
+    void roundTripsCreatedAtAndId() {
+        Transaction transaction = new Transaction();
+        transaction.setId(42L);
+        transaction.setCreatedAt(LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123456000));
+    
+        String token = HistoryCursor.after(transaction).encode();
+        HistoryCursor cursor = HistoryCursor.decode(token);
+    
+        assertEquals(transaction.getCreatedAt(), cursor.getCreatedAt());
+        assertEquals(42L, cursor.getId());
+    }
+    
+    @Test
+    void tokenIsUrlSafe() {
+        Transaction transaction = new Transaction();
+        transaction.setId(Long.MAX_VALUE);
+        transaction.setCreatedAt(LocalDateTime.of(2024, 3, 1, 12, 30));
+    
+        String token = HistoryCursor.after(transaction).encode();
+    
+        assertFalse(token.contains("+") || token.contains("/") || token.contains("="));
+    }
+    
+    @Test
+    void missingTokenMeansFirstPage() {
+        assertNull(HistoryCursor.decode(null));
+        assertNull(HistoryCursor.decode(""));
+    }
+    
+    @Test
+    void malformedTokenIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.decode("not-a-cursor"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.exception.IdempotencyConflictException;
+import com.ebanking.transactionservice.exception.IdempotencyMismatchException;
+import com.ebanking.transactionservice.model.IdempotencyRecord;
+import com.ebanking.transactionservice.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+    
+    private final IdempotencyRecordRepository idempotencyRecordRepository = mock(IdempotencyRecordRepository.class);
+    private final IdempotencyService idempotencyService =
+            new IdempotencyService(idempotencyRecordRepository, new SimpleMeterRegistry(), 100, 24, 60);
+    
+    @Test
+    void freeKeyIsClaimed() {
+        when(idempotencyRecordRepository.claim(eq("key-1"), eq("hash-a"), any(), any())).thenReturn(1);
+    
+        assertDoesNotThrow(() -> idempotencyService.claim("key-1", "hash-a"));
+    }
+    
+    @Test
+    void keyHeldBySameRequestIsAConflict() {
+        when(idempotencyRecordRepository.claim(anyString(), anyString(), any(), any())).thenReturn(0);
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(inProgress("hash-a")));
+    
+        assertThrows(IdempotencyConflictException.class, () -> idempotencyService.claim("key-1", "hash-a"));
+    }
+    
+    @Test
+    void keyHeldByDifferentRequestIsAMismatch() {
+        when(idempotencyRecordRepository.claim(anyString(), anyString(), any(), any())).thenReturn(0);
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(inProgress("hash-a")));
+    
+        assertThrows(IdempotencyMismatchException.class, () -> idempotencyService.claim("key-1", "hash-b"));
+    }
+    
+    @Test
+    void completedKeyReplaysFromMemory() {
+        idempotencyService.complete("key-1", "hash-a", 42L);
+    
+        assertEquals(Optional.of(42L), idempotencyService.findCompleted("key-1", "hash-a"));
+        verify(idempotencyRecordRepository, never()).findById(anyString());
+    }
+    
+    @Test
+    void completedKeyReplaysFromTheTableAfterRestart() {
+        IdempotencyRecord record = new IdempotencyRecord("key-1", 42L, "hash-a",
+                IdempotencyRecord.IdempotencyStatus.COMPLETED, LocalDateTime.now());
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(record));
+    
+        assertEquals(Optional.of(42L), idempotencyService.findCompleted("key-1", "hash-a"));
+    }
+    
+    @Test
+    void unfinishedKeyHasNothingToReplay() {
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(inProgress("hash-a")));
+    
+        assertTrue(idempotencyService.findCompleted("key-1", "hash-a").isEmpty());
+    }
+    
+    @Test
+    void completedKeyReusedForDifferentRequestIsAMismatch() {
+        idempotencyService.complete("key-1", "hash-a", 42L);
+    
+        assertThrows(IdempotencyMismatchException.class, () -> idempotencyService.findCompleted("key-1", "hash-b"));
+    }
+    
+    @Test
+    void fingerprintKeepsFieldBoundaries() {
+        assertEquals(IdempotencyService.fingerprint("a", 1L, null), IdempotencyService.fingerprint("a", 1L, null));
+        assertNotEquals(IdempotencyService.fingerprint("a|b", "c"), IdempotencyService.fingerprint("a", "b|c"));
+        assertNotEquals(IdempotencyService.fingerprint("a", null), IdempotencyService.fingerprint(null, "a"));
+    }
+    
+    private static IdempotencyRecord inProgress(String requestHash) {
+        return new IdempotencyRecord("key-1", null, requestHash,
+                IdempotencyRecord.IdempotencyStatus.IN_PROGRESS, LocalDateTime.now());
+    }
+}
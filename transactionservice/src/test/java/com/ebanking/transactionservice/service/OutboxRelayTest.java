@@ -0,0 +1,130 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.dto.TransactionEvent;
+import com.ebanking.transactionservice.model.OutboxEvent;
+import com.ebanking.transactionservice.model.Transaction;
+import com.ebanking.transactionservice.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+    
+    private final OutboxEventRepository outboxEventRepository = mock(OutboxEventRepository.class);
+    private final KafkaProducerService kafkaProducerService = mock(KafkaProducerService.class);
+    private final OutboxService outboxService = new OutboxService(outboxEventRepository, new ObjectMapper());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OutboxRelay relay;
+    
+    @BeforeEach
+    void setUp() {
+        relay = new OutboxRelay(outboxEventRepository, outboxService, kafkaProducerService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry);
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        ReflectionTestUtils.setField(relay, "sendTimeoutMs", 1000L);
+        when(outboxEventRepository.findFirstByOrderByIdAsc()).thenReturn(Optional.empty());
+        when(outboxEventRepository.save(any(OutboxEvent.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+    
+    @Test
+    void enqueuedEventIsKeyedByUserAndCarriesTheStoredStatus() {
+        OutboxEvent outboxEvent = outboxService.enqueue(transaction("TX-1", 7L));
+    
+        assertEquals("user-7", outboxEvent.getEventKey());
+        assertEquals("TX-1", outboxEvent.getTransactionId());
+        TransactionEvent event = outboxService.readEvent(outboxEvent);
+        assertEquals("COMPLETED", event.getStatus());
+        assertEquals(0, new BigDecimal("25.50").compareTo(event.getAmount()));
+    }
+    
+    @Test
+    void sendsInIdOrderAndDeletesOnlyAfterEverySendIsAcknowledged() {
+        List<OutboxEvent> batch = List.of(outboxEvent(1L, "TX-1", 7L), outboxEvent(2L, "TX-2", 8L));
+        when(outboxEventRepository.lockNextBatch(2)).thenReturn(batch, List.of());
+        when(kafkaProducerService.sendTransactionEvent(anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(sendResult()));
+    
+        relay.relay();
+    
+        InOrder order = inOrder(kafkaProducerService, outboxEventRepository);
+        order.verify(kafkaProducerService).sendTransactionEvent(eq("user-7"), any());
+        order.verify(kafkaProducerService).sendTransactionEvent(eq("user-8"), any());
+        order.verify(outboxEventRepository).deleteAllInBatch(batch);
+        assertEquals(2.0, meterRegistry.counter("transaction.outbox.published").count());
+    }
+    
+    @Test
+    void unacknowledgedBatchIsKeptForTheNextRun() {
+        List<OutboxEvent> batch = List.of(outboxEvent(1L, "TX-1", 7L), outboxEvent(2L, "TX-2", 8L));
+        when(outboxEventRepository.lockNextBatch(2)).thenReturn(batch);
+        when(kafkaProducerService.sendTransactionEvent(anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(sendResult()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+    
+        relay.relay();
+    
+        verify(outboxEventRepository, never()).deleteAllInBatch(anyList());
+        assertEquals(1.0, meterRegistry.counter("transaction.outbox.failures").count());
+    }
+    
+    @Test
+    void keepsDrainingWhileBatchesComeBackFull() {
+        List<OutboxEvent> full = List.of(outboxEvent(1L, "TX-1", 7L), outboxEvent(2L, "TX-2", 7L));
+        List<OutboxEvent> partial = List.of(outboxEvent(3L, "TX-3", 7L));
+        when(outboxEventRepository.lockNextBatch(anyInt())).thenReturn(full, partial);
+        when(kafkaProducerService.sendTransactionEvent(anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(sendResult()));
+    
+        relay.relay();
+    
+        verify(outboxEventRepository, times(2)).lockNextBatch(2);
+        verify(outboxEventRepository).deleteAllInBatch(full);
+        verify(outboxEventRepository).deleteAllInBatch(partial);
+    }
+    
+    private OutboxEvent outboxEvent(Long id, String transactionId, Long userId) {
+        OutboxEvent outboxEvent = outboxService.enqueue(transaction(transactionId, userId));
+        outboxEvent.setId(id);
+        return outboxEvent;
+    }
+    
+    private static Transaction transaction(String transactionId, Long userId) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(transactionId);
+        transaction.setTransactionType(Transaction.TransactionType.DEPOSIT);
+        transaction.setAmount(new BigDecimal("25.50"));
+        transaction.setFromAccountId(1L);
+        transaction.setUserId(userId);
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        return transaction;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static SendResult<String, TransactionEvent> sendResult() {
+        return mock(SendResult.class);
+    }
+}
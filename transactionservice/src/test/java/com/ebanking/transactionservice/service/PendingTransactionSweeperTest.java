@@ -0,0 +1,84 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.model.Transaction;
+import com.ebanking.transactionservice.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PendingTransactionSweeperTest {
+    
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final TransactionStatusNotifier transactionStatusNotifier = mock(TransactionStatusNotifier.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PendingTransactionSweeper sweeper;
+    
+    @BeforeEach
+    void setUp() {
+        sweeper = new PendingTransactionSweeper(transactionRepository, transactionStatusNotifier,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry);
+        ReflectionTestUtils.setField(sweeper, "staleAfterMs", 60000L);
+        ReflectionTestUtils.setField(sweeper, "batchSize", 10);
+    }
+    
+    @Test
+    void failsStaleRowsWhoseBalanceUpdateWasNeverSent() {
+        Transaction stale = pending(1L);
+        when(transactionRepository.findByStatusAndBalanceUpdateSentFalseAndUpdatedAtBeforeOrderByIdAsc(
+                eq(Transaction.TransactionStatus.PENDING), any(), any())).thenReturn(List.of(stale));
+        when(transactionRepository.failUnsent(eq(1L), any())).thenReturn(1);
+    
+        sweeper.sweep();
+    
+        assertEquals(Transaction.TransactionStatus.FAILED, stale.getStatus());
+        verify(transactionStatusNotifier).publish(stale);
+        assertEquals(1.0, meterRegistry.counter("transaction.pending.swept").count());
+    }
+    
+    @Test
+    void rowClaimedByAWorkerInTheMeantimeIsLeftAlone() {
+        Transaction claimed = pending(1L);
+        when(transactionRepository.findByStatusAndBalanceUpdateSentFalseAndUpdatedAtBeforeOrderByIdAsc(
+                eq(Transaction.TransactionStatus.PENDING), any(), any())).thenReturn(List.of(claimed));
+        when(transactionRepository.failUnsent(eq(1L), any())).thenReturn(0);
+    
+        sweeper.sweep();
+    
+        assertEquals(Transaction.TransactionStatus.PENDING, claimed.getStatus());
+        verify(transactionStatusNotifier, never()).publish(any());
+    }
+    
+    @Test
+    void sentRowsAreCountedForReconciliationInsteadOfFailed() {
+        when(transactionRepository.findByStatusAndBalanceUpdateSentFalseAndUpdatedAtBeforeOrderByIdAsc(
+                eq(Transaction.TransactionStatus.PENDING), any(), any())).thenReturn(List.of());
+        when(transactionRepository.countByStatusAndBalanceUpdateSentTrueAndUpdatedAtBefore(
+                eq(Transaction.TransactionStatus.PENDING), any())).thenReturn(3L);
+    
+        sweeper.sweep();
+    
+        verify(transactionRepository, never()).failUnsent(any(), any());
+        assertEquals(3.0, meterRegistry.get("transaction.pending.unreconciled").gauge().value());
+    }
+    
+    private static Transaction pending(Long id) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setTransactionId("TX-" + id);
+        transaction.setStatus(Transaction.TransactionStatus.PENDING);
+        return transaction;
+    }
+}
@@ -0,0 +1,146 @@
+package com.ebanking.transactionservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionExportServiceTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private final AtomicReference<String> executedSql = new AtomicReference<>();
+    private PreparedStatement statement;
+    private TransactionExportService exportService;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            executedSql.set(invocation.getArgument(0));
+            return statement;
+        });
+        when(statement.executeQuery()).thenAnswer(invocation -> resultSet());
+        exportService = new TransactionExportService(dataSource,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), objectMapper, 250);
+    }
+    
+    @Test
+    void ndjsonWritesOneObjectPerRowAndKeepsNulls() throws Exception {
+        rows.add(row(1L, "TX-1", "a plain description", null));
+        rows.add(row(2L, "TX-2", "second", 9L));
+    
+        String[] lines = export(TransactionExportService.Format.NDJSON).split("\n");
+    
+        assertEquals(2, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(1L, first.get("id").asLong());
+        assertEquals("TX-1", first.get("transactionId").asText());
+        // Written as an exact decimal, not a double
+        assertTrue(lines[0].contains("\"amount\":12.50,"));
+        assertTrue(first.get("toAccountId").isNull());
+        assertEquals("2024-01-01T10:00", first.get("createdAt").asText());
+        assertEquals(9L, objectMapper.readTree(lines[1]).get("toAccountId").asLong());
+    }
+    
+    @Test
+    void csvWritesHeaderAndQuotesSpecialCharacters() throws Exception {
+        rows.add(row(1L, "TX-1", "rent, \"march\"\nsecond line", null));
+    
+        String csv = export(TransactionExportService.Format.CSV);
+    
+        assertTrue(csv.startsWith("id,transaction_id,transaction_type,amount,"));
+        assertTrue(csv.contains(",\"rent, \"\"march\"\"\nsecond line\","));
+        assertTrue(csv.contains(",5,,COMPLETED,7,2024-01-01T10:00,"));
+    }
+    
+    @Test
+    void resumesAfterTheCheckpointInIdOrderWithTheConfiguredFetchSize() throws Exception {
+        exportService.export(new ByteArrayOutputStream(), TransactionExportService.Format.NDJSON,
+                5L, null, null, 41L);
+    
+        assertTrue(executedSql.get().contains("WHERE id > ? AND (from_account_id = ? OR to_account_id = ?)"));
+        assertTrue(executedSql.get().endsWith(" ORDER BY id"));
+        verify(statement).setObject(1, 41L);
+        verify(statement).setObject(2, 5L);
+        verify(statement).setFetchSize(250);
+    }
+    
+    private String export(TransactionExportService.Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(out, format, null, null, null, null);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+    
+    private ResultSet resultSet() throws Exception {
+        ResultSet resultSet = mock(ResultSet.class);
+        AtomicInteger position = new AtomicInteger(-1);
+        AtomicReference<Object> lastRead = new AtomicReference<>();
+        when(resultSet.next()).thenAnswer(invocation -> position.incrementAndGet() < rows.size());
+        when(resultSet.getString(anyString())).thenAnswer(invocation -> {
+            Object value = read(position, lastRead, invocation.getArgument(0));
+            return value != null ? value.toString() : null;
+        });
+        when(resultSet.getLong(anyString())).thenAnswer(invocation -> {
+            Object value = read(position, lastRead, invocation.getArgument(0));
+            return value != null ? (Long) value : 0L;
+        });
+        when(resultSet.getBigDecimal(anyString()))
+                .thenAnswer(invocation -> read(position, lastRead, invocation.getArgument(0)));
+        when(resultSet.getTimestamp(anyString()))
+                .thenAnswer(invocation -> read(position, lastRead, invocation.getArgument(0)));
+        when(resultSet.wasNull()).thenAnswer(invocation -> lastRead.get() == null);
+        return resultSet;
+    }
+    
+    private Object read(AtomicInteger position, AtomicReference<Object> lastRead, String column) {
+        Object value = rows.get(position.get()).get(column);
+        lastRead.set(value);
+        return value;
+    }
+    
+    private static Map<String, Object> row(Long id, String transactionId, String description, Long toAccountId) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("transaction_id", transactionId);
+        row.put("transaction_type", "TRANSFER");
+        row.put("amount", new BigDecimal("12.50"));
+        row.put("currency", "EUR");
+        row.put("description", description);
+        row.put("from_account_id", 5L);
+        row.put("to_account_id", toAccountId);
+        row.put("status", "COMPLETED");
+        row.put("user_id", 7L);
+        row.put("created_at", Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 10, 0)));
+        row.put("updated_at", Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 10, 1)));
+        return row;
+    }
+}
@@ -0,0 +1,340 @@
+package com.ebanking.transactionservice.service;
+
+import com.ebanking.transactionservice.client.AccountServiceClient;
+import com.ebanking.transactionservice.config.RemoteCallExecutor;
+import com.ebanking.transactionservice.dto.AccountLookup;
+import com.ebanking.transactionservice.dto.TransactionPage;
+import com.ebanking.transactionservice.dto.TransactionStatusResponse;
+import com.ebanking.transactionservice.exception.BalanceUpdateUnknownException;
+import com.ebanking.transactionservice.exception.DuplicateTransactionException;
+import com.ebanking.transactionservice.model.Transaction;
+import com.ebanking.transactionservice.repository.TransactionRepository;
+import feign.FeignException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionServiceTest {
+    
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final AccountServiceClient accountServiceClient = mock(AccountServiceClient.class);
+    private final AccountLookupCache accountLookupCache = mock(AccountLookupCache.class);
+    private final AccountReplica accountReplica = mock(AccountReplica.class);
+    private final RemoteCallExecutor remoteCallExecutor = new RemoteCallExecutor();
+    private final AsyncTransactionProcessor asyncTransactionProcessor = mock(AsyncTransactionProcessor.class);
+    private final TransactionStatusNotifier transactionStatusNotifier = mock(TransactionStatusNotifier.class);
+    private final IdempotencyService idempotencyService = mock(IdempotencyService.class);
+    private final OutboxService outboxService = mock(OutboxService.class);
+    private TransactionService transactionService;
+    
+    @BeforeEach
+    void setUp() {
+        transactionService = new TransactionService(transactionRepository, accountServiceClient, accountLookupCache,
+                accountReplica, remoteCallExecutor, asyncTransactionProcessor, transactionStatusNotifier,
+                idempotencyService, outboxService, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        when(transactionRepository.saveAndFlush(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            transaction.setId(100L);
+            return transaction;
+        });
+    }
+    
+    @AfterEach
+    void tearDown() {
+        remoteCallExecutor.shutdown();
+    }
+    
+    @Test
+    void historyFetchesOneExtraRowToDetectTheNextPage() {
+        List<Transaction> rows = List.of(stored(1L), stored(2L), stored(3L));
+        when(transactionRepository.findAccountHistory(eq(5L), any(), any(), isNull(), any(), any(), eq(3)))
+                .thenReturn(rows);
+    
+        TransactionPage page = transactionService.getAccountHistory(5L, null, null, null, null, 2);
+    
+        assertEquals(List.of(1L, 2L), page.getItems().stream().map(Transaction::getId).toList());
+        HistoryCursor next = HistoryCursor.decode(page.getNextCursor());
+        assertEquals(2L, next.getId());
+        assertEquals(rows.get(1).getCreatedAt(), next.getCreatedAt());
+    }
+    
+    @Test
+    void historyLastPageHasNoCursor() {
+        when(transactionRepository.findAccountHistory(any(), any(), any(), any(), any(), any(), anyInt()))
+                .thenReturn(List.of(stored(1L)));
+    
+        TransactionPage page = transactionService.getAccountHistory(5L, null, null, null, null, 2);
+    
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+    
+    @Test
+    void historyResumesAfterTheCursorPosition() {
+        Transaction last = stored(9L);
+        String cursor = HistoryCursor.after(last).encode();
+        when(transactionRepository.findAccountHistory(any(), any(), any(), any(), any(), any(), anyInt()))
+                .thenReturn(List.of());
+    
+        transactionService.getAccountHistory(5L, null, null, Transaction.TransactionType.DEPOSIT, cursor, 50);
+    
+        verify(transactionRepository).findAccountHistory(eq(5L), any(), any(), eq("DEPOSIT"),
+                eq(last.getCreatedAt()), eq(9L), eq(51));
+    }
+    
+    @Test
+    void accountsMissingFromTheReplicaAreLookedUpWhileThePendingRowIsInserted() throws Exception {
+        CountDownLatch inserted = new CountDownLatch(1);
+        when(transactionRepository.saveAndFlush(any(Transaction.class))).thenAnswer(invocation -> {
+            inserted.countDown();
+            Transaction transaction = invocation.getArgument(0);
+            transaction.setId(100L);
+            return transaction;
+        });
+        when(accountLookupCache.lookupAll(List.of(1L, 2L))).thenAnswer(invocation -> {
+            // Only completes if the insert runs while this lookup is in flight
+            assertTrue(inserted.await(5, TimeUnit.SECONDS));
+            return Map.of(1L, new AccountLookup(1L, true, "ACTIVE"), 2L, new AccountLookup(2L, true, "ACTIVE"));
+        });
+    
+        Transaction created = transactionService.createTransaction(transfer("TX-1"));
+    
+        assertEquals(Transaction.TransactionStatus.COMPLETED, created.getStatus());
+    }
+    
+    @Test
+    void accountsHeldByTheReplicaAreValidatedWithoutARemoteCall() {
+        when(accountReplica.contains(any())).thenReturn(true);
+        when(accountReplica.isActive(any())).thenReturn(true);
+    
+        transactionService.createTransaction(transfer("TX-1"));
+    
+        verify(accountLookupCache, never()).lookupAll(anyCollection());
+    }
+    
+    @Test
+    void acceptedTransactionIsStoredPendingAndUnsentThenHandedToTheWorkers() {
+        when(asyncTransactionProcessor.tryReserve()).thenReturn(true);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            transaction.setId(100L);
+            return transaction;
+        });
+        Transaction transaction = transfer("TX-1");
+    
+        TransactionStatusResponse accepted = transactionService.acceptTransaction(transaction);
+    
+        assertEquals(100L, accepted.getId());
+        assertEquals(Transaction.TransactionStatus.PENDING, transaction.getStatus());
+        assertFalse(transaction.isBalanceUpdateSent());
+        verify(asyncTransactionProcessor).submit(any(Runnable.class));
+        verifyNoInteractions(accountServiceClient);
+    }
+    
+    @Test
+    void workerDoesNotMoveBalancesForARowTheSweeperAlreadyFailed() {
+        Transaction failed = stored(100L);
+        failed.setStatus(Transaction.TransactionStatus.FAILED);
+        when(accountReplica.contains(any())).thenReturn(true);
+        when(accountReplica.isActive(any())).thenReturn(true);
+        when(transactionRepository.markBalanceUpdateSent(eq(100L), any())).thenReturn(0);
+        when(transactionRepository.findById(100L)).thenReturn(Optional.of(failed));
+    
+        runAcceptedTransaction(transfer("TX-1"));
+    
+        verifyNoInteractions(accountServiceClient);
+        verify(transactionStatusNotifier).publish(failed);
+    }
+    
+    @Test
+    void workerLeavesTheRowPendingWhenTheBalanceUpdateOutcomeIsUnknown() {
+        FeignException timeout = mock(FeignException.class);
+        when(timeout.status()).thenReturn(-1);
+        when(accountReplica.contains(any())).thenReturn(true);
+        when(accountReplica.isActive(any())).thenReturn(true);
+        when(transactionRepository.markBalanceUpdateSent(eq(100L), any())).thenReturn(1);
+        when(accountServiceClient.transfer(any())).thenThrow(timeout);
+        Transaction transaction = transfer("TX-1");
+    
+        runAcceptedTransaction(transaction);
+    
+        assertEquals(Transaction.TransactionStatus.PENDING, transaction.getStatus());
+        verify(transactionRepository, never()).completePending(anyCollection(), any(), any());
+        verify(transactionStatusNotifier, never()).publish(any());
+    }
+    
+    @Test
+    void idempotentRetryOfAStoredFailureReplaysIt() {
+        when(accountReplica.contains(any())).thenReturn(true);
+        when(accountReplica.isActive(1L)).thenReturn(true);
+        when(accountReplica.isActive(2L)).thenReturn(false);
+    
+        assertThrows(RuntimeException.class, () -> transactionService.createTransaction(transfer("TX-1"), "key-1"));
+    
+        // The FAILED row was stored, so the key completes to it instead of being released
+        verify(idempotencyService).complete(eq("key-1"), any(), eq(100L));
+        verify(idempotencyService, never()).release(any());
+    }
+    
+    @Test
+    void idempotencyKeyIsReleasedWhenNothingWasStored() {
+        when(transactionRepository.existsByTransactionId("TX-1")).thenReturn(true);
+    
+        assertThrows(DuplicateTransactionException.class,
+                () -> transactionService.createTransaction(transfer("TX-1"), "key-1"));
+    
+        verify(idempotencyService).release("key-1");
+    }
+    
+    @Test
+    void requestHashIgnoresAmountScale() {
+        Transaction tenWhole = transfer("TX-1");
+        tenWhole.setAmount(new BigDecimal("10"));
+        when(transactionRepository.existsByTransactionId("TX-1")).thenReturn(true);
+        ArgumentCaptor<String> hashes = ArgumentCaptor.forClass(String.class);
+    
+        assertThrows(DuplicateTransactionException.class, () -> transactionService.createTransaction(tenWhole, "key-1"));
+        assertThrows(DuplicateTransactionException.class,
+                () -> transactionService.createTransaction(transfer("TX-1"), "key-2"));
+    
+        verify(idempotencyService, times(2)).claim(any(), hashes.capture());
+        assertEquals(hashes.getAllValues().get(0), hashes.getAllValues().get(1));
+    }
+    
+    @Test
+    void createInsertsPendingOnceThenCompletesWithOneUpdateAndAnOutboxEvent() {
+        when(accountReplica.contains(any())).thenReturn(true);
+        when(accountReplica.isActive(any())).thenReturn(true);
+        Transaction transaction = transfer("TX-1");
+    
+        Transaction created = transactionService.createTransaction(transaction);
+    
+        assertEquals(Transaction.TransactionStatus.COMPLETED, created.getStatus());
+        verify(transactionRepository, times(1)).saveAndFlush(transaction);
+        verify(transactionRepository, never()).save(any(Transaction.class));
+        verify(transactionRepository).completePending(eq(List.of(100L)), eq(Transaction.TransactionStatus.COMPLETED), any());
+        verify(outboxService).enqueue(transaction);
+    }
+    
+    @Test
+    void duplicateTransactionIdIsRejectedBeforeAnyBalanceMoves() {
+        when(accountReplica.contains(any())).thenReturn(true);
+        when(accountReplica.isActive(any())).thenReturn(true);
+        when(transactionRepository.saveAndFlush(any(Transaction.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+    
+        assertThrows(DuplicateTransactionException.class, () -> transactionService.createTransaction(transfer("TX-1")));
+    
+        verifyNoInteractions(accountServiceClient);
+    }
+    
+    @Test
+    void unknownBalanceUpdateOutcomeLeavesTheRowPending() {
+        FeignException timeout = mock(FeignException.class);
+        when(timeout.status()).thenReturn(503);
+        when(accountReplica.contains(any())).thenReturn(true);
+        when(accountReplica.isActive(any())).thenReturn(true);
+        when(accountServiceClient.transfer(any())).thenThrow(timeout);
+        Transaction transaction = transfer("TX-1");
+    
+        assertThrows(BalanceUpdateUnknownException.class, () -> transactionService.createTransaction(transaction));
+    
+        assertEquals(Transaction.TransactionStatus.PENDING, transaction.getStatus());
+        assertTrue(transaction.isBalanceUpdateSent());
+        verify(transactionRepository, never()).completePending(anyCollection(), any(), any());
+    }
+    
+    @Test
+    void failedFinalWriteAfterTheBalancesMovedLeavesTheRowPending() {
+        when(accountReplica.contains(any())).thenReturn(true);
+        when(accountReplica.isActive(any())).thenReturn(true);
+        when(transactionRepository.completePending(anyCollection(), any(), any()))
+                .thenThrow(new DataIntegrityViolationException("connection lost"));
+        Transaction transaction = transfer("TX-1");
+    
+        RuntimeException e = assertThrows(RuntimeException.class, () -> transactionService.createTransaction(transaction));
+    
+        assertTrue(e.getMessage().startsWith("Transaction applied but not recorded"));
+        assertEquals(Transaction.TransactionStatus.PENDING, transaction.getStatus());
+        verify(outboxService, never()).enqueue(any());
+    }
+    
+    @Test
+    void accountTheReplicaHoldsAsInactiveIsRejectedWithoutARemoteCall() {
+        when(accountReplica.contains(any())).thenReturn(true);
+        when(accountReplica.isActive(1L)).thenReturn(true);
+        when(accountReplica.isActive(2L)).thenReturn(false);
+    
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> transactionService.createTransaction(transfer("TX-1")));
+    
+        assertTrue(e.getMessage().contains("To account is not active"));
+        verifyNoInteractions(accountLookupCache, accountServiceClient);
+    }
+    
+    private void runAcceptedTransaction(Transaction transaction) {
+        when(asyncTransactionProcessor.tryReserve()).thenReturn(true);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction saved = invocation.getArgument(0);
+            saved.setId(100L);
+            return saved;
+        });
+        transactionService.acceptTransaction(transaction);
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(asyncTransactionProcessor).submit(task.capture());
+        task.getValue().run();
+    }
+    
+    private static Transaction transfer(String transactionId) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(transactionId);
+        transaction.setTransactionType(Transaction.TransactionType.TRANSFER);
+        transaction.setAmount(new BigDecimal("10.00"));
+        transaction.setFromAccountId(1L);
+        transaction.setToAccountId(2L);
+        transaction.setUserId(7L);
+        return transaction;
+    }
+    
+    private static Transaction stored(Long id) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setTransactionId("TX-" + id);
+        transaction.setTransactionType(Transaction.TransactionType.DEPOSIT);
+        transaction.setAmount(new BigDecimal("10.00"));
+        transaction.setFromAccountId(5L);
+        transaction.setUserId(7L);
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        transaction.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(id));
+        return transaction;
+    }
+}